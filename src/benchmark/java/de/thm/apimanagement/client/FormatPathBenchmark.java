@@ -0,0 +1,84 @@
+package de.thm.apimanagement.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures formatting the request path, which runs for every invocation of an API: the former
+ * {@code String.replace} based implementation, parsing and expanding a {@link PathTemplate} on every call,
+ * and expanding a template taken from the cache as {@link ExternalApiClient#formatPath(String, Map, Map)} does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatPathBenchmark {
+
+    /**
+     * Number of path parameters and of request parameters
+     */
+    @Param({"0", "2", "8"})
+    public int parameters;
+
+    private String requestPath;
+    private Map<String, String> pathParameter;
+    private Map<String, String> requestParameter;
+    private Cache<String, PathTemplate> pathTemplates;
+
+    @Setup
+    public void setup() {
+        StringBuilder path = new StringBuilder("https://api.example.com/v1");
+        pathParameter = new LinkedHashMap<>();
+        requestParameter = new LinkedHashMap<>();
+        for (int i = 0; i < parameters; i++) {
+            path.append("/resources").append(i).append("/{id").append(i).append('}');
+            pathParameter.put("id" + i, String.valueOf(1000 + i));
+            requestParameter.put("filter " + i, "value with spaces & symbols " + i);
+        }
+        requestPath = path.toString();
+        pathTemplates = ExternalApiClient.pathTemplateCache(1000);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyFormatPath(requestPath, pathParameter, requestParameter);
+    }
+
+    @Benchmark
+    public String parseAndExpand() {
+        return PathTemplate.parse(requestPath).expand(pathParameter, requestParameter);
+    }
+
+    @Benchmark
+    public String cachedExpand() {
+        return pathTemplates.get(requestPath, PathTemplate::parse).expand(pathParameter, requestParameter);
+    }
+
+    /**
+     * The implementation before path templates, kept as baseline
+     */
+    private static String legacyFormatPath(String requestPath, Map<String, String> pathParameter,
+                                           Map<String, String> requestParameter) {
+        for (Map.Entry<String, String> entry : pathParameter.entrySet()) {
+            requestPath = requestPath.replace("{" + entry.getKey() + "}", entry.getValue());
+        }
+
+        if (!requestParameter.isEmpty()) {
+            requestPath += "?" + requestParameter.entrySet().stream()
+                    .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" +
+                            URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                    .collect(Collectors.joining("&"));
+        }
+
+        return requestPath;
+    }
+}
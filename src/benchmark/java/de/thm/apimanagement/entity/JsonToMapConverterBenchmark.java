@@ -0,0 +1,35 @@
+package de.thm.apimanagement.entity;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a round trip of a specification through {@link JsonToMapConverter}, as done when a legacy
+ * specification is migrated or a specification is written and read again
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonToMapConverterBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int paths;
+
+    private final JsonToMapConverter converter = new JsonToMapConverter();
+    private Map<String, Object> spec;
+
+    @Setup
+    public void setup() {
+        spec = SampleSpecs.openApi(paths);
+    }
+
+    @Benchmark
+    public Map<String, Object> roundTrip() {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(spec));
+    }
+}
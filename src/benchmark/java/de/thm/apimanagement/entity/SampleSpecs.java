@@ -0,0 +1,54 @@
+package de.thm.apimanagement.entity;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates OpenAPI documents of a given size for benchmarks. The documents repeat the structure
+ * of real specifications: many paths with similar operations, parameters and response schemas.
+ */
+public final class SampleSpecs {
+
+    private SampleSpecs() {}
+
+    /**
+     * Creates an OpenAPI document
+     *
+     * @param paths The number of paths in the document, each with a GET and a POST operation
+     * @return      The document as it is stored in {@link Api#getSpec()}
+     */
+    public static Map<String, Object> openApi(int paths) {
+        Map<String, Object> pathItems = new LinkedHashMap<>();
+        for (int i = 0; i < paths; i++) {
+            pathItems.put("/resources" + i + "/{id}", Map.of(
+                    "get", operation("getResource" + i, "Gets resource " + i),
+                    "post", operation("updateResource" + i, "Updates resource " + i)));
+        }
+
+        Map<String, Object> spec = new LinkedHashMap<>();
+        spec.put("openapi", "3.0.3");
+        spec.put("info", Map.of("title", "Sample API", "version", "1.0.0"));
+        spec.put("servers", List.of(Map.of("url", "https://api.example.com/v1")));
+        spec.put("paths", pathItems);
+        return spec;
+    }
+
+    private static Map<String, Object> operation(String operationId, String summary) {
+        Map<String, Object> schema = Map.of("type", "object", "properties", Map.of(
+                "id", Map.of("type", "integer"),
+                "name", Map.of("type", "string"),
+                "createdAt", Map.of("type", "string", "format", "date-time")));
+
+        return Map.of(
+                "operationId", operationId,
+                "summary", summary,
+                "parameters", List.of(
+                        Map.of("name", "id", "in", "path", "required", true, "schema", Map.of("type", "integer")),
+                        Map.of("name", "expand", "in", "query", "required", false, "schema", Map.of("type", "string"))),
+                "responses", Map.of(
+                        "200", Map.of("description", "OK",
+                                "content", Map.of("application/json", Map.of("schema", schema))),
+                        "404", Map.of("description", "Not found")));
+    }
+}
@@ -0,0 +1,51 @@
+package de.thm.apimanagement.entity;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the storage formats of API specifications with the JSON text written by {@link JsonToMapConverter}.
+ * The size of a stored row is printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpecCodecBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int paths;
+
+    @Param({"json-text", "json", "smile-deflate"})
+    public String format;
+
+    private final JsonToMapConverter textConverter = new JsonToMapConverter();
+    private Map<String, Object> spec;
+    private byte[] stored;
+
+    @Setup
+    public void setup() {
+        spec = SampleSpecs.openApi(paths);
+        stored = encode();
+        System.out.printf("%n%s with %d paths: %d bytes per row%n", format, paths, stored.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return format.equals("json-text")
+                ? textConverter.convertToDatabaseColumn(spec).getBytes(StandardCharsets.UTF_8)
+                : SpecCodec.byName(format).encode(spec);
+    }
+
+    @Benchmark
+    public Map<String, Object> decode() {
+        return format.equals("json-text")
+                ? textConverter.convertToEntityAttribute(new String(stored, StandardCharsets.UTF_8))
+                : SpecCodec.decode(stored);
+    }
+}
@@ -0,0 +1,62 @@
+package de.thm.apimanagement.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Stands in for Keycloak: signs tokens with a key generated at startup and publishes the key
+ * as a JWK set, which this service is configured to validate tokens with
+ */
+final class JwtIssuer implements AutoCloseable {
+    private final RSAKey key;
+    private final StandInServer server;
+
+    JwtIssuer() throws IOException, JOSEException {
+        this.key = new RSAKeyGenerator(2048).keyID("load-test").generate();
+        String jwkSet = new JWKSet(key.toPublicJWK()).toString();
+        this.server = new StandInServer("jwt-issuer")
+                .route("GET", "/certs", request -> StandInServer.Response.text(jwkSet))
+                .start();
+    }
+
+    String jwkSetUri() {
+        return server.url() + "/certs";
+    }
+
+    /**
+     * Issues a token for a user
+     *
+     * @param user      The user, used as subject and {@code preferred_username}
+     * @param validity  How long the token is valid
+     * @return          The signed token
+     */
+    String issue(String user, Duration validity) throws JOSEException {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(user)
+                .claim("preferred_username", user)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(validity)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    @Override
+    public void close() {
+        server.close();
+    }
+}
@@ -0,0 +1,70 @@
+package de.thm.apimanagement.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the latency of every request per endpoint and status class ({@code 2xx}, {@code 4xx},
+ * {@code 5xx} or {@code error} if no response has been received)
+ */
+final class LatencyReport {
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    void record(String endpoint, int status, long nanos) {
+        String statusClass = status > 0 ? status / 100 + "xx" : "error";
+        histograms.computeIfAbsent(endpoint + " " + statusClass, k -> new ConcurrentHistogram(3))
+                .recordValue(Math.max(1, nanos / 1_000));
+    }
+
+    /**
+     * Prints throughput and percentiles in milliseconds
+     *
+     * @param elapsed   The duration the requests have been recorded in
+     * @param out       The stream to print to
+     */
+    void print(Duration elapsed, PrintStream out) {
+        out.printf("%n%-34s %9s %10s %9s %9s %9s %9s%n", "endpoint", "count", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map<String, Object> row : rows(elapsed)) {
+            out.printf("%-34s %9d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.get("endpoint"), row.get("count"), row.get("throughput"),
+                    row.get("p50"), row.get("p99"), row.get("p999"), row.get("max"));
+        }
+    }
+
+    /**
+     * Writes the report as JSON, with the same columns as {@link #print(Duration, PrintStream)}
+     */
+    void write(Duration elapsed, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        StandInServer.MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), rows(elapsed));
+    }
+
+    private List<Map<String, Object>> rows(Duration elapsed) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        histograms.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            Histogram histogram = entry.getValue();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", entry.getKey());
+            row.put("count", histogram.getTotalCount());
+            row.put("throughput", histogram.getTotalCount() / (elapsed.toMillis() / 1000.0));
+            row.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+            row.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+            row.put("p999", histogram.getValueAtPercentile(99.9) / 1000.0);
+            row.put("max", histogram.getMaxValue() / 1000.0);
+            rows.add(row);
+        });
+        return rows;
+    }
+}
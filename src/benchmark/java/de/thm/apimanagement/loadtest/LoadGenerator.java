@@ -0,0 +1,87 @@
+package de.thm.apimanagement.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs weighted scenarios from multiple threads for a fixed duration. Requests during the warmup
+ * are sent but not recorded.
+ */
+final class LoadGenerator {
+
+    /**
+     * One kind of request
+     *
+     * @param endpoint  The name the latency is reported under
+     * @param weight    How often the scenario is picked relative to the others
+     * @param request   Sends the request and returns its status, {@code 0} if no response has been received,
+     *                  or {@code -1} if nothing has been sent
+     */
+    record Scenario(String endpoint, int weight, Request request) {}
+
+    interface Request {
+        int send() throws Exception;
+    }
+
+    private final List<Scenario> scenarios;
+    private final int totalWeight;
+
+    LoadGenerator(List<Scenario> scenarios) {
+        this.scenarios = scenarios;
+        this.totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+    }
+
+    /**
+     * Sends requests until the warmup and the duration have passed
+     *
+     * @param threads   The number of threads sending requests
+     * @param warmup    The time before requests are recorded
+     * @param duration  The time requests are recorded
+     * @param report    The report to record the requests in
+     */
+    void run(int threads, Duration warmup, Duration duration, LatencyReport report) throws InterruptedException {
+        long recordFrom = System.nanoTime() + warmup.toNanos();
+        long end = recordFrom + duration.toNanos();
+
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    Scenario scenario = pick();
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = scenario.request().send();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        status = 0;
+                    }
+                    if (status >= 0 && start >= recordFrom) {
+                        report.record(scenario.endpoint(), status, System.nanoTime() - start);
+                    }
+                }
+            }, "load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private Scenario pick() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            value -= scenario.weight();
+            if (value < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+}
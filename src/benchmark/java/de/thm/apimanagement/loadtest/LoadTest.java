@@ -0,0 +1,216 @@
+package de.thm.apimanagement.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.thm.apimanagement.ApimanagementApplication;
+import de.thm.apimanagement.entity.SampleSpecs;
+import de.thm.apimanagement.loadtest.LoadGenerator.Scenario;
+import de.thm.apimanagement.loadtest.StandInServer.Faults;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end load test of this service. Starts stand-ins for the subservices, Keycloak and an external API,
+ * starts the service against them with an in-memory database and sends a mix of requests from multiple threads.
+ * Throughput and latency percentiles are printed per endpoint and status class and written as JSON.
+ * <p>
+ * Options are passed as {@code key=value} arguments:
+ * <ul>
+ *     <li>{@code threads}, {@code warmup}, {@code duration}: the load, e.g. {@code threads=32 duration=60s}</li>
+ *     <li>{@code seed-apis}: the number of APIs created before the load starts</li>
+ *     <li>{@code spec-paths}: the number of paths in the specification of every created API</li>
+ *     <li>{@code <stand-in>.latency}, {@code <stand-in>.jitter}, {@code <stand-in>.failure-rate}: faults injected
+ *     into {@code user-management}, {@code mcp-management}, {@code spec2tool} or {@code upstream}.
+ *     Failures make sagas roll back, which shows up as {@code 5xx} of the writing endpoints.</li>
+ *     <li>{@code result}: the file the report is written to</li>
+ *     <li>{@code log-level}: the log level of this service</li>
+ * </ul>
+ */
+public final class LoadTest {
+    private static final String USER = "load-test";
+
+    private final Map<String, String> options;
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<Integer> seededIds = Collections.synchronizedList(new ArrayList<>());
+    private final Deque<Integer> createdIds = new ConcurrentLinkedDeque<>();
+    private final AtomicLong specCounter = new AtomicLong();
+    private String baseUrl;
+    private String upstreamUrl;
+    private String token;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            for (String option : arg.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator > 0) {
+                    options.put(option.substring(0, separator), option.substring(separator + 1));
+                }
+            }
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        List<StandInServer> standIns = List.of(
+                SubserviceStandIns.userManagement().start(),
+                SubserviceStandIns.mcpManagement().start(),
+                SubserviceStandIns.spec2Tool().start(),
+                SubserviceStandIns.upstream().start());
+        Map<String, StandInServer> byName = new HashMap<>();
+        standIns.forEach(standIn -> byName.put(standIn.name(), standIn));
+        upstreamUrl = byName.get("upstream").url();
+
+        try (JwtIssuer issuer = new JwtIssuer();
+             ConfigurableApplicationContext app = startService(byName, issuer)) {
+            baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            token = issuer.issue(USER, Duration.ofHours(12));
+
+            // Seed without faults, so every scenario has APIs to work with
+            int seedApis = intOption("seed-apis", 100);
+            for (int i = 0; i < seedApis; i++) {
+                HttpResponse<String> response = send("POST", "/apis?user=" + USER, newApi());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Could not create an API: " + response.statusCode() + " " + response.body());
+                }
+                seededIds.add(id(response));
+            }
+            standIns.forEach(standIn -> standIn.faults(faults(standIn.name())));
+
+            int threads = intOption("threads", 16);
+            Duration warmup = durationOption("warmup", "10s");
+            Duration duration = durationOption("duration", "30s");
+            System.out.printf("Sending requests from %d threads for %s after a warmup of %s%n", threads, duration, warmup);
+
+            LatencyReport report = new LatencyReport();
+            new LoadGenerator(scenarios()).run(threads, warmup, duration, report);
+
+            report.print(duration, System.out);
+            Path result = Path.of(options.getOrDefault("result", "target/loadtest-result.json"));
+            report.write(duration, result);
+            System.out.printf("%nReport written to %s%n", result.toAbsolutePath());
+        } finally {
+            standIns.forEach(StandInServer::close);
+        }
+    }
+
+    private List<Scenario> scenarios() {
+        return List.of(
+                new Scenario("GET /apis", 15, () -> send("GET", "/apis?user=" + USER, null).statusCode()),
+                new Scenario("GET /apis/{id}", 20, () -> send("GET", "/apis/" + seededId() + "?user=" + USER, null).statusCode()),
+                new Scenario("POST /apis/{id}/invoke", 40, () -> send("POST", "/apis/" + seededId() + "/invoke?user=" + USER,
+                        invokeQuery()).statusCode()),
+                new Scenario("POST /apis/invoke/batch", 5, () -> send("POST", "/apis/invoke/batch?user=" + USER,
+                        IntStream.range(0, 5).mapToObj(i -> Map.of("apiId", seededId(), "query", invokeQuery())).toList())
+                        .statusCode()),
+                new Scenario("POST /apis", 10, () -> {
+                    HttpResponse<String> response = send("POST", "/apis?user=" + USER, newApi());
+                    if (response.statusCode() == 200) {
+                        createdIds.add(id(response));
+                    }
+                    return response.statusCode();
+                }),
+                new Scenario("PUT /apis/{id}", 8, () -> send("PUT", "/apis/" + seededId() + "?user=" + USER, newApi()).statusCode()),
+                new Scenario("DELETE /apis/{id}", 7, () -> {
+                    Integer id = createdIds.poll();
+                    return id != null ? send("DELETE", "/apis/" + id + "?user=" + USER, null).statusCode() : -1;
+                }));
+    }
+
+    private ConfigurableApplicationContext startService(Map<String, StandInServer> standIns, JwtIssuer issuer) {
+        String logLevel = options.getOrDefault("log-level", "off");
+        return new SpringApplicationBuilder(ApimanagementApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MariaDB;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--tool-registration.async.enabled=false",
+                "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + issuer.jwkSetUri(),
+                "--spring.subservices.user-management.url=" + standIns.get("user-management").url(),
+                "--spring.subservices.mcp-management.url=" + standIns.get("mcp-management").url(),
+                "--spring.subservices.spec2tool.url=" + standIns.get("spec2tool").url(),
+                "--logging.level.de.thm.apimanagement=" + logLevel,
+                "--logging.level.org.hibernate.sql=" + logLevel);
+    }
+
+    /**
+     * Creates an API with a specification no other API has, so neither the blob store nor the
+     * conversion cache can skip the work of creating it
+     */
+    private Map<String, Object> newApi() {
+        long n = specCounter.incrementAndGet();
+        Map<String, Object> spec = SampleSpecs.openApi(intOption("spec-paths", 10));
+        spec.put("x-load-test", n);
+
+        Map<String, Object> api = new HashMap<>();
+        api.put("name", "load-test-" + n);
+        api.put("description", "Created by the load test");
+        api.put("version", "1.0.0");
+        api.put("format", "openapi");
+        api.put("token", "upstream-token");
+        api.put("spec", spec);
+        return api;
+    }
+
+    private Map<String, Object> invokeQuery() {
+        return Map.of("requestType", "GET",
+                "requestPath", upstreamUrl + "/items/{id}",
+                "pathParam", Map.of("id", String.valueOf(ThreadLocalRandom.current().nextInt(1000))));
+    }
+
+    private int seededId() {
+        return seededIds.get(ThreadLocalRandom.current().nextInt(seededIds.size()));
+    }
+
+    private static int id(HttpResponse<String> response) throws Exception {
+        JsonNode api = StandInServer.MAPPER.readTree(response.body());
+        return api.get("id").asInt();
+    }
+
+    private HttpResponse<String> send(String method, String path, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json");
+        request.method(method, body != null
+                ? HttpRequest.BodyPublishers.ofByteArray(StandInServer.MAPPER.writeValueAsBytes(body))
+                : HttpRequest.BodyPublishers.noBody());
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Faults faults(String standIn) {
+        return new Faults(
+                durationOption(standIn + ".latency", "0ms"),
+                durationOption(standIn + ".jitter", "0ms"),
+                Double.parseDouble(options.getOrDefault(standIn + ".failure-rate", "0")));
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    private Duration durationOption(String key, String defaultValue) {
+        return DurationStyle.detectAndParse(options.getOrDefault(key, defaultValue));
+    }
+}
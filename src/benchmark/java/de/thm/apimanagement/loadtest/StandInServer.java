@@ -0,0 +1,173 @@
+package de.thm.apimanagement.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal HTTP server standing in for a subservice or an external API. Every request is delayed
+ * by the configured latency and fails with {@code 503} at the configured rate before it is routed.
+ */
+class StandInServer implements AutoCloseable {
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Latency and failures injected into every request
+     *
+     * @param latency       Fixed delay of every request
+     * @param jitter        Upper bound of an additional random delay
+     * @param failureRate   Share of requests answered with {@code 503}, between 0 and 1
+     */
+    record Faults(Duration latency, Duration jitter, double failureRate) {
+        static final Faults NONE = new Faults(Duration.ZERO, Duration.ZERO, 0);
+    }
+
+    record Request(String method, List<String> pathVariables, String query, byte[] body) {
+        <T> T body(Class<T> type) throws IOException {
+            return MAPPER.readValue(body, type);
+        }
+    }
+
+    record Response(int status, byte[] body) {
+        static Response json(Object body) throws IOException {
+            return new Response(200, MAPPER.writeValueAsBytes(body));
+        }
+
+        static Response text(String body) {
+            return new Response(200, body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Response empty(int status) {
+            return new Response(status, new byte[0]);
+        }
+    }
+
+    interface Handler {
+        Response handle(Request request) throws IOException;
+    }
+
+    private record Route(String method, Pattern path, Handler handler) {}
+
+    private final String name;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Route> routes = new ArrayList<>();
+    private volatile Faults faults = Faults.NONE;
+
+    StandInServer(String name) throws IOException {
+        this.name = name;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Adds a route. The path is a regular expression, path variables are written as {@code {name}}
+     * and passed to the handler in order.
+     */
+    StandInServer route(String method, String path, Handler handler) {
+        String regex = path.replaceAll("\\{[^/]+}", "([^/]+)");
+        routes.add(new Route(method, Pattern.compile(regex), handler));
+        return this;
+    }
+
+    StandInServer faults(Faults faults) {
+        this.faults = faults;
+        return this;
+    }
+
+    StandInServer start() {
+        server.start();
+        return this;
+    }
+
+    String name() {
+        return name;
+    }
+
+    String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+
+            Faults current = faults;
+            delay(current);
+            if (ThreadLocalRandom.current().nextDouble() < current.failureRate()) {
+                send(exchange, new Response(503, ("Injected failure of " + name).getBytes(StandardCharsets.UTF_8)));
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            for (Route route : routes) {
+                Matcher matcher = route.path().matcher(path);
+                if (route.method().equals(method) && matcher.matches()) {
+                    List<String> variables = new ArrayList<>();
+                    for (int i = 1; i <= matcher.groupCount(); i++) {
+                        variables.add(matcher.group(i));
+                    }
+                    send(exchange, route.handler().handle(
+                            new Request(method, variables, exchange.getRequestURI().getQuery(), body)));
+                    return;
+                }
+            }
+            send(exchange, Response.empty(404));
+
+        } catch (IOException | RuntimeException e) {
+            send(exchange, new Response(500, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static void delay(Faults faults) {
+        long nanos = faults.latency().toNanos();
+        if (!faults.jitter().isZero()) {
+            nanos += ThreadLocalRandom.current().nextLong(faults.jitter().toNanos());
+        }
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (response.body().length == 0) {
+            exchange.sendResponseHeaders(response.status(), -1);
+            return;
+        }
+        exchange.sendResponseHeaders(response.status(), response.body().length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response.body());
+        }
+    }
+}
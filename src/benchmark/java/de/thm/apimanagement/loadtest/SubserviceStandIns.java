@@ -0,0 +1,105 @@
+package de.thm.apimanagement.loadtest;
+
+import de.thm.apimanagement.entity.ApiWithActive;
+import de.thm.apimanagement.entity.Tool;
+import de.thm.apimanagement.entity.ToolDefinition;
+import de.thm.apimanagement.loadtest.StandInServer.Response;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-ins for the subservices configured in {@code spring.subservices} and for an external API.
+ * They implement the endpoints used by the clients of this service and keep their state in memory,
+ * so entitlements and tools written by one request are seen by the next.
+ */
+final class SubserviceStandIns {
+
+    private SubserviceStandIns() {}
+
+    /**
+     * Stands in for {@code user-management}: the APIs of users and groups
+     */
+    static StandInServer userManagement() throws IOException {
+        Map<String, Map<Integer, Boolean>> apis = new ConcurrentHashMap<>();
+        StandInServer server = new StandInServer("user-management");
+        for (String owner : List.of("users", "groups")) {
+            server.route("GET", "/" + owner + "/{name}/apis", request -> Response.json(
+                            apis.getOrDefault(owner + "/" + request.pathVariables().get(0), Map.of()).entrySet().stream()
+                                    .map(e -> new ApiWithActive(e.getKey(), e.getValue()))
+                                    .toList()))
+                    .route("POST", "/" + owner + "/{name}/apis", request -> {
+                        // ApiWithActive can not be deserialized, it has no default constructor
+                        Map<?, ?> api = request.body(Map.class);
+                        apis.computeIfAbsent(owner + "/" + request.pathVariables().get(0), k -> new ConcurrentHashMap<>())
+                                .put(((Number) api.get("apiId")).intValue(), Boolean.TRUE.equals(api.get("active")));
+                        return Response.empty(201);
+                    })
+                    .route("DELETE", "/" + owner + "/{name}/apis/{apiId}", request -> {
+                        Map<Integer, Boolean> owned = apis.get(owner + "/" + request.pathVariables().get(0));
+                        if (owned == null || owned.remove(Integer.parseInt(request.pathVariables().get(1))) == null) {
+                            return Response.empty(404);
+                        }
+                        return Response.empty(204);
+                    });
+        }
+        return server;
+    }
+
+    /**
+     * Stands in for {@code mcp-management}: the tool definitions of APIs
+     */
+    static StandInServer mcpManagement() throws IOException {
+        Map<String, ToolDefinition> toolsets = new ConcurrentHashMap<>();
+        return new StandInServer("mcp-management")
+                .route("GET", "/toolsets/{id}", request -> {
+                    ToolDefinition definition = toolsets.get(request.pathVariables().get(0));
+                    return definition != null ? Response.json(definition) : Response.empty(404);
+                })
+                .route("PUT", "/toolsets/{id}", request -> {
+                    toolsets.put(request.pathVariables().get(0), request.body(ToolDefinition.class));
+                    return Response.empty(200);
+                })
+                .route("DELETE", "/toolsets/{id}", request -> toolsets.remove(request.pathVariables().get(0)) != null
+                        ? Response.empty(204)
+                        : Response.empty(404));
+    }
+
+    /**
+     * Stands in for {@code spec2tool}: converts every path of a specification into a tool
+     */
+    @SuppressWarnings("unchecked")
+    static StandInServer spec2Tool() throws IOException {
+        return new StandInServer("spec2tool")
+                .route("POST", "/convert", request -> {
+                    Map<String, Object> body = request.body(Map.class);
+                    Map<String, Object> spec = (Map<String, Object>) Objects.requireNonNullElse(body.get("spec"), Map.of());
+                    Map<String, Object> paths = (Map<String, Object>) Objects.requireNonNullElse(spec.get("paths"), Map.of());
+
+                    ToolDefinition definition = new ToolDefinition();
+                    definition.setName("load-test");
+                    definition.setDescription("Converted by the spec2tool stand-in");
+                    definition.setTools(paths.keySet().stream().map(path -> {
+                        Tool tool = new Tool();
+                        tool.setName(path);
+                        tool.setDescription("GET " + path);
+                        tool.setRequestMethod("GET");
+                        tool.setEndpoint(path);
+                        tool.setInputSchema(Map.of("type", "object"));
+                        return tool;
+                    }).toList());
+                    return Response.json(definition);
+                });
+    }
+
+    /**
+     * Stands in for an external API which is invoked through this service. Answers every GET with a small document.
+     */
+    static StandInServer upstream() throws IOException {
+        return new StandInServer("upstream")
+                .route("GET", "/.*", request -> Response.json(Map.of("status", "ok", "items", List.of(1, 2, 3))));
+    }
+}
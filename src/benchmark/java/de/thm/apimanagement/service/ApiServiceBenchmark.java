@@ -0,0 +1,99 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiPage;
+import de.thm.apimanagement.entity.ApiPageRequest;
+import de.thm.apimanagement.entity.InvokeQuery;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.entity.RequestType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ApiServiceImpl} against in-process stubs of the database and the subservices,
+ * see {@link ApiServiceFixture}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiServiceBenchmark {
+    private static final int TOTAL_APIS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class ApiList {
+        @Param({"10", "100", "1000"})
+        public int entitledApis;
+
+        /**
+         * The limit of the page, {@code none} for every API on one page
+         */
+        @Param({"none", "100"})
+        public String limit;
+
+        /**
+         * The selected fields, {@code all} for whole APIs
+         */
+        @Param({"all", "summary"})
+        public String fields;
+
+        ApiServiceFixture fixture;
+        ApiPageRequest request;
+
+        @Setup
+        public void setup() {
+            fixture = new ApiServiceFixture(TOTAL_APIS, entitledApis, false);
+            request = new ApiPageRequest(
+                    "none".equals(limit) ? null : Integer.valueOf(limit),
+                    null,
+                    null,
+                    "all".equals(fields) ? null : fields);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Invoke {
+        @Param({"false", "true"})
+        public boolean responseCache;
+
+        ApiServiceFixture fixture;
+        InvokeQuery query;
+
+        @Setup
+        public void setup() {
+            fixture = new ApiServiceFixture(TOTAL_APIS, 100, responseCache);
+
+            query = new InvokeQuery();
+            query.setRequestType(RequestType.GET);
+            query.setRequestPath("https://api.example.com/v1/items/{id}");
+            query.setPathParam(Map.of("id", "42"));
+            query.setRequestParam(Map.of("expand", "details"));
+            query.setHeader(Map.of("Accept", "application/json"));
+        }
+    }
+
+    /**
+     * Gets the entitlements, reads the sort keys of the first page and loads its APIs chunk by chunk,
+     * resolving the specifications unless only summaries are selected
+     */
+    @Benchmark
+    public void fetchApiPage(ApiList state, Blackhole blackhole) {
+        ApiPage page = state.fixture.service.fetchApiPage(ApiServiceFixture.USER, null, state.request);
+        for (Api api : page.apis()) {
+            blackhole.consume(api);
+        }
+        blackhole.consume(page.nextCursor());
+    }
+
+    /**
+     * Checks the entitlement, acquires a permit and invokes the stubbed external API
+     */
+    @Benchmark
+    public InvokeResult invoke(Invoke state) {
+        return state.fixture.service.invoke(1, ApiServiceFixture.USER, null, state.query);
+    }
+}
@@ -0,0 +1,210 @@
+package de.thm.apimanagement.service;
+
+import ch.qos.logback.classic.Level;
+import de.thm.apimanagement.client.EntitlementCache;
+import de.thm.apimanagement.client.ExternalApiClient;
+import de.thm.apimanagement.client.InvokeResponseCache;
+import de.thm.apimanagement.client.SubserviceResilienceRegistry;
+import de.thm.apimanagement.client.UserManagementClient;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiSortKey;
+import de.thm.apimanagement.entity.ApiSummary;
+import de.thm.apimanagement.entity.ApiWithActive;
+import de.thm.apimanagement.entity.SampleSpecs;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.repository.SpecBlobRepository;
+import de.thm.apimanagement.security.TokenProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClient;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Wires an {@link ApiServiceImpl} with in-process stubs instead of the database and the subservices,
+ * so a benchmark only measures the code of this service. Specifications, entitlements and routes
+ * are served from warm caches, as they are for most requests in production.
+ */
+final class ApiServiceFixture {
+    static final String USER = "benchmark-user";
+
+    final ApiServiceImpl service;
+
+    /**
+     * @param totalApis     The number of APIs in the repository
+     * @param entitledApis  The number of APIs the user has access to, spread over all APIs
+     * @param responseCache Whether responses of invoked APIs may be cached
+     */
+    ApiServiceFixture(int totalApis, int entitledApis, boolean responseCache) {
+        // Logging every request would dominate the measurements
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SpecBlobStore specBlobStore = new SpecBlobStore(stubSpecBlobRepository(), meterRegistry, 200);
+        String specHash = specBlobStore.acquire(SampleSpecs.openApi(10));
+
+        Map<Integer, Api> apis = new HashMap<>();
+        for (int id = 1; id <= totalApis; id++) {
+            apis.put(id, Api.builder()
+                    .id(id)
+                    .name("api-" + id)
+                    .description("Benchmark api " + id)
+                    .version("1.0.0")
+                    .format("openapi")
+                    .token("token-" + id)
+                    .specHash(specHash)
+                    .build());
+        }
+        ApiRepository apiRepository = stubApiRepository(apis);
+
+        int step = Math.max(1, totalApis / entitledApis);
+        ApiWithActive[] entitled = IntStream.range(0, entitledApis)
+                .mapToObj(i -> new ApiWithActive(1 + i * step, true))
+                .toArray(ApiWithActive[]::new);
+
+        InvokeRouteTable invokeRouteTable = new InvokeRouteTable(apiRepository, meterRegistry, Duration.ofMinutes(10), totalApis);
+        apis.values().forEach(invokeRouteTable::put);
+
+        ExternalApiClient externalApiClient = new ExternalApiClient(
+                stubExternalApi(),
+                new InvokeResponseCache(meterRegistry, responseCache, DataSize.ofMegabytes(64), DataSize.ofMegabytes(1), false,
+                        List.of("authorization", "cookie")),
+                meterRegistry,
+                8192,
+                10000);
+
+        service = new ApiServiceImpl(apiRepository);
+        ReflectionTestUtils.setField(service, "userManagementClient", new StubUserManagementClient(entitled, meterRegistry));
+        ReflectionTestUtils.setField(service, "externalApiClient", externalApiClient);
+        ReflectionTestUtils.setField(service, "invokeLimiter", new InvokeLimiter(meterRegistry, 0, 0, 0, 0, 0, 0));
+        ReflectionTestUtils.setField(service, "invokeRouteTable", invokeRouteTable);
+        ReflectionTestUtils.setField(service, "specBlobStore", specBlobStore);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "maxPageSize", 1000);
+        ReflectionTestUtils.setField(service, "listChunkSize", 100);
+    }
+
+    /**
+     * Serves the APIs from a map. Every query returns copies, like entities freshly loaded from the database.
+     */
+    @SuppressWarnings("unchecked")
+    private static ApiRepository stubApiRepository(Map<Integer, Api> apis) {
+        return (ApiRepository) Proxy.newProxyInstance(ApiRepository.class.getClassLoader(), new Class<?>[]{ApiRepository.class},
+                (proxy, method, args) -> {
+                    if (method.isDefault()) {
+                        return InvocationHandler.invokeDefault(proxy, method, args);
+                    }
+                    return switch (method.getName()) {
+                        case "findByIdInOrderByIdAsc" -> ((Collection<Integer>) args[0]).stream()
+                                .sorted()
+                                .map(apis::get)
+                                .filter(Objects::nonNull)
+                                .map(Api::new)
+                                .toList();
+                        case "findSummariesByIdInOrderByIdAsc" -> ((Collection<Integer>) args[0]).stream()
+                                .sorted()
+                                .map(apis::get)
+                                .filter(Objects::nonNull)
+                                .map(Summary::new)
+                                .toList();
+                        case "findSortKeysOrderedById" -> ((Collection<Integer>) args[0]).stream()
+                                .filter(id -> id > (Integer) args[1] && apis.containsKey(id))
+                                .sorted()
+                                .limit(((Limit) args[2]).isLimited() ? ((Limit) args[2]).max() : Long.MAX_VALUE)
+                                .map(id -> new Summary(apis.get(id)))
+                                .toList();
+                        case "findById" -> Optional.ofNullable(apis.get((Integer) args[0])).map(Api::new);
+                        case "existsById" -> apis.containsKey((Integer) args[0]);
+                        case "toString" -> "StubApiRepository";
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+
+    /**
+     * The projections of an {@link Api} as the repository returns them
+     */
+    private record Summary(int getId, String getName, String getDescription, String getVersion, String getFormat)
+            implements ApiSummary, ApiSortKey {
+        Summary(Api api) {
+            this(api.getId(), api.getName(), api.getDescription(), api.getVersion(), api.getFormat());
+        }
+    }
+
+    /**
+     * Knows every specification, so the {@link SpecBlobStore} only serves specifications from its cache
+     */
+    private static SpecBlobRepository stubSpecBlobRepository() {
+        return (SpecBlobRepository) Proxy.newProxyInstance(SpecBlobRepository.class.getClassLoader(), new Class<?>[]{SpecBlobRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "incrementRefCount" -> 1;
+                    case "findAllById" -> List.of();
+                    case "findById" -> Optional.empty();
+                    case "toString" -> "StubSpecBlobRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Answers every request with a small JSON document which may be cached for a minute
+     */
+    private static ClientHttpRequestFactory stubExternalApi() {
+        byte[] body = "{\"status\":\"ok\",\"items\":[1,2,3]}".getBytes(StandardCharsets.UTF_8);
+        return (uri, method) -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setCacheControl("max-age=60");
+
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(response);
+            return request;
+        };
+    }
+
+    /**
+     * Answers entitlement lookups without calling the UserManagement subsystem
+     */
+    private static class StubUserManagementClient extends UserManagementClient {
+        private final ApiWithActive[] entitled;
+
+        StubUserManagementClient(ApiWithActive[] entitled, MeterRegistry meterRegistry) {
+            super(new TokenProvider(),
+                    new EntitlementCache(Duration.ofSeconds(30), 1000, meterRegistry),
+                    meterRegistry,
+                    new SubserviceResilienceRegistry(new StandardEnvironment(), meterRegistry),
+                    RestClient.builder(),
+                    "http://localhost");
+            this.entitled = entitled;
+        }
+
+        @Override
+        public ApiWithActive[] getApisOfUser(String user) {
+            return entitled;
+        }
+
+        @Override
+        public ApiWithActive[] getApisOfGroup(String group) {
+            return entitled;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.thm.apimanagement.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+/**
+ * CachingDnsResolver caches the addresses of resolved hosts for a fixed time, so opening new connections
+ * to the same external API does not resolve its host again every time.
+ * Hits and misses are exposed as {@code cache.*} metrics with {@code cache=external-api-dns}.
+ */
+public class CachingDnsResolver implements DnsResolver {
+    private final DnsResolver delegate;
+    private final Cache<String, InetAddress[]> cache;
+
+    public CachingDnsResolver(Duration ttl, long maxSize, MeterRegistry meterRegistry) {
+        this(SystemDefaultDnsResolver.INSTANCE, ttl, maxSize, meterRegistry);
+    }
+
+    CachingDnsResolver(DnsResolver delegate, Duration ttl, long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "external-api-dns");
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        InetAddress[] addresses = cache.getIfPresent(host);
+        if (addresses == null) {
+            // Failed lookups are not cached, so a host which comes up is usable right away
+            addresses = delegate.resolve(host);
+            cache.put(host, addresses);
+        }
+        return addresses.clone();
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        return delegate.resolveCanonicalHostname(host);
+    }
+}
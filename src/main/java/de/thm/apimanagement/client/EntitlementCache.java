@@ -0,0 +1,160 @@
+package de.thm.apimanagement.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.entity.ApiWithActive;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * EntitlementCache holds the APIs of users and groups as returned by the UserManagement subsystem.
+ * Entries are scoped to the caller, so an entry loaded with the token of one caller is never
+ * served to another one. Entries expire after a configurable TTL and the cache is bounded in size.
+ * Writes done through the {@link UserManagementClient} are applied to the cached entries of every caller in place.
+ * Hit, miss and eviction counts are exposed as {@code cache.*} metrics with {@code cache=entitlements}.
+ */
+@Component
+public class EntitlementCache {
+    private static final String USER = "user";
+    private static final String GROUP = "group";
+
+    private final Cache<Key, ApiWithActive[]> cache;
+    private final AtomicLong writeEpoch = new AtomicLong();
+
+    public EntitlementCache(
+            @Value("${spring.subservices.user-management.entitlement-cache.ttl:30s}") Duration ttl,
+            @Value("${spring.subservices.user-management.entitlement-cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "entitlements");
+    }
+
+    /**
+     * Gets the APIs of a user, calling {@code loader} on a cache miss
+     *
+     * @param caller    The subject of the token the request is made with
+     * @param user      The user to get the APIs of
+     * @param loader    Fetches the APIs of the user from UserManagement
+     * @return          The APIs of the user
+     */
+    public ApiWithActive[] getApisOfUser(String caller, String user, Function<String, ApiWithActive[]> loader) {
+        return get(new Key(caller, USER, user), loader);
+    }
+
+    /**
+     * Gets the APIs of a group, calling {@code loader} on a cache miss
+     *
+     * @param caller    The subject of the token the request is made with
+     * @param group     The group to get the APIs of
+     * @param loader    Fetches the APIs of the group from UserManagement
+     * @return          The APIs of the group
+     */
+    public ApiWithActive[] getApisOfGroup(String caller, String group, Function<String, ApiWithActive[]> loader) {
+        return get(new Key(caller, GROUP, group), loader);
+    }
+
+    public void addApiToUser(String user, ApiWithActive apiWithActive) {
+        forEachKey(USER, user, key -> add(key, apiWithActive));
+    }
+
+    public void addApiToGroup(String group, ApiWithActive apiWithActive) {
+        forEachKey(GROUP, group, key -> add(key, apiWithActive));
+    }
+
+    public void removeApiFromUser(String user, int apiId) {
+        forEachKey(USER, user, key -> remove(key, apiId));
+    }
+
+    public void removeApiFromGroup(String group, int apiId) {
+        forEachKey(GROUP, group, key -> remove(key, apiId));
+    }
+
+    public void invalidateUser(String user) {
+        forEachKey(USER, user, cache::invalidate);
+    }
+
+    public void invalidateGroup(String group) {
+        forEachKey(GROUP, group, cache::invalidate);
+    }
+
+    private ApiWithActive[] get(Key key, Function<String, ApiWithActive[]> loader) {
+        ApiWithActive[] apis = cache.getIfPresent(key);
+        if (apis == null) {
+            // The loader is called outside the cache, so concurrent misses can be coalesced by the loader.
+            // A result is only cached if no write happened while it was loaded, as it might be stale otherwise.
+            long epoch = writeEpoch.get();
+            apis = loader.apply(key.name());
+            if (apis != null && writeEpoch.get() == epoch) {
+                ApiWithActive[] loaded = apis;
+                cache.asMap().putIfAbsent(key, loaded);
+                // A write which started between the check and the put has not seen the entry, drop it again
+                if (writeEpoch.get() != epoch) {
+                    cache.asMap().remove(key, loaded);
+                }
+            }
+        }
+
+        // Hand out copies, so callers can not modify the cached entry or its elements
+        return apis != null ? copy(apis) : null;
+    }
+
+    private static ApiWithActive[] copy(ApiWithActive[] apis) {
+        ApiWithActive[] copy = new ApiWithActive[apis.length];
+        for (int i = 0; i < apis.length; i++) {
+            copy[i] = new ApiWithActive(apis[i].getApiId(), apis[i].isActive());
+        }
+        return copy;
+    }
+
+    /**
+     * Calls {@code action} for the cached entries of every caller for a user or group.
+     * Writes are rare compared to reads, so scanning the keys is fine here.
+     */
+    private void forEachKey(String kind, String name, Consumer<Key> action) {
+        writeEpoch.incrementAndGet();
+        cache.asMap().keySet().stream()
+                .filter(key -> key.kind().equals(kind) && key.name().equals(name))
+                .toList()
+                .forEach(action);
+    }
+
+    /**
+     * Replaces the cached entry with a copy that contains {@code apiWithActive}.
+     * Nothing happens when the key is not cached, the next read will load it.
+     */
+    private void add(Key key, ApiWithActive apiWithActive) {
+        cache.asMap().computeIfPresent(key, (k, apis) -> {
+            List<ApiWithActive> updated = new ArrayList<>(apis.length + 1);
+            for (ApiWithActive a : apis) {
+                if (a.getApiId() != apiWithActive.getApiId()) updated.add(a);
+            }
+            updated.add(new ApiWithActive(apiWithActive.getApiId(), apiWithActive.isActive()));
+            return updated.toArray(ApiWithActive[]::new);
+        });
+    }
+
+    /**
+     * Replaces the cached entry with a copy that does not contain {@code apiId}
+     */
+    private void remove(Key key, int apiId) {
+        cache.asMap().computeIfPresent(key, (k, apis) -> Arrays.stream(apis)
+                .filter(a -> a.getApiId() != apiId)
+                .toArray(ApiWithActive[]::new));
+    }
+
+    private record Key(String caller, String kind, String name) {}
+}
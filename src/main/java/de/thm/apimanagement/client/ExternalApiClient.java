@@ -1,32 +1,80 @@
 package de.thm.apimanagement.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import de.thm.apimanagement.entity.InvokeQuery;
 import de.thm.apimanagement.entity.InvokeResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
- * ExternalApiClient is responsible for communicating with external APIs
+ * ExternalApiClient is responsible for communicating with external APIs.
+ * Requests are sent with the pooled transport configured in
+ * {@link de.thm.apimanagement.config.ExternalApiTransportConfig}.
+ * Request paths are parsed into {@link PathTemplate}s once and kept in a bounded cache, which is exposed as
+ * {@code cache.*} metrics with {@code cache=path-templates}.
  *
  * @author Justin Wolek
  */
 @Component
 public class ExternalApiClient {
+    // Headers which only apply to a single connection and must not be forwarded by a proxy (RFC 9110, 7.6.1)
+    static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization",
+            "te", "trailer", "transfer-encoding", "upgrade");
+
     private final Logger logger = LoggerFactory.getLogger(ExternalApiClient.class);
     private final RestClient client;
+    private final InvokeResponseCache responseCache;
+    private final int proxyBufferSize;
+    private final Cache<String, PathTemplate> pathTemplates;
+
+    public ExternalApiClient(
+            @Qualifier("externalApiRequestFactory") ClientHttpRequestFactory requestFactory,
+            InvokeResponseCache responseCache,
+            MeterRegistry meterRegistry,
+            @Value("${external-api.proxy.buffer-size:8192}") int proxyBufferSize,
+            @Value("${external-api.path-templates.max-size:10000}") long pathTemplatesMaxSize) {
+        this.client = RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
+        this.responseCache = responseCache;
+        this.proxyBufferSize = proxyBufferSize;
+        this.pathTemplates = pathTemplateCache(pathTemplatesMaxSize);
+        CaffeineCacheMetrics.monitor(meterRegistry, pathTemplates, "path-templates");
+    }
 
-    public ExternalApiClient() {
-        this.client = RestClient.create();
+    /**
+     * Creates the cache of parsed request paths, keyed by the request path
+     *
+     * @param maxSize   The maximum number of request paths to keep
+     * @return          The cache
+     */
+    static Cache<String, PathTemplate> pathTemplateCache(long maxSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
     }
 
     /**
@@ -37,61 +85,109 @@ public class ExternalApiClient {
      * @return      The result of the external API call wrapped inside a {@link InvokeResult}
      */
     public InvokeResult invoke(String token, InvokeQuery query) {
-        ResponseEntity<String> response = sendRequest(token, query);
+        ResponseEntity<String> response = sendRequest(token, query, new HttpHeaders());
         return new InvokeResult(
                 response.getStatusCode().value(),
                 response.getHeaders().asSingleValueMap(),
                 response.getBody());
     }
 
+    /**
+     * Same as {@link #invoke(String, InvokeQuery)}, but GET requests are served from the {@link InvokeResponseCache}
+     * when the external API allows it
+     *
+     * @param apiId The id of the API which is invoked
+     * @param token A token which can be used as a bearer token when requesting
+     * @param query The {@link InvokeQuery} to execute
+     * @return      The result of the external API call wrapped inside a {@link InvokeResult}
+     */
+    public InvokeResult invoke(int apiId, String token, InvokeQuery query) {
+        return responseCache.invoke(apiId, query, conditionalHeaders -> sendRequest(token, query, conditionalHeaders));
+    }
+
+    /**
+     * Takes a {@link InvokeQuery}, calls the API with the query and streams the response as is to {@code target}.
+     * Status, headers and body are copied without buffering the body as a whole, so binary and large
+     * payloads are passed through unchanged.
+     *
+     * @param token     A token which can be used as a bearer token when requesting
+     * @param query     The {@link InvokeQuery} to execute
+     * @param target    The response to write the response of the external API to
+     */
+    public void proxy(String token, InvokeQuery query, HttpServletResponse target) {
+        prepareRequest(token, query, new HttpHeaders()).exchange((request, response) -> {
+            target.setStatus(response.getStatusCode().value());
+            response.getHeaders().forEach((name, values) -> {
+                if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    values.forEach(value -> target.addHeader(name, value));
+                }
+            });
+
+            try (InputStream body = response.getBody()) {
+                OutputStream out = target.getOutputStream();
+                byte[] buffer = new byte[proxyBufferSize];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                out.flush();
+            }
+            return null;
+        });
+    }
+
     /**
      * Formats a URL to include defined pathParameters and requestParameters
      *
      * @param requestPath       A raw URL containing no requestParameters. pathParameters should be designated
-     *                          with {@code <>}. These placeholders will be replaced by values
+     *                          with {@code {}}. These placeholders will be replaced by values
      *                          inside {@code pathParameter}.
-     * @param pathParameter     contains the values to replace {@code <>} inside {@code requestPath} with.
+     * @param pathParameter     contains the values to replace {@code {}} inside {@code requestPath} with.
      * @param requestParameter  contains a mapping of key-values to append to the URL. These represent f.e.
      *                          options for sorting {@code ?sortBy=date}. In this case, {@code sortBy} is the
      *                          key and {@code date} the value.
-     * @return                  A formatted URL path which contains all path- and request parameters.
+     * @return                  A formatted and percent-encoded URL which contains all path- and request parameters.
      */
-    private String formatPath(String requestPath, Map<String, String> pathParameter, Map<String, String> requestParameter) {
-        // Replace path parameter placeholders with actual values
-        for (Map.Entry<String, String> entry : pathParameter.entrySet()) {
-            requestPath = requestPath.replace("{" + entry.getKey() + "}", entry.getValue());
-        }
-
-        // URLEncoder makes handling spaces in requestParameters WAY easier.
-        // First concat the values of requestParameter and then join them with "&" as a separator
-        if (!requestParameter.isEmpty()) {
-            requestPath += "?" + requestParameter.entrySet().stream()
-                    .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" +
-                            URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
-                    .collect(Collectors.joining("&"));
-        }
-
-        return requestPath;
+    URI formatPath(String requestPath, Map<String, String> pathParameter, Map<String, String> requestParameter) {
+        return URI.create(pathTemplates.get(requestPath, PathTemplate::parse).expand(pathParameter, requestParameter));
     }
 
     /**
      * Uses a {@link InvokeQuery} to send an http request
      *
-     * @param query An {@link InvokeQuery} which will be used to send an http query.
-     * @param token When not empty, will be added as a Bearer token to the request headers
-     * @return      A {@link ResponseEntity<String>} which contains the response of the external http request
+     * @param query               An {@link InvokeQuery} which will be used to send an http query.
+     * @param token               When not empty, will be added as a Bearer token to the request headers
+     * @param additionalHeaders   Headers which are added to the headers of the query
+     * @return                    A {@link ResponseEntity<String>} which contains the response of the external http request
      */
-    private ResponseEntity<String> sendRequest(String token, InvokeQuery query) {
+    private ResponseEntity<String> sendRequest(String token, InvokeQuery query, HttpHeaders additionalHeaders) {
+        return prepareRequest(token, query, additionalHeaders)
+                .exchange((request, response) -> ResponseEntity
+                        .status(response.getStatusCode())
+                        .headers(response.getHeaders())
+                        .body(response.bodyTo(String.class)));
+    }
+
+    /**
+     * Uses a {@link InvokeQuery} to prepare an http request, which is sent once it is exchanged
+     *
+     * @param query               An {@link InvokeQuery} which will be used to send an http query.
+     * @param token               When not empty, will be added as a Bearer token to the request headers
+     * @param additionalHeaders   Headers which are added to the headers of the query
+     * @return                    A {@link RestClient.RequestBodySpec} of the request
+     */
+    private RestClient.RequestBodySpec prepareRequest(String token, InvokeQuery query, HttpHeaders additionalHeaders) {
         Map<String, String> pathParam = query.getPathParam() != null ? query.getPathParam() : Map.of();
         Map<String, String> requestParameter = query.getRequestParam() != null ? query.getRequestParam() : Map.of();
-        Map<String, String> headers = query.getHeader() != null ? query.getHeader() : Map.of();
+        Map<String, String> headers = query.getHeader() != null ? new HashMap<>(query.getHeader()) : new HashMap<>();
 
-        String formattedPath = formatPath(query.getRequestPath(), pathParam, requestParameter);
+        // Passed as URI, as it has been encoded already and must not be expanded and encoded again
+        URI formattedPath = formatPath(query.getRequestPath(), pathParam, requestParameter);
 
         // If the token has content, add it as a request header
         if (StringUtils.hasText(token)) {
             logger.info("Using bearer token: {}", token);
-            query.getHeader().put("Authorization", "Bearer " + token);
+            headers.put("Authorization", "Bearer " + token);
         }
 
         HttpMethod method = switch (query.getRequestType()) {
@@ -102,14 +198,15 @@ public class ExternalApiClient {
             case DELETE -> HttpMethod.DELETE;
         };
 
-
-        return client.method(method)
+        RestClient.RequestBodySpec request = client.method(method)
                 .uri(formattedPath)
-                .headers(httpHeaders -> headers.forEach(httpHeaders::add))
-                .body(query.getBody())
-                .exchange((request, response) -> ResponseEntity
-                        .status(response.getStatusCode())
-                        .headers(response.getHeaders())
-                        .body(response.bodyTo(String.class)));
+                .headers(httpHeaders -> {
+                    headers.forEach(httpHeaders::add);
+                    httpHeaders.addAll(additionalHeaders);
+                });
+        if (query.getBody() != null) {
+            request.body(query.getBody());
+        }
+        return request;
     }
 }
@@ -0,0 +1,411 @@
+package de.thm.apimanagement.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.entity.InvokeQuery;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.entity.RequestType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * InvokeResponseCache is a shared HTTP cache for GET invocations of external APIs, following the
+ * semantics of RFC 9111.
+ * <p>
+ * Responses are keyed by the id of the API, the request path and its normalized path and request parameters.
+ * Headers named in the {@code Vary} header of a response have to match as well. Freshness is taken from
+ * {@code s-maxage}, {@code max-age} or {@code Expires}. Stale responses with an {@code ETag} or
+ * {@code Last-Modified} header are revalidated with a conditional request. Responses marked with
+ * {@code no-store} or {@code private} are never stored, as the cache is shared by every caller of an API.
+ * For the same reason requests with credentials, e.g. {@code Authorization} or {@code Cookie}, bypass the cache,
+ * responses varying on credentials are not stored and {@code Set-Cookie} and hop-by-hop headers are never stored.
+ * <p>
+ * The cache is bounded by the total size of the stored bodies. Bodies are stored as strings, so a hit hands out
+ * the stored body without copying it. They can be stored off-heap in direct buffers instead, so large bodies do not
+ * have to be traced by the garbage collector, at the cost of decoding the body again on every hit.
+ */
+@Component
+public class InvokeResponseCache {
+    private static final Pattern S_MAXAGE = Pattern.compile("(?:^|,)\\s*s-maxage\\s*=\\s*\"?(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*max-age\\s*=\\s*\"?(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> CONDITIONAL_HEADERS = Set.of(
+            "if-none-match", "if-modified-since", "if-match", "if-unmodified-since", "if-range");
+    // Headers which only concern the caller the response has been sent to
+    private static final Set<String> UNSTORED_HEADERS = Set.of("set-cookie", "set-cookie2");
+
+    private final Cache<String, CachedResponse> cache;
+    private final boolean enabled;
+    private final boolean offHeap;
+    private final long maxEntrySize;
+    private final Set<String> credentialHeaders;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidations;
+    private final Counter bypasses;
+
+    @Autowired
+    public InvokeResponseCache(
+            MeterRegistry meterRegistry,
+            @Value("${external-api.response-cache.enabled:true}") boolean enabled,
+            @Value("${external-api.response-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${external-api.response-cache.max-entry-size:1MB}") DataSize maxEntrySize,
+            @Value("${external-api.response-cache.off-heap:false}") boolean offHeap,
+            @Value("${external-api.response-cache.credential-headers:authorization,proxy-authorization,cookie,x-api-key}")
+            List<String> credentialHeaders) {
+        this(meterRegistry, enabled, maxSize, maxEntrySize, offHeap, credentialHeaders, Clock.systemUTC());
+    }
+
+    InvokeResponseCache(MeterRegistry meterRegistry, boolean enabled, DataSize maxSize, DataSize maxEntrySize,
+                        boolean offHeap, List<String> credentialHeaders, Clock clock) {
+        this.enabled = enabled;
+        this.offHeap = offHeap;
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.credentialHeaders = credentialHeaders.stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse response) -> response.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "invoke-responses");
+
+        this.hits = outcomeCounter(meterRegistry, "hit");
+        this.misses = outcomeCounter(meterRegistry, "miss");
+        this.revalidations = outcomeCounter(meterRegistry, "revalidated");
+        this.bypasses = outcomeCounter(meterRegistry, "bypass");
+    }
+
+    /**
+     * Serves an invocation from the cache if possible, otherwise calls {@code exchange} and stores its response
+     *
+     * @param apiId     The id of the API which is invoked
+     * @param query     The {@link InvokeQuery} to execute
+     * @param exchange  Sends the query to the external API with the given additional headers
+     * @return          The result of the invocation wrapped inside a {@link InvokeResult}
+     */
+    public InvokeResult invoke(int apiId, InvokeQuery query, Function<HttpHeaders, ResponseEntity<String>> exchange) {
+        Map<String, String> requestHeaders = lowerCaseKeys(query.getHeader());
+        CacheControl requestCacheControl = CacheControl.parse(requestHeaders.get("cache-control"));
+
+        if (!isCacheable(query, requestHeaders, requestCacheControl)) {
+            bypasses.increment();
+            return toResult(exchange.apply(new HttpHeaders()));
+        }
+
+        String key = key(apiId, query);
+        Instant now = clock.instant();
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && !cached.matches(requestHeaders)) {
+            cached = null;
+        }
+
+        if (cached != null && cached.isFresh(now) && !requestCacheControl.noCache) {
+            hits.increment();
+            return cached.toResult();
+        }
+
+        ResponseEntity<String> response = exchange.apply(cached != null ? cached.conditionalHeaders() : new HttpHeaders());
+
+        if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            revalidations.increment();
+            CachedResponse refreshed = cached.refresh(response.getHeaders(), now);
+            cache.put(key, refreshed);
+            return refreshed.toResult();
+        }
+
+        misses.increment();
+        store(key, requestHeaders, response, now);
+        return toResult(response);
+    }
+
+    /**
+     * Checks if an invocation may be served from and stored in the cache
+     */
+    private boolean isCacheable(InvokeQuery query, Map<String, String> requestHeaders, CacheControl requestCacheControl) {
+        if (!enabled || query.getRequestType() != RequestType.GET) {
+            return false;
+        }
+
+        // Requests with own credentials might get responses for the caller only. Conditional requests
+        // are answered by the external API, so the caller gets the response it asked for.
+        if (requestHeaders.keySet().stream().anyMatch(name ->
+                credentialHeaders.contains(name) || CONDITIONAL_HEADERS.contains(name))) {
+            return false;
+        }
+        return !requestCacheControl.noStore;
+    }
+
+    private void store(String key, Map<String, String> requestHeaders, ResponseEntity<String> response, Instant now) {
+        HttpHeaders headers = response.getHeaders();
+        CacheControl cacheControl = CacheControl.parse(String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)));
+        List<String> vary = varyHeaders(headers);
+
+        // A response varying on credentials is a response for the caller only
+        if (response.getStatusCode().value() != HttpStatus.OK.value()
+                || cacheControl.noStore || cacheControl.isPrivate || vary.contains("*")
+                || vary.stream().anyMatch(credentialHeaders::contains)) {
+            cache.invalidate(key);
+            return;
+        }
+
+        Duration freshness = freshness(headers, cacheControl, now);
+        boolean validatable = headers.getETag() != null || headers.getLastModified() != -1;
+        if (freshness.isZero() && !validatable) {
+            // Neither fresh nor revalidatable, so the response could never be used
+            cache.invalidate(key);
+            return;
+        }
+
+        String body = response.getBody();
+        if (body != null && utf8Length(body) > maxEntrySize) {
+            cache.invalidate(key);
+            return;
+        }
+
+        Map<String, String> varyValues = new HashMap<>();
+        for (String name : vary) {
+            varyValues.put(name, requestHeaders.get(name));
+        }
+
+        cache.put(key, new CachedResponse(
+                response.getStatusCode().value(),
+                storableHeaders(headers),
+                offHeap ? null : body,
+                offHeap && body != null ? allocate(body.getBytes(StandardCharsets.UTF_8)) : null,
+                varyValues,
+                now.plus(freshness),
+                cacheControl.noCache));
+    }
+
+    private static ByteBuffer allocate(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+        buffer.put(body).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Counts the bytes of the UTF-8 encoding of a string without encoding it
+     */
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // A surrogate pair takes four bytes, two for each of its chars
+            length += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * Gets the headers of a response which may be replayed to every caller
+     */
+    private static Map<String, String> storableHeaders(HttpHeaders headers) {
+        Map<String, String> storable = new LinkedHashMap<>();
+        headers.asSingleValueMap().forEach((name, value) -> {
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            if (!UNSTORED_HEADERS.contains(lowerCaseName)
+                    && !ExternalApiClient.HOP_BY_HOP_HEADERS.contains(lowerCaseName)) {
+                storable.put(name, value);
+            }
+        });
+        return storable;
+    }
+
+    /**
+     * Computes how long a response is fresh. {@code s-maxage} takes precedence over {@code max-age},
+     * which takes precedence over {@code Expires}. The {@code Age} of the response is subtracted.
+     */
+    private static Duration freshness(HttpHeaders headers, CacheControl cacheControl, Instant now) {
+        Duration lifetime;
+        if (cacheControl.sMaxAge != null) {
+            lifetime = cacheControl.sMaxAge;
+        } else if (cacheControl.maxAge != null) {
+            lifetime = cacheControl.maxAge;
+        } else if (headers.getExpires() != -1) {
+            long date = dateOrDefault(headers, now);
+            lifetime = Duration.ofMillis(headers.getExpires() - date);
+        } else {
+            lifetime = Duration.ZERO;
+        }
+
+        String age = headers.getFirst(HttpHeaders.AGE);
+        if (age != null && age.matches("\\d+")) {
+            lifetime = lifetime.minusSeconds(Long.parseLong(age));
+        }
+        return lifetime.isNegative() ? Duration.ZERO : lifetime;
+    }
+
+    private static long dateOrDefault(HttpHeaders headers, Instant now) {
+        try {
+            return headers.getDate() != -1 ? headers.getDate() : now.toEpochMilli();
+        } catch (IllegalArgumentException e) {
+            // Invalid dates are treated as missing
+            return now.toEpochMilli();
+        }
+    }
+
+    private static List<String> varyHeaders(HttpHeaders headers) {
+        return headers.getOrEmpty(HttpHeaders.VARY).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Builds the key of an invocation. Path and request parameters are sorted, so their order does not matter.
+     */
+    private static String key(int apiId, InvokeQuery query) {
+        StringBuilder key = new StringBuilder().append(apiId).append(' ').append(query.getRequestPath());
+        appendSorted(key.append(' '), query.getPathParam());
+        appendSorted(key.append(' '), query.getRequestParam());
+        return key.toString();
+    }
+
+    private static void appendSorted(StringBuilder key, Map<String, String> parameters) {
+        if (parameters == null) return;
+        new TreeMap<>(parameters).forEach((name, value) -> key
+                .append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&'));
+    }
+
+    private static Map<String, String> lowerCaseKeys(Map<String, String> headers) {
+        Map<String, String> result = new HashMap<>();
+        if (headers != null) {
+            headers.forEach((name, value) -> result.put(name.toLowerCase(Locale.ROOT), value));
+        }
+        return result;
+    }
+
+    private static InvokeResult toResult(ResponseEntity<String> response) {
+        return new InvokeResult(
+                response.getStatusCode().value(),
+                response.getHeaders().asSingleValueMap(),
+                response.getBody());
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("invoke.response.cache")
+                .description("Outcomes of GET invocations looked up in the response cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The directives of a {@code Cache-Control} header which are relevant to this cache
+     */
+    private record CacheControl(boolean noStore, boolean noCache, boolean isPrivate, Duration maxAge, Duration sMaxAge) {
+
+        static CacheControl parse(String header) {
+            if (header == null || header.isBlank()) {
+                return new CacheControl(false, false, false, null, null);
+            }
+
+            String value = header.toLowerCase(Locale.ROOT);
+            return new CacheControl(
+                    hasDirective(value, "no-store"),
+                    hasDirective(value, "no-cache"),
+                    hasDirective(value, "private"),
+                    seconds(MAX_AGE.matcher(value)),
+                    seconds(S_MAXAGE.matcher(value)));
+        }
+
+        private static boolean hasDirective(String value, String directive) {
+            return Arrays.stream(value.split(","))
+                    .map(String::trim)
+                    .anyMatch(d -> d.equals(directive) || d.startsWith(directive + "="));
+        }
+
+        private static Duration seconds(Matcher matcher) {
+            return matcher.find() ? Duration.ofSeconds(Long.parseLong(matcher.group(1))) : null;
+        }
+    }
+
+    /**
+     * A stored response. The body is kept either as string or in a read-only off-heap buffer.
+     */
+    private record CachedResponse(
+            int status,
+            Map<String, String> headers,
+            String body,
+            ByteBuffer offHeapBody,
+            Map<String, String> varyValues,
+            Instant freshUntil,
+            boolean alwaysRevalidate) {
+
+        boolean isFresh(Instant now) {
+            return !alwaysRevalidate && now.isBefore(freshUntil);
+        }
+
+        /**
+         * Checks if the headers named in {@code Vary} have the same values as when the response has been stored
+         */
+        boolean matches(Map<String, String> requestHeaders) {
+            return varyValues.entrySet().stream()
+                    .allMatch(e -> Objects.equals(e.getValue(), requestHeaders.get(e.getKey())));
+        }
+
+        HttpHeaders conditionalHeaders() {
+            HttpHeaders conditional = new HttpHeaders();
+            headers.forEach((name, value) -> {
+                if (name.equalsIgnoreCase(HttpHeaders.ETAG)) conditional.set(HttpHeaders.IF_NONE_MATCH, value);
+                if (name.equalsIgnoreCase(HttpHeaders.LAST_MODIFIED)) conditional.set(HttpHeaders.IF_MODIFIED_SINCE, value);
+            });
+            return conditional;
+        }
+
+        /**
+         * Updates the stored response with the headers of a {@code 304 Not Modified} response
+         */
+        CachedResponse refresh(HttpHeaders notModified, Instant now) {
+            HttpHeaders merged = new HttpHeaders();
+            headers.forEach(merged::set);
+            notModified.asSingleValueMap().forEach((name, value) -> {
+                if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) merged.set(name, value);
+            });
+
+            CacheControl cacheControl = CacheControl.parse(merged.getFirst(HttpHeaders.CACHE_CONTROL));
+            return new CachedResponse(status, storableHeaders(merged), body, offHeapBody, varyValues,
+                    now.plus(freshness(merged, cacheControl, now)), cacheControl.noCache);
+        }
+
+        InvokeResult toResult() {
+            String text = body;
+            if (offHeapBody != null) {
+                byte[] bytes = new byte[offHeapBody.remaining()];
+                offHeapBody.duplicate().get(bytes);
+                text = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new InvokeResult(status, new HashMap<>(headers), text);
+        }
+
+        int weight() {
+            // Strings of non-Latin-1 text take two bytes per character, weigh them as such
+            long size = body != null ? 2L * body.length() : offHeapBody != null ? offHeapBody.capacity() : 0;
+            return (int) Math.min(Integer.MAX_VALUE, size + 512);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.web.client.RestClient;
 
 /**
  * McpManagementClient is responsible for communicating with the McpManagementClient subsystem
+ * Calls are isolated by the {@link SubserviceResilience} of the subsystem.
  *
  * @author Justin Wolek
  */
@@ -19,12 +20,17 @@ import org.springframework.web.client.RestClient;
 public class McpManagementClient {
     private final Logger logger = LoggerFactory.getLogger(McpManagementClient.class);
     private final TokenProvider tokenProvider;
+    private final SubserviceResilience resilience;
     private final RestClient client;
 
-    public McpManagementClient(TokenProvider tokenProvider, @Value("${spring.subservices.mcp-management.url}") String baseUrl) {
+    public McpManagementClient(TokenProvider tokenProvider, SubserviceResilienceRegistry resilienceRegistry,
+                               RestClient.Builder restClientBuilder,
+                               @Value("${spring.subservices.mcp-management.url}") String baseUrl) {
         this.tokenProvider = tokenProvider;
-        this.client = RestClient.builder()
+        this.resilience = resilienceRegistry.forSubservice("mcp-management");
+        this.client = restClientBuilder
                 .baseUrl(baseUrl)
+                .requestFactory(resilienceRegistry.requestFactory("mcp-management"))
                 .build();
     }
 
@@ -36,11 +42,11 @@ public class McpManagementClient {
      */
     public ToolDefinition getToolWithId(int toolId) {
         try {
-            return client.get()
+            return resilience.executeIdempotent(() -> client.get()
                     .uri("/toolsets/{toolId}", toolId)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .retrieve()
-                    .body(ToolDefinition.class);
+                    .body(ToolDefinition.class));
         } catch (Exception e) {
             throw ClientExceptionHandler.handleException(e);
         }
@@ -54,13 +60,13 @@ public class McpManagementClient {
      */
     public void addOrUpdateTool(int toolId, ToolDefinition definition) {
         try {
-            client.put()
+            resilience.executeIdempotent(() -> client.put()
                     .uri("/toolsets/{toolId}", toolId)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(definition)
                     .retrieve()
-                    .body(ToolDefinition.class);
+                    .body(ToolDefinition.class));
         } catch (Exception e) {
             throw ClientExceptionHandler.handleException(e);
         }
@@ -73,11 +79,11 @@ public class McpManagementClient {
      */
     public void deleteTool(int apiId) {
         try {
-            client.delete()
+            resilience.execute(() -> client.delete()
                     .uri("/toolsets/{apiId}", apiId)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .retrieve()
-                    .toBodilessEntity();
+                    .toBodilessEntity());
         } catch (Exception e) {
             throw ClientExceptionHandler.handleException(e);
         }
@@ -0,0 +1,183 @@
+package de.thm.apimanagement.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request path of an {@link de.thm.apimanagement.entity.InvokeQuery}, parsed once into its literal parts and
+ * the names of its {@code {placeholders}}. Expanding it writes every part into one pre-sized builder.
+ * <p>
+ * The result is a fully encoded URI: characters of the literal parts which are not allowed in a URI are
+ * percent-encoded at parse time, existing percent-encodings are kept. Path parameter values are encoded
+ * as path segment, so a value can not add segments, or as query value if the placeholder follows a {@code ?}.
+ * Request parameters are appended as encoded query parameters.
+ */
+final class PathTemplate {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] URI = allowed("-._~" + ":/?#[]@" + "!$&'()*+,;=");
+    private static final boolean[] PATH_SEGMENT = allowed("-._~" + "!$&'()*+,;=" + ":@");
+    private static final boolean[] QUERY_VALUE = allowed("-._~");
+
+    private final String[] literals;
+    private final String[] names;
+    private final boolean[] inQuery;
+    private final int literalLength;
+    /**
+     * What request parameters are appended with: {@code ?}, {@code &} or nothing if the path ends with either
+     */
+    private final String querySeparator;
+
+    private PathTemplate(String[] literals, String[] names, boolean[] inQuery, String querySeparator) {
+        this.literals = literals;
+        this.names = names;
+        this.inQuery = inQuery;
+        this.querySeparator = querySeparator;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses a request path
+     *
+     * @param template  The request path with placeholders in the form {@code {name}}
+     * @return          The parsed path
+     */
+    static PathTemplate parse(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> inQuery = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(template.length());
+        boolean query = false;
+
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            int end = c == '{' ? template.indexOf('}', i + 1) : -1;
+            if (end > i + 1) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                names.add(template.substring(i + 1, end));
+                inQuery.add(query);
+                i = end + 1;
+            } else if (c == '%' && isEncoded(template, i)) {
+                literal.append(template, i, i + 3);
+                i += 3;
+            } else {
+                query |= c == '?';
+                i = encode(literal, template, i, URI);
+            }
+        }
+        literals.add(literal.toString());
+
+        String last = literals.get(literals.size() - 1);
+        String querySeparator = !query ? "?"
+                : last.endsWith("?") || last.endsWith("&") ? ""
+                : "&";
+
+        boolean[] inQueryFlags = new boolean[inQuery.size()];
+        for (int n = 0; n < inQueryFlags.length; n++) {
+            inQueryFlags[n] = inQuery.get(n);
+        }
+        return new PathTemplate(literals.toArray(String[]::new), names.toArray(String[]::new), inQueryFlags, querySeparator);
+    }
+
+    /**
+     * Expands the path with the given parameters
+     *
+     * @param pathParameter     The values of the placeholders. Values without a placeholder are ignored.
+     * @param requestParameter  The query parameters to append
+     * @return                  The encoded URI
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    String expand(Map<String, String> pathParameter, Map<String, String> requestParameter) {
+        if (names.length == 0 && requestParameter.isEmpty()) {
+            return literals[0];
+        }
+
+        int length = literalLength;
+        for (String value : pathParameter.values()) {
+            length += value != null ? value.length() : 0;
+        }
+        for (Map.Entry<String, String> entry : requestParameter.entrySet()) {
+            length += entry.getKey().length() + (entry.getValue() != null ? entry.getValue().length() : 0) + 2;
+        }
+
+        // Encoding only ever makes values longer, leave some room for it
+        StringBuilder uri = new StringBuilder(length + (length >> 2));
+        uri.append(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = pathParameter.get(names[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for path parameter '" + names[i] + "'");
+            }
+            encode(uri, value, inQuery[i] ? QUERY_VALUE : PATH_SEGMENT);
+            uri.append(literals[i + 1]);
+        }
+
+        String separator = querySeparator;
+        for (Map.Entry<String, String> entry : requestParameter.entrySet()) {
+            uri.append(separator);
+            encode(uri, entry.getKey(), QUERY_VALUE);
+            if (entry.getValue() != null) {
+                uri.append('=');
+                encode(uri, entry.getValue(), QUERY_VALUE);
+            }
+            separator = "&";
+        }
+        return uri.toString();
+    }
+
+    private static void encode(StringBuilder out, String value, boolean[] allowed) {
+        int i = 0;
+        while (i < value.length()) {
+            i = encode(out, value, i, allowed);
+        }
+    }
+
+    /**
+     * Writes the character at {@code index}, percent-encoded as UTF-8 unless it is allowed
+     *
+     * @return  The index of the next character
+     */
+    private static int encode(StringBuilder out, String value, int index, boolean[] allowed) {
+        char c = value.charAt(index);
+        if (c < 128) {
+            if (allowed[c]) {
+                out.append(c);
+            } else {
+                appendEncoded(out, (byte) c);
+            }
+            return index + 1;
+        }
+
+        int codePoint = value.codePointAt(index);
+        for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+            appendEncoded(out, b);
+        }
+        return index + Character.charCount(codePoint);
+    }
+
+    private static void appendEncoded(StringBuilder out, byte b) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    private static boolean isEncoded(String value, int index) {
+        return index + 2 < value.length()
+                && Character.digit(value.charAt(index + 1), 16) >= 0
+                && Character.digit(value.charAt(index + 2), 16) >= 0;
+    }
+
+    private static boolean[] allowed(String characters) {
+        boolean[] allowed = new boolean[128];
+        for (char c = 'a'; c <= 'z'; c++) allowed[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) allowed[c] = true;
+        for (char c = '0'; c <= '9'; c++) allowed[c] = true;
+        for (char c : characters.toCharArray()) allowed[c] = true;
+        return allowed;
+    }
+}
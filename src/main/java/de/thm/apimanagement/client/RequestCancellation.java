@@ -0,0 +1,88 @@
+package de.thm.apimanagement.client;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RequestCancellation lets another thread abort the requests to external APIs which a thread sends while a
+ * cancellation is open on it. A blocking read of the pooled transport does not react to interrupts, aborting
+ * the request closes its connection instead, so the read fails right away.
+ * <p>
+ * Requests are registered by the request factory created with {@link #requestFactory(HttpClient)}. The JDK
+ * transport needs no registration, it aborts a request once the thread sending it is interrupted.
+ */
+public final class RequestCancellation implements AutoCloseable {
+    private static final ThreadLocal<RequestCancellation> CURRENT = new ThreadLocal<>();
+
+    private final List<Cancellable> requests = new ArrayList<>();
+    private boolean cancelled;
+
+    private RequestCancellation() {
+    }
+
+    /**
+     * Opens a cancellation for the requests the current thread sends until it is closed
+     */
+    public static RequestCancellation open() {
+        RequestCancellation cancellation = new RequestCancellation();
+        CURRENT.set(cancellation);
+        return cancellation;
+    }
+
+    /**
+     * Creates a request factory of the pooled transport which registers its requests with the open cancellation
+     *
+     * @param httpClient    The client to send the requests with
+     * @return              The request factory
+     */
+    public static HttpComponentsClientHttpRequestFactory requestFactory(HttpClient httpClient) {
+        return new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+                ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+                RequestCancellation cancellation = CURRENT.get();
+                if (cancellation != null && request instanceof Cancellable cancellable) {
+                    cancellation.register(cancellable);
+                }
+                return request;
+            }
+        };
+    }
+
+    /**
+     * Aborts every request registered so far and every request registered later on
+     */
+    public void cancel() {
+        List<Cancellable> inFlight;
+        synchronized (this) {
+            cancelled = true;
+            inFlight = new ArrayList<>(requests);
+            requests.clear();
+        }
+        inFlight.forEach(Cancellable::cancel);
+    }
+
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    private void register(Cancellable request) {
+        synchronized (this) {
+            if (!cancelled) {
+                requests.add(request);
+                return;
+            }
+        }
+        request.cancel();
+    }
+}
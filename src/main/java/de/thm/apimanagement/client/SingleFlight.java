@@ -0,0 +1,67 @@
+package de.thm.apimanagement.client;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight coalesces concurrent calls with the same key. While a call for a key is in flight,
+ * every other caller with the same key waits for it and receives its result or its exception
+ * instead of starting a call of its own.
+ *
+ * @param <K>   The type of the key identifying identical calls
+ * @param <V>   The type of the result of a call
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter collapsed;
+
+    /**
+     * @param collapsed Incremented for every call which has been served by a call already in flight
+     */
+    public SingleFlight(Counter collapsed) {
+        this.collapsed = collapsed;
+    }
+
+    /**
+     * Executes {@code call}, unless a call with the same key is already in flight
+     *
+     * @param key   Identifies identical calls
+     * @param call  The call to execute
+     * @return      The result of the call which has been executed for {@code key}
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing);
+        }
+
+        try {
+            V result = call.get();
+            own.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors have to complete the call as well, waiting callers would never return otherwise
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Rethrow the exception of the leading call as is, so it is handled like an own call
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
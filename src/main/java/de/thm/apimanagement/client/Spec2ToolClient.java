@@ -17,6 +17,7 @@ import java.util.Map;
 
 /**
  * Spec2ToolClient is responsible for communicating with the Spec2Tool subsystem
+ * Calls are isolated by the {@link SubserviceResilience} of the subsystem.
  *
  * @author Justin Wolek
  */
@@ -26,18 +27,26 @@ public class Spec2ToolClient {
 
     private final Logger logger = LoggerFactory.getLogger(Spec2ToolClient.class);
     private final TokenProvider tokenProvider;
+    private final ToolConversionCache conversionCache;
+    private final SubserviceResilience resilience;
     private final RestClient client;
 
-    public Spec2ToolClient(TokenProvider tokenProvider, @Value("${spring.subservices.spec2tool.url}") String baseUrl) {
+    public Spec2ToolClient(TokenProvider tokenProvider, ToolConversionCache conversionCache,
+                           SubserviceResilienceRegistry resilienceRegistry, RestClient.Builder restClientBuilder,
+                           @Value("${spring.subservices.spec2tool.url}") String baseUrl) {
         this.tokenProvider = tokenProvider;
-        this.client = RestClient.builder()
+        this.conversionCache = conversionCache;
+        this.resilience = resilienceRegistry.forSubservice("spec2tool");
+        this.client = restClientBuilder
                 .baseUrl(baseUrl)
+                .requestFactory(resilienceRegistry.requestFactory("spec2tool"))
                 .build();
     }
 
     /**
      * Takes an API specification with a given format  and returns a {@link ToolDefinition} containing
-     * a definition for an MCP tool.
+     * a definition for an MCP tool. Specifications which have been converted before are
+     * served from the {@link ToolConversionCache} without calling the Spec2Tool subsystem.
      *
      * @param format    Specification format. Can be OpenAPI or RAML
      * @param spec      The string containing the specification
@@ -50,16 +59,19 @@ public class Spec2ToolClient {
             throw new IllegalArgumentException("Format not supported");
         }
 
-        format = format.toLowerCase();
+        String normalizedFormat = format.toLowerCase();
+        return conversionCache.get(normalizedFormat, spec, () -> requestConversion(normalizedFormat, spec));
+    }
 
+    private ToolDefinition requestConversion(String format, Map<String, Object> spec) {
         try {
-            return client.post()
+            return resilience.executeIdempotent(() -> client.post()
                     .uri("/convert" )
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(new Spec2ToolBody(format, spec))
                     .retrieve()
-                    .body(ToolDefinition.class);
+                    .body(ToolDefinition.class));
         } catch (Exception e) {
             throw ClientExceptionHandler.handleException(e);
         }
@@ -0,0 +1,148 @@
+package de.thm.apimanagement.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * SubserviceResilience isolates the calls to one subservice. Every call has to pass
+ * <ul>
+ *     <li>a bulkhead, which bounds the number of concurrent calls, so a hanging subservice can only
+ *     block a bounded number of request threads,</li>
+ *     <li>a circuit breaker, which rejects calls right away while the subservice keeps failing and lets a few
+ *     probing calls through once it has been open for a while.</li>
+ * </ul>
+ * Idempotent calls are retried on transient failures with exponential backoff and full jitter, as long as
+ * the retry can start before the deadline of the call.
+ * Rejected calls fail with a {@link BulkheadFullException} or a {@link CallNotPermittedException}.
+ * <p>
+ * Latencies are recorded in {@code subservice.requests} by outcome, retries in {@code subservice.retries}.
+ * The state of the circuit breaker and the bulkhead is exposed as {@code resilience4j.*} metrics.
+ */
+public class SubserviceResilience {
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long deadline;
+    private final Timer succeeded;
+    private final Timer failed;
+    private final Timer rejected;
+    private final Counter retries;
+
+    public SubserviceResilience(String subservice, Bulkhead bulkhead, CircuitBreaker circuitBreaker,
+                                int maxAttempts, Duration baseDelay, Duration maxDelay, Duration deadline,
+                                MeterRegistry meterRegistry) {
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay.toNanos();
+        this.maxDelay = maxDelay.toNanos();
+        this.deadline = deadline.toNanos();
+        this.succeeded = timer(subservice, "success", meterRegistry);
+        this.failed = timer(subservice, "failure", meterRegistry);
+        this.rejected = timer(subservice, "rejected", meterRegistry);
+        this.retries = Counter.builder("subservice.retries")
+                .description("Calls to a subservice which have been retried after a transient failure")
+                .tag("subservice", subservice)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Executes a call which must not be repeated, like creating a resource
+     *
+     * @param call  The call to the subservice
+     * @return      The result of the call
+     */
+    public <T> T execute(Supplier<T> call) {
+        return execute(call, 1);
+    }
+
+    /**
+     * Executes a call which may be repeated without changing the result, like reading a resource
+     *
+     * @param call  The call to the subservice
+     * @return      The result of the call
+     */
+    public <T> T executeIdempotent(Supplier<T> call) {
+        return execute(call, maxAttempts);
+    }
+
+    /**
+     * Tells if a failure is caused by the subservice being unreachable or broken, instead of the request being wrong.
+     * Only these failures are retried and count against the circuit breaker.
+     */
+    static boolean isTransient(Throwable e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+
+    private <T> T execute(Supplier<T> call, int attempts) {
+        long giveUpAt = System.nanoTime() + deadline;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt(call);
+            } catch (RuntimeException e) {
+                if (attempt >= attempts || !isTransient(e)) {
+                    throw e;
+                }
+
+                long delay = backoff(attempt);
+                if (System.nanoTime() + delay >= giveUpAt) {
+                    throw e;
+                }
+
+                retries.increment();
+                LockSupport.parkNanos(delay);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private <T> T attempt(Supplier<T> call) {
+        long start = System.nanoTime();
+        Timer outcome = failed;
+        try {
+            T result = Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+            outcome = succeeded;
+            return result;
+        } catch (BulkheadFullException | CallNotPermittedException e) {
+            outcome = rejected;
+            throw e;
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Full jitter: a random delay between zero and the exponential backoff of the attempt,
+     * so clients which failed at the same time do not retry at the same time
+     */
+    private long backoff(int attempt) {
+        long exponential = baseDelay << Math.min(attempt - 1, 20);
+        return ThreadLocalRandom.current().nextLong(Math.max(1, Math.min(maxDelay, exponential)) + 1);
+    }
+
+    private static Timer timer(String subservice, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("subservice.requests")
+                .description("Latency of single calls to a subservice")
+                .tag("subservice", subservice)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,88 @@
+package de.thm.apimanagement.client;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * SubserviceResilienceRegistry creates the {@link SubserviceResilience} and the request factory of each subservice client.
+ * Settings are read from {@code spring.subservices.<subservice>.resilience}, so every subservice
+ * gets its own bulkhead, circuit breaker and timeouts.
+ */
+@Component
+public class SubserviceResilienceRegistry {
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+
+    public SubserviceResilienceRegistry(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    /**
+     * Creates the resilience layer of a subservice
+     *
+     * @param subservice    The name of the subservice as used in {@code spring.subservices}
+     * @return              The {@link SubserviceResilience} of the subservice
+     */
+    public SubserviceResilience forSubservice(String subservice) {
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .slidingWindowSize(property(subservice, "circuit-breaker.sliding-window-size", Integer.class, 20))
+                .minimumNumberOfCalls(property(subservice, "circuit-breaker.minimum-calls", Integer.class, 10))
+                .failureRateThreshold(property(subservice, "circuit-breaker.failure-rate-threshold", Float.class, 50f))
+                .waitDurationInOpenState(property(subservice, "circuit-breaker.open-duration", Duration.class, Duration.ofSeconds(10)))
+                .permittedNumberOfCallsInHalfOpenState(property(subservice, "circuit-breaker.half-open-calls", Integer.class, 3))
+                .automaticTransitionFromOpenToHalfOpenEnabled(false)
+                .recordException(SubserviceResilience::isTransient)
+                .build();
+
+        BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(property(subservice, "bulkhead.max-concurrent", Integer.class, 20))
+                .maxWaitDuration(property(subservice, "bulkhead.max-wait", Duration.class, Duration.ZERO))
+                .build();
+
+        return new SubserviceResilience(
+                subservice,
+                bulkheads.bulkhead(subservice, bulkheadConfig),
+                circuitBreakers.circuitBreaker(subservice, circuitBreakerConfig),
+                property(subservice, "retry.max-attempts", Integer.class, 3),
+                property(subservice, "retry.base-delay", Duration.class, Duration.ofMillis(100)),
+                property(subservice, "retry.max-delay", Duration.class, Duration.ofSeconds(1)),
+                property(subservice, "retry.deadline", Duration.class, Duration.ofSeconds(5)),
+                meterRegistry);
+    }
+
+    /**
+     * Creates a request factory with the connect and read timeouts of a subservice
+     *
+     * @param subservice    The name of the subservice as used in {@code spring.subservices}
+     * @return              The request factory for the {@link org.springframework.web.client.RestClient} of the subservice
+     */
+    public ClientHttpRequestFactory requestFactory(String subservice) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(property(subservice, "connect-timeout", Duration.class, Duration.ofSeconds(2)))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(property(subservice, "read-timeout", Duration.class, Duration.ofSeconds(10)));
+        return requestFactory;
+    }
+
+    private <T> T property(String subservice, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty("spring.subservices." + subservice + ".resilience." + key, type, defaultValue);
+    }
+}
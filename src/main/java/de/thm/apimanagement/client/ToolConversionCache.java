@@ -0,0 +1,113 @@
+package de.thm.apimanagement.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.entity.SpecDigest;
+import de.thm.apimanagement.entity.ToolConversion;
+import de.thm.apimanagement.entity.ToolDefinition;
+import de.thm.apimanagement.repository.ToolConversionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * ToolConversionCache stores the results of the Spec2Tool subsystem, keyed by the canonical hash of
+ * the format and the specification. Conversions are kept in a bounded in-memory tier and, if enabled,
+ * in the {@code tool_conversion} table, so they survive restarts.
+ * Hits and misses of the in-memory tier are exposed as {@code cache.*} metrics with {@code cache=tool-conversions}.
+ */
+@Component
+public class ToolConversionCache {
+    private final Logger logger = LoggerFactory.getLogger(ToolConversionCache.class);
+    private final ToolConversionRepository toolConversionRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean persistent;
+    private final Cache<String, ToolDefinition> cache;
+
+    public ToolConversionCache(
+            ToolConversionRepository toolConversionRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${spring.subservices.spec2tool.conversion-cache.max-size:1000}") long maxSize,
+            @Value("${spring.subservices.spec2tool.conversion-cache.persistent:false}") boolean persistent) {
+        this.toolConversionRepository = toolConversionRepository;
+        this.objectMapper = objectMapper;
+        this.persistent = persistent;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tool-conversions");
+    }
+
+    /**
+     * Gets the conversion of a specification, calling {@code converter} if it is neither
+     * in memory nor in the database
+     *
+     * @param format    Specification format. Can be OpenAPI or RAML
+     * @param spec      The specification to convert
+     * @param converter Converts the specification with the Spec2Tool subsystem
+     * @return          The definition of an MCP tool as a {@link ToolDefinition} object
+     */
+    public ToolDefinition get(String format, Map<String, Object> spec, Supplier<ToolDefinition> converter) {
+        String key = SpecDigest.conversionKey(format, spec);
+
+        ToolDefinition toolDefinition = cache.getIfPresent(key);
+        if (toolDefinition != null) {
+            return toolDefinition;
+        }
+
+        toolDefinition = load(key);
+        if (toolDefinition == null) {
+            toolDefinition = converter.get();
+            if (toolDefinition == null) {
+                return null;
+            }
+            store(key, toolDefinition);
+        }
+
+        cache.put(key, toolDefinition);
+        return toolDefinition;
+    }
+
+    /**
+     * Reads a conversion from the database. Failures are logged and treated as a miss,
+     * as the conversion can always be done again.
+     */
+    private ToolDefinition load(String key) {
+        if (!persistent) {
+            return null;
+        }
+
+        try {
+            ToolConversion conversion = toolConversionRepository.findById(key).orElse(null);
+            return conversion != null
+                    ? objectMapper.readValue(conversion.getToolDefinition(), ToolDefinition.class)
+                    : null;
+        } catch (Exception e) {
+            logger.warn("Could not read tool conversion {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, ToolDefinition toolDefinition) {
+        if (!persistent) {
+            return;
+        }
+
+        try {
+            toolConversionRepository.save(new ToolConversion(
+                    key, objectMapper.writeValueAsString(toolDefinition), Instant.now()));
+        } catch (Exception e) {
+            logger.warn("Could not store tool conversion {}: {}", key, e.getMessage());
+        }
+    }
+}
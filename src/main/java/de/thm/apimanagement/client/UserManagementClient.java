@@ -3,6 +3,8 @@ package de.thm.apimanagement.client;
 import de.thm.apimanagement.client.exceptions.ClientExceptionHandler;
 import de.thm.apimanagement.entity.ApiWithActive;
 import de.thm.apimanagement.security.TokenProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,7 +14,11 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 
 /**
- * UserManagementClient is responsible for communicating with the UserManagementClient subsystem
+ * UserManagementClient is responsible for communicating with the UserManagementClient subsystem.
+ * Reads are served from the {@link EntitlementCache}, writes are applied to it after they succeed
+ * in the UserManagement subsystem. This also covers the {@code undo()} of every command using this client.
+ * Concurrent identical reads which miss the cache share one request to the UserManagement subsystem.
+ * Calls are isolated by the {@link SubserviceResilience} of the subsystem.
  *
  * @author Justin Wolek
  */
@@ -20,12 +26,24 @@ import org.springframework.web.client.RestClient;
 public class UserManagementClient {
     private final Logger logger = LoggerFactory.getLogger(UserManagementClient.class);
     private final TokenProvider tokenProvider;
+    private final EntitlementCache entitlementCache;
+    private final SingleFlight<String, ApiWithActive[]> lookups;
+    private final SubserviceResilience resilience;
     private final RestClient client;
 
-    public UserManagementClient(TokenProvider tokenProvider, @Value("${spring.subservices.user-management.url}") String baseUrl ) {
+    public UserManagementClient(TokenProvider tokenProvider, EntitlementCache entitlementCache, MeterRegistry meterRegistry,
+                                SubserviceResilienceRegistry resilienceRegistry, RestClient.Builder restClientBuilder,
+                                @Value("${spring.subservices.user-management.url}") String baseUrl ) {
         this.tokenProvider = tokenProvider;
-        this.client = RestClient.builder()
+        this.entitlementCache = entitlementCache;
+        this.lookups = new SingleFlight<>(Counter.builder("subservice.lookups.coalesced")
+                .description("Lookups which have been served by an identical lookup already in flight")
+                .tag("subservice", "user-management")
+                .register(meterRegistry));
+        this.resilience = resilienceRegistry.forSubservice("user-management");
+        this.client = restClientBuilder
                 .baseUrl(baseUrl)
+                .requestFactory(resilienceRegistry.requestFactory("user-management"))
                 .build();
     }
 
@@ -42,15 +60,18 @@ public class UserManagementClient {
 
         try {
             // Add the Api to the group
-            client.post()
+            resilience.execute(() -> client.post()
                     .uri("/groups/{group}/apis", group)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(apiWithActive)
                     .retrieve()
-                    .body(ApiWithActive.class);
+                    .body(ApiWithActive.class));
+            entitlementCache.addApiToGroup(group, apiWithActive);
 
         } catch (Exception e) {
+            // The state in UserManagement is unknown now, so load it again on the next read
+            entitlementCache.invalidateGroup(group);
             throw ClientExceptionHandler.handleException(e);
         }
 
@@ -69,15 +90,17 @@ public class UserManagementClient {
 
         try {
             // Add the Api to the user
-            client.post()
+            resilience.execute(() -> client.post()
                     .uri("/users/{user}/apis", user)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(apiWithActive)
                     .retrieve()
-                    .body(ApiWithActive.class);
+                    .body(ApiWithActive.class));
+            entitlementCache.addApiToUser(user, apiWithActive);
 
         } catch (Exception e) {
+            entitlementCache.invalidateUser(user);
             throw ClientExceptionHandler.handleException(e);
         }
 
@@ -96,13 +119,15 @@ public class UserManagementClient {
 
         try {
             // Remove the Api from the group
-            client.delete()
+            resilience.execute(() -> client.delete()
                     .uri("/groups/{group}/apis/{apiId}", group, apiId)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .retrieve()
-                    .toBodilessEntity();
+                    .toBodilessEntity());
+            entitlementCache.removeApiFromGroup(group, apiId);
 
         } catch (Exception e) {
+            entitlementCache.invalidateGroup(group);
             throw ClientExceptionHandler.handleException(e);
         }
 
@@ -121,13 +146,15 @@ public class UserManagementClient {
 
         try {
             // Remove the Api from the user
-            client.delete()
+            resilience.execute(() -> client.delete()
                     .uri("/users/{user}/apis/{apiId}", user, apiId)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .retrieve()
-                    .toBodilessEntity();
+                    .toBodilessEntity());
+            entitlementCache.removeApiFromUser(user, apiId);
 
         } catch (Exception e) {
+            entitlementCache.invalidateUser(user);
             throw ClientExceptionHandler.handleException(e);
         }
     }
@@ -139,12 +166,42 @@ public class UserManagementClient {
      * @return      The APIs belonging to a user or a group
      */
     public ApiWithActive[] getApisOfGroup(String group) {
+        String caller = caller();
+        return entitlementCache.getApisOfGroup(caller, group, g -> lookups.execute(
+                caller + "/groups/" + g, () -> fetchApisOfGroup(g)));
+    }
+
+    /**
+     * Fetches the APIs of a user and returns them.
+     *
+     * @param user The user to get the APIs from
+     * @return      The APIs belonging to a user or a group
+     */
+    public ApiWithActive[] getApisOfUser(String user) {
+        String caller = caller();
+        return entitlementCache.getApisOfUser(caller, user, u -> lookups.execute(
+                caller + "/users/" + u, () -> fetchApisOfUser(u)));
+    }
+
+    /**
+     * Gets the subject of the current token, which scopes the entries in the {@link EntitlementCache}
+     * and the coalesced lookups
+     */
+    private String caller() {
         try {
-            return client.get()
+            return tokenProvider.getSubjectFromToken();
+        } catch (Exception e) {
+            throw ClientExceptionHandler.handleException(e);
+        }
+    }
+
+    private ApiWithActive[] fetchApisOfGroup(String group) {
+        try {
+            return resilience.executeIdempotent(() -> client.get()
                     .uri("/groups/{group}/apis", group)
                     .header("Authorization", "Bearer " + tokenProvider.getToken())
                     .retrieve()
-                    .body(ApiWithActive[].class);
+                    .body(ApiWithActive[].class));
 
         } catch (Exception e) {
             throw ClientExceptionHandler.handleException(e);
@@ -152,22 +209,14 @@ public class UserManagementClient {
 
     }
 
-    /**
-     * Fetches the APIs of a user and returns them.
-     *
-     * @param user The user to get the APIs from
-     * @return      The APIs belonging to a user or a group
-     */
-    public ApiWithActive[] getApisOfUser(String user) {
+    private ApiWithActive[] fetchApisOfUser(String user) {
        try {
-           return client.get()
-                   .uri(uriBuilder -> uriBuilder
-                           .path("/users/{user}/apis")
-                           .queryParam("accessViaGroup", false)
-                           .build(user))
-                   .header("Authorization", "Bearer " + tokenProvider.getToken())
-                   .retrieve()
-                   .body(ApiWithActive[].class);
+           return resilience.executeIdempotent(() -> client.get()
+                       // A URI template, so requests are timed per template instead of per user
+                       .uri("/users/{user}/apis?accessViaGroup={accessViaGroup}", user, false)
+                       .header("Authorization", "Bearer " + tokenProvider.getToken())
+                       .retrieve()
+                       .body(ApiWithActive[].class));
 
        } catch (Exception e) {
            throw ClientExceptionHandler.handleException(e);
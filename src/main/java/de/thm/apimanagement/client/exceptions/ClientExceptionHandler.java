@@ -1,5 +1,7 @@
 package de.thm.apimanagement.client.exceptions;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -23,7 +25,12 @@ public class ClientExceptionHandler {
      * @return  The corresponding client-specific exception
      */
     public static RuntimeException handleException(Exception e) {
-        if (e instanceof OAuth2AuthenticationException) {
+        if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            // Expected while a subservice is down, so no stack trace is logged
+            logger.warn("Subservice unavailable: {}", e.getMessage());
+            return new ClientUnavailableException(e.getMessage());
+
+        } else if (e instanceof OAuth2AuthenticationException) {
             logger.error("Authentication Exception: ", e);
             return new ClientAuthenticationException("Authentication Failed");
 
@@ -0,0 +1,11 @@
+package de.thm.apimanagement.client.exceptions;
+
+/**
+ * ClientUnavailableException is thrown by clients when a call has been rejected without reaching the subsystem,
+ * because its circuit breaker is open or all of its calls are in use
+ */
+public class ClientUnavailableException extends RuntimeException {
+    public ClientUnavailableException(String message) {
+        super(message);
+    }
+}
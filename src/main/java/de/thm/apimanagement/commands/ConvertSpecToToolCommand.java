@@ -0,0 +1,33 @@
+package de.thm.apimanagement.commands;
+
+import de.thm.apimanagement.client.Spec2ToolClient;
+import de.thm.apimanagement.entity.ToolDefinition;
+
+import java.util.Map;
+
+public class ConvertSpecToToolCommand implements Command {
+    private final Spec2ToolClient spec2ToolClient;
+    private final String format;
+    private final Map<String, Object> spec;
+    private ToolDefinition toolDefinition;
+
+    public ConvertSpecToToolCommand(Spec2ToolClient spec2ToolClient, String format, Map<String, Object> spec) {
+        this.spec2ToolClient = spec2ToolClient;
+        this.format = format;
+        this.spec = spec;
+    }
+
+    @Override
+    public void execute() {
+        toolDefinition = spec2ToolClient.convertSpec2Tool(format, spec);
+    }
+
+    @Override
+    public void undo() {
+        // Converting has no side effects, so there is nothing to undo
+    }
+
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+}
@@ -2,23 +2,42 @@ package de.thm.apimanagement.commands;
 
 import de.thm.apimanagement.entity.Api;
 import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.InvokeRouteTable;
+import de.thm.apimanagement.service.SpecBlobStore;
+
+import java.util.Map;
 
 public class DeleteApiFromRepositoryCommand implements Command {
     private final ApiRepository apiRepository;
+    private final SpecBlobStore specBlobStore;
+    private final InvokeRouteTable invokeRouteTable;
     private final Api api;
+    private Map<String, Object> backupSpec;
 
-    public DeleteApiFromRepositoryCommand(ApiRepository apiRepository, Api api) {
+    public DeleteApiFromRepositoryCommand(ApiRepository apiRepository, SpecBlobStore specBlobStore,
+                                          InvokeRouteTable invokeRouteTable, Api api) {
         this.apiRepository = apiRepository;
+        this.specBlobStore = specBlobStore;
+        this.invokeRouteTable = invokeRouteTable;
         this.api = api;
     }
 
     @Override
     public void execute() {
+        // Backup the specification for undo, as it is deleted with its last reference
+        backupSpec = specBlobStore.load(api.getSpecHash());
+
         apiRepository.delete(api);
+        specBlobStore.release(api.getSpecHash());
+        invokeRouteTable.remove(api.getId());
     }
 
     @Override
     public void undo() {
+        if (backupSpec != null) {
+            api.setSpecHash(specBlobStore.acquire(backupSpec));
+        }
         apiRepository.save(api);
+        invokeRouteTable.put(api);
     }
 }
@@ -6,7 +6,8 @@ import de.thm.apimanagement.entity.ToolDefinition;
 public class DeleteMcpToolCommand implements Command {
     private final McpManagementClient mcpManagementClient;
     private final int apiId;
-    private final ToolDefinition toolDefinition;
+    private ToolDefinition toolDefinition;
+    private boolean backupOnExecute;
 
     public DeleteMcpToolCommand(McpManagementClient mcpManagementClient, int apiId, ToolDefinition toolDefinition) {
         this.mcpManagementClient = mcpManagementClient;
@@ -14,13 +15,28 @@ public class DeleteMcpToolCommand implements Command {
         this.toolDefinition = toolDefinition;
     }
 
+    /**
+     * Creates a command which reads the tool as backup for undo when it is executed.
+     * Nothing is deleted if the tool does not exist.
+     */
+    public DeleteMcpToolCommand(McpManagementClient mcpManagementClient, int apiId) {
+        this(mcpManagementClient, apiId, null);
+        this.backupOnExecute = true;
+    }
+
     @Override
     public void execute() {
+        if (backupOnExecute) {
+            toolDefinition = mcpManagementClient.getToolWithId(apiId);
+            if (toolDefinition == null) return;
+        }
         mcpManagementClient.deleteTool(apiId);
     }
 
     @Override
     public void undo() {
-        mcpManagementClient.addOrUpdateTool(apiId, toolDefinition);
+        if (toolDefinition != null) {
+            mcpManagementClient.addOrUpdateTool(apiId, toolDefinition);
+        }
     }
 }
@@ -0,0 +1,186 @@
+package de.thm.apimanagement.commands;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A Saga executes a graph of {@link Command}s. Steps whose dependencies have completed run concurrently
+ * on the given executor. When a step fails, no further steps are started and every step which has already
+ * completed is undone in the reverse order of completion.
+ * <p>
+ * Steps can only depend on steps which have been added before, so the graph is always acyclic.
+ * Every command is timed as a {@link TimedCommand}.
+ */
+public class Saga {
+    private final Logger logger = LoggerFactory.getLogger(Saga.class);
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Creates a saga whose commands are timed in the global registry
+     */
+    public Saga() {
+        this(Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates a saga whose commands are timed in the given registry
+     *
+     * @param meterRegistry The registry to record the timers of the commands in
+     */
+    public Saga(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Adds a step to the saga
+     *
+     * @param name      The unique name of the step
+     * @param command   The command to execute
+     * @param dependsOn The names of the steps which have to complete before this step is executed
+     * @return          This saga
+     */
+    public Saga step(String name, Command command, String... dependsOn) {
+        return step(name, () -> command, dependsOn);
+    }
+
+    /**
+     * Adds a step to the saga whose command is created once its dependencies have completed.
+     * This allows commands to use results of the steps they depend on.
+     *
+     * @param name      The unique name of the step
+     * @param command   Creates the command to execute
+     * @param dependsOn The names of the steps which have to complete before this step is executed
+     * @return          This saga
+     */
+    public Saga step(String name, Supplier<Command> command, String... dependsOn) {
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("Step " + name + " already exists");
+        }
+        for (String dependency : dependsOn) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Step " + name + " depends on unknown step " + dependency);
+            }
+        }
+
+        steps.put(name, new Step(name, command, List.of(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Executes every step and waits for all of them to finish. If a step fails, the completed steps
+     * are undone before the exception of the failed step is rethrown.
+     *
+     * @param executor  The executor to run the steps on
+     */
+    public void execute(Executor executor) {
+        try {
+            executeAsync(executor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes every step without waiting for them to finish. If a step fails, the completed steps
+     * are undone before the returned future completes with the exception of the failed step.
+     *
+     * @param executor  The executor to run the steps on
+     * @return          A future which completes once every step has finished or has been undone
+     */
+    public CompletableFuture<Void> executeAsync(Executor executor) {
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        Deque<CompletedStep> completed = new ConcurrentLinkedDeque<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        for (Step step : steps.values()) {
+            CompletableFuture<?>[] dependencies = step.dependsOn().stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+
+            futures.put(step.name(), CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                // Do not start new steps once the saga has failed
+                if (failure.get() != null) return;
+
+                try {
+                    logger.debug("Executing step {}", step.name());
+                    Command command = new TimedCommand(step.command().get(), meterRegistry);
+                    command.execute();
+                    completed.push(new CompletedStep(step.name(), command));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    throw e;
+                }
+            }, executor));
+        }
+
+        // Wait for the steps which are still running after a failure, so they can be undone as well
+        CompletableFuture<?>[] finished = futures.values().stream()
+                .map(f -> f.exceptionally(t -> null))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(finished).thenRun(() -> {
+            if (failure.get() != null) {
+                rollback(completed);
+                throw failure.get();
+            }
+        });
+    }
+
+    /**
+     * Executes independent sagas, at most {@code parallelism} of them at once. A failing saga is undone
+     * on its own and does not affect the others.
+     *
+     * @param sagas         The sagas to execute
+     * @param parallelism   The maximum number of sagas to execute at once
+     * @param executor      The executor to run the steps on
+     * @return              For every saga, in the given order, the exception it has failed with or {@code null}
+     */
+    public static List<RuntimeException> executeAll(List<Saga> sagas, int parallelism, Executor executor) {
+        Semaphore running = new Semaphore(Math.max(1, parallelism));
+        List<CompletableFuture<RuntimeException>> results = new ArrayList<>(sagas.size());
+        for (Saga saga : sagas) {
+            // Blocks the calling thread only, the steps of the running sagas never wait for a permit
+            running.acquireUninterruptibly();
+            results.add(saga.executeAsync(executor).handle((ignored, t) -> {
+                running.release();
+                if (t == null) return null;
+                Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                return cause instanceof RuntimeException e ? e : new RuntimeException(cause);
+            }));
+        }
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Undoes the completed steps, starting with the one which has completed last.
+     * A failing undo is logged and does not stop the remaining steps from being undone.
+     */
+    private void rollback(Deque<CompletedStep> completed) {
+        for (CompletedStep step : completed) {
+            logger.warn("Reverting: {}", step.name());
+            try {
+                step.command().undo();
+            } catch (RuntimeException e) {
+                logger.error("Could not revert {}! Reason: {}", step.name(), e.getMessage());
+            }
+        }
+    }
+
+    private record Step(String name, Supplier<Command> command, List<String> dependsOn) {}
+
+    private record CompletedStep(String name, Command command) {}
+}
@@ -2,23 +2,39 @@ package de.thm.apimanagement.commands;
 
 import de.thm.apimanagement.entity.Api;
 import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.InvokeRouteTable;
+import de.thm.apimanagement.service.SpecBlobStore;
 
 public class SaveApiToRepositoryCommand implements Command {
     private final ApiRepository apiRepository;
+    private final SpecBlobStore specBlobStore;
+    private final InvokeRouteTable invokeRouteTable;
     private final Api api;
 
-    public SaveApiToRepositoryCommand(ApiRepository apiRepository, Api api) {
+    public SaveApiToRepositoryCommand(ApiRepository apiRepository, SpecBlobStore specBlobStore,
+                                      InvokeRouteTable invokeRouteTable, Api api) {
         this.apiRepository = apiRepository;
+        this.specBlobStore = specBlobStore;
+        this.invokeRouteTable = invokeRouteTable;
         this.api = api;
     }
 
     @Override
     public void execute() {
-        apiRepository.save(api);
+        api.setSpecHash(specBlobStore.acquire(api.getSpec()));
+        try {
+            apiRepository.save(api);
+        } catch (RuntimeException e) {
+            specBlobStore.release(api.getSpecHash());
+            throw e;
+        }
+        invokeRouteTable.put(api);
     }
 
     @Override
     public void undo() {
         apiRepository.delete(api);
+        specBlobStore.release(api.getSpecHash());
+        invokeRouteTable.remove(api.getId());
     }
 }
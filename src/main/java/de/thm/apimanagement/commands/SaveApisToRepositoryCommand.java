@@ -0,0 +1,77 @@
+package de.thm.apimanagement.commands;
+
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.InvokeRouteTable;
+import de.thm.apimanagement.service.SpecBlobStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves multiple {@link Api}s with a single batched insert. Saving each API can be undone on its own
+ * with the command returned by {@link #forApi(Api)}, so a batch can be compensated per API.
+ */
+public class SaveApisToRepositoryCommand implements Command {
+    private final ApiRepository apiRepository;
+    private final SpecBlobStore specBlobStore;
+    private final InvokeRouteTable invokeRouteTable;
+    private final List<Api> apis;
+
+    public SaveApisToRepositoryCommand(ApiRepository apiRepository, SpecBlobStore specBlobStore,
+                                       InvokeRouteTable invokeRouteTable, List<Api> apis) {
+        this.apiRepository = apiRepository;
+        this.specBlobStore = specBlobStore;
+        this.invokeRouteTable = invokeRouteTable;
+        this.apis = apis;
+    }
+
+    @Override
+    public void execute() {
+        List<String> acquired = new ArrayList<>(apis.size());
+        try {
+            for (Api api : apis) {
+                api.setSpecHash(specBlobStore.acquire(api.getSpec()));
+                acquired.add(api.getSpecHash());
+            }
+            apiRepository.saveAll(apis);
+        } catch (RuntimeException e) {
+            // Only what has been acquired before the failure is released
+            acquired.forEach(specBlobStore::release);
+            throw e;
+        }
+        apis.forEach(invokeRouteTable::put);
+    }
+
+    @Override
+    public void undo() {
+        apis.forEach(this::undo);
+    }
+
+    /**
+     * Gets a command which undoes saving a single API. Its execute does nothing, as the API
+     * has already been saved by this command.
+     *
+     * @param api   One of the saved APIs
+     * @return      The command to undo saving the API
+     */
+    public Command forApi(Api api) {
+        return new Command() {
+            @Override
+            public void execute() {
+                // Saved together with the other APIs of the batch
+            }
+
+            @Override
+            public void undo() {
+                SaveApisToRepositoryCommand.this.undo(api);
+            }
+        };
+    }
+
+    private void undo(Api api) {
+        apiRepository.delete(api);
+        specBlobStore.release(api.getSpecHash());
+        invokeRouteTable.remove(api.getId());
+    }
+}
@@ -0,0 +1,55 @@
+package de.thm.apimanagement.commands;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Decorates a {@link Command} with the timer {@code saga.command}, tagged with the command,
+ * the phase ({@code execute} or {@code undo}) and the outcome ({@code success} or {@code failure}).
+ */
+public class TimedCommand implements Command {
+    private final Command command;
+    private final MeterRegistry meterRegistry;
+
+    public TimedCommand(Command command, MeterRegistry meterRegistry) {
+        this.command = command;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void execute() {
+        record("execute", command::execute);
+    }
+
+    @Override
+    public void undo() {
+        record("undo", command::undo);
+    }
+
+    private void record(String phase, Runnable action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            action.run();
+            outcome = "success";
+        } finally {
+            sample.stop(Timer.builder("saga.command")
+                    .description("Duration of executing or undoing a command")
+                    .tag("command", name(command))
+                    .tag("phase", phase)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Gets the name of a command, anonymous commands are named after the class they are declared in
+     */
+    static String name(Command command) {
+        Class<?> type = command.getClass();
+        while (type.isAnonymousClass() && type.getEnclosingClass() != null) {
+            type = type.getEnclosingClass();
+        }
+        return type.getSimpleName();
+    }
+}
@@ -2,18 +2,26 @@ package de.thm.apimanagement.commands;
 
 import de.thm.apimanagement.entity.Api;
 import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.InvokeRouteTable;
+import de.thm.apimanagement.service.SpecBlobStore;
 
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class UpdateApiInRepositoryCommand implements Command {
     private final ApiRepository apiRepository;
+    private final SpecBlobStore specBlobStore;
+    private final InvokeRouteTable invokeRouteTable;
     private final int apiId;
     private final Api newApi;
     private Api backupApi;
+    private String acquiredSpecHash;
 
-    public UpdateApiInRepositoryCommand(ApiRepository apiRepository, int apiId, Api api) {
+    public UpdateApiInRepositoryCommand(ApiRepository apiRepository, SpecBlobStore specBlobStore,
+                                        InvokeRouteTable invokeRouteTable, int apiId, Api api) {
         this.apiRepository = apiRepository;
+        this.specBlobStore = specBlobStore;
+        this.invokeRouteTable = invokeRouteTable;
         this.apiId = apiId;
         this.newApi  = api;
     }
@@ -29,17 +37,42 @@ public class UpdateApiInRepositoryCommand implements Command {
             updateIfNotBlank(newApi::getDescription, apiDb::setDescription);
             updateIfNotBlank(newApi::getVersion, apiDb::setVersion);
             updateIfNotBlank(newApi::getFormat, apiDb::setFormat);
-            updateIfNotNull(newApi::getSpec, apiDb::setSpec);
             updateIfNotBlank(newApi::getToken, apiDb::setToken);
+            updateIfNotNull(newApi::getRateLimitPerSecond, apiDb::setRateLimitPerSecond);
+            updateIfNotNull(newApi::getRateLimitBurst, apiDb::setRateLimitBurst);
+            updateIfNotNull(newApi::getMaxConcurrentInvocations, apiDb::setMaxConcurrentInvocations);
 
-            apiRepository.save(apiDb);
+            if (newApi.getSpec() != null) {
+                // Backup the old specification for undo, as it is deleted with its last reference
+                backupApi.setSpec(specBlobStore.load(apiDb.getSpecHash()));
+                acquiredSpecHash = specBlobStore.acquire(newApi.getSpec());
+                apiDb.setSpec(newApi.getSpec());
+                apiDb.setSpecHash(acquiredSpecHash);
+            }
+
+            try {
+                apiRepository.save(apiDb);
+            } catch (RuntimeException e) {
+                // A step which has failed is not undone, so the new specification has to be released here
+                specBlobStore.release(acquiredSpecHash);
+                throw e;
+            }
+            invokeRouteTable.put(apiDb);
+            if (acquiredSpecHash != null) {
+                specBlobStore.release(backupApi.getSpecHash());
+            }
         });
     }
 
     @Override
     public void undo() {
         if (backupApi != null) {
+            if (acquiredSpecHash != null && backupApi.getSpec() != null) {
+                backupApi.setSpecHash(specBlobStore.acquire(backupApi.getSpec()));
+            }
             apiRepository.save(backupApi);
+            invokeRouteTable.put(backupApi);
+            specBlobStore.release(acquiredSpecHash);
         }
     }
 
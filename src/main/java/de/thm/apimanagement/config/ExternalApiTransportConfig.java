@@ -0,0 +1,103 @@
+package de.thm.apimanagement.config;
+
+import de.thm.apimanagement.client.CachingDnsResolver;
+import de.thm.apimanagement.client.RequestCancellation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Configures the HTTP transport which is used to invoke external APIs.
+ * <p>
+ * By default, connections are kept alive in a pool with a limit per route (scheme, host and port), so a burst
+ * of invocations against one slow API can not open an unbounded number of connections. Requests which can not
+ * lease a connection in time fail. Requests can be aborted with a {@link RequestCancellation}. Pool utilization is exposed as {@code httpcomponents.httpclient.pool.*} metrics
+ * with {@code httpclient=external-api}.
+ * <p>
+ * With {@code external-api.transport.http2} enabled, the JDK client is used instead. It multiplexes requests
+ * over one connection per host, so the pool settings and the DNS cache do not apply.
+ */
+@Configuration
+public class ExternalApiTransportConfig {
+
+    @Bean(name = "externalApiRequestFactory")
+    public ClientHttpRequestFactory externalApiRequestFactory(
+            @Qualifier("externalApiHttpClient") ObjectProvider<CloseableHttpClient> httpClient,
+            @Value("${external-api.transport.http2:false}") boolean http2,
+            @Value("${external-api.transport.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${external-api.transport.read-timeout:30s}") Duration readTimeout) {
+        if (http2) {
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(connectTimeout)
+                    .build());
+            requestFactory.setReadTimeout(readTimeout);
+            return requestFactory;
+        }
+        return RequestCancellation.requestFactory(httpClient.getObject());
+    }
+
+    /**
+     * The pooled client, a bean of its own so its connections are closed on shutdown
+     */
+    @Bean(name = "externalApiHttpClient", destroyMethod = "close")
+    @ConditionalOnProperty(value = "external-api.transport.http2", havingValue = "false", matchIfMissing = true)
+    public CloseableHttpClient externalApiHttpClient(
+            MeterRegistry meterRegistry,
+            @Value("${external-api.transport.max-connections:200}") int maxConnections,
+            @Value("${external-api.transport.max-connections-per-route:20}") int maxConnectionsPerRoute,
+            @Value("${external-api.transport.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${external-api.transport.read-timeout:30s}") Duration readTimeout,
+            @Value("${external-api.transport.pool-timeout:5s}") Duration poolTimeout,
+            @Value("${external-api.transport.idle-eviction:30s}") Duration idleEviction,
+            @Value("${external-api.transport.dns-cache.ttl:60s}") Duration dnsCacheTtl,
+            @Value("${external-api.transport.dns-cache.max-size:1000}") long dnsCacheMaxSize) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDnsResolver(new CachingDnsResolver(dnsCacheTtl, dnsCacheMaxSize, meterRegistry))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "external-api").bindTo(meterRegistry);
+
+        // Closing the client closes its connection manager as well
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .evictExpiredConnections()
+                // Requests and responses are passed on as they are: do not negotiate and decode compression,
+                // follow redirects or retry on our own. Cookies would be shared between every caller, so
+                // they are not handled either.
+                .disableContentCompression()
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .disableAuthCaching()
+                .build();
+    }
+}
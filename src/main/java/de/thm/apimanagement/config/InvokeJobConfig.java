@@ -0,0 +1,28 @@
+package de.thm.apimanagement.config;
+
+import de.thm.apimanagement.security.SecurityContextTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class InvokeJobConfig {
+
+    /**
+     * Executor asynchronous invocations of external APIs are run on, so slow upstreams do not hold servlet threads
+     */
+    @Bean(name = "invokeJobExecutor")
+    public ThreadPoolTaskExecutor invokeJobExecutor(
+            @Value("${invoke.jobs.pool-size:32}") int poolSize,
+            @Value("${invoke.jobs.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("invoke-job-");
+        executor.setTaskDecorator(new SecurityContextTaskDecorator());
+        // Jobs are rejected once the queue is full, running them on the calling thread would defeat their purpose
+        return executor;
+    }
+}
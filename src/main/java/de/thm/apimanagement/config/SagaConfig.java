@@ -0,0 +1,31 @@
+package de.thm.apimanagement.config;
+
+import de.thm.apimanagement.security.SecurityContextTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class SagaConfig {
+
+    /**
+     * Executor the steps of a saga are run on
+     */
+    @Bean(name = "sagaExecutor")
+    public ThreadPoolTaskExecutor sagaExecutor(
+            @Value("${saga.executor.pool-size:16}") int poolSize,
+            @Value("${saga.executor.queue-capacity:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("saga-");
+        executor.setTaskDecorator(new SecurityContextTaskDecorator());
+        // Run steps on the calling thread instead of failing when the executor is saturated
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
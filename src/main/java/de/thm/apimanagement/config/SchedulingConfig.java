@@ -0,0 +1,12 @@
+package de.thm.apimanagement.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background jobs, like the dispatcher of the tool registration outbox
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
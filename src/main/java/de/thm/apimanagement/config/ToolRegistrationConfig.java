@@ -0,0 +1,22 @@
+package de.thm.apimanagement.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Checks on start that the asynchronous mode of POST /apis and PUT /apis/{id} can work. Its registrations
+ * store the access token of the request encrypted with {@code tool-registration.token-key}, every instance
+ * has to use the same key, so a registration can be dispatched by any instance and after a restart.
+ */
+@Configuration
+public class ToolRegistrationConfig {
+
+    ToolRegistrationConfig(@Value("${tool-registration.async.enabled:true}") boolean asyncEnabled,
+                           @Value("${tool-registration.token-key:}") String tokenKey) {
+        if (asyncEnabled && !StringUtils.hasText(tokenKey)) {
+            throw new IllegalStateException("tool-registration.token-key must be set while the asynchronous mode"
+                    + " is enabled, or the mode must be disabled with tool-registration.async.enabled=false");
+        }
+    }
+}
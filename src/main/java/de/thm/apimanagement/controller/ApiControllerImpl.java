@@ -1,18 +1,41 @@
 package de.thm.apimanagement.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiFields;
+import de.thm.apimanagement.entity.ApiPage;
+import de.thm.apimanagement.entity.ApiPageRequest;
+import de.thm.apimanagement.entity.BatchInvokeItem;
+import de.thm.apimanagement.entity.BatchInvokeResult;
+import de.thm.apimanagement.entity.BatchItemResult;
+import de.thm.apimanagement.entity.InvokeJob;
 import de.thm.apimanagement.entity.InvokeQuery;
 import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.entity.RequestType;
+import de.thm.apimanagement.entity.ToolRegistration;
 import de.thm.apimanagement.security.TokenProvider;
 import de.thm.apimanagement.service.ApiService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * ApiController provides endpoints to enable CRUD functionality for {@link Api} entities
@@ -22,38 +45,130 @@ import java.util.List;
  */
 @RestController
 public class ApiControllerImpl implements ApiManagementController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ApiService apiService;
     private final TokenProvider tokenProvider;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyStore idempotencyStore;
+    private final Duration sseTimeout;
 
-    ApiControllerImpl(TokenProvider tokenProvider, ApiService apiService) {
+    ApiControllerImpl(TokenProvider tokenProvider, ApiService apiService, ObjectMapper objectMapper,
+                      IdempotencyStore idempotencyStore,
+                      @Value("${invoke.jobs.sse-timeout:5m}") Duration sseTimeout) {
         this.tokenProvider = tokenProvider;
         this.apiService = apiService;
+        this.objectMapper = objectMapper;
+        this.idempotencyStore = idempotencyStore;
+        this.sseTimeout = sseTimeout;
     }
 
     /**
-     * Handles GET requests for /apis
+     * Handles GET requests for /apis. The APIs of the page are loaded chunk by chunk and each chunk is
+     * written before the next one is loaded. If loading fails after the response has been committed,
+     * the array is left open, so the client cannot mistake the body for a complete page.
      *
-     * @return  A list of {@link Api}s
+     * @param response  The response the list of {@link Api}s is written to
      */
-    public ResponseEntity<List<Api>> getApis(
+    public void getApis(
             @RequestParam("user") String user,
-            @RequestParam(value = "group", required = false) String group) {
+            @RequestParam(value = "group", required = false) String group,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "fields", required = false) String fields,
+            HttpServletResponse response) throws IOException {
         tokenProvider.getToken();
-        return ResponseEntity.ok(apiService.fetchApiList(user, group));
+        ApiPage page = apiService.fetchApiPage(user, group, new ApiPageRequest(limit, cursor, sort, fields));
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (page.nextCursor() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+            generator.writeStartArray();
+            for (Api api : page.apis()) {
+                generator.writeObject(page.fields() != null ? ApiFields.select(api, page.fields()) : api);
+            }
+            generator.writeEndArray();
+        }
     }
 
     /**
      * Handles POST requests for /apis
      *
-     * @param api   The {@link Api} object to POST
-     * @return      The newly created object
+     * @param api               The {@link Api} object to POST
+     * @param idempotencyKey    If given, a retry with the same key gets the response of the first request
+     * @return                  The newly created object
      */
     public ResponseEntity<Api> postApi(
             @Validated @RequestBody Api api,
             @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group,
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(tokenProvider.getSubjectFromToken(), "POST /apis?user=" + user + "&group=" + group,
+                idempotencyKey, api, () -> ResponseEntity.ok(apiService.saveApi(api, user, group)));
+    }
+
+    /**
+     * Handles POST requests for /apis?mode=async
+     *
+     * @param api               The {@link Api} object to POST
+     * @param idempotencyKey    If given, a retry with the same key gets the response of the first request
+     * @return                  The {@link ToolRegistration} of the stored object
+     */
+    public ResponseEntity<ToolRegistration> postApiAsync(
+            @Validated @RequestBody Api api,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group,
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(tokenProvider.getSubjectFromToken(), "POST /apis?mode=async&user=" + user + "&group=" + group,
+                idempotencyKey, api, () -> accepted(apiService.saveApiAsync(api, user, group),
+                        "/apis/registrations/{id}", ToolRegistration::getId));
+    }
+
+    /**
+     * Handles POST requests for /apis/batch
+     *
+     * @param apis  The {@link Api} objects to POST
+     * @return      The outcome of every {@link Api}
+     */
+    public ResponseEntity<List<BatchItemResult>> postApis(
+            @RequestBody List<Api> apis,
+            @RequestParam("user") String user,
             @RequestParam(value = "group", required = false) String group) {
         tokenProvider.getToken();
-        return ResponseEntity.ok(apiService.saveApi(api, user, group));
+        return ResponseEntity.ok(apiService.saveApis(apis, user, group));
+    }
+
+    /**
+     * Handles PUT requests for /apis/batch
+     *
+     * @param apis  The new {@link Api} objects, identified by their id
+     * @return      The outcome of every {@link Api}
+     */
+    public ResponseEntity<List<BatchItemResult>> putApis(
+            @RequestBody List<Api> apis,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        return ResponseEntity.ok(apiService.updateApis(apis, user, group));
+    }
+
+    /**
+     * Handles DELETE requests for /apis/batch
+     *
+     * @param ids   The ids of the {@link Api}s to delete
+     * @return      The outcome of every {@link Api}
+     */
+    public ResponseEntity<List<BatchItemResult>> deleteApis(
+            @RequestParam("ids") List<Integer> ids,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        return ResponseEntity.ok(apiService.deleteApisById(ids, user, group));
     }
 
     /**
@@ -86,6 +201,37 @@ public class ApiControllerImpl implements ApiManagementController {
         return ResponseEntity.ok(apiService.updateApi(id, api, user, group));
     }
 
+    /**
+     * Handles PUT requests for /apis/{id}?mode=async
+     *
+     * @param api   The new {@link Api} object
+     * @param id    The current {@link Api} object to be replaced
+     * @return      The {@link ToolRegistration} of the updated object
+     */
+    public ResponseEntity<ToolRegistration> putApiAsync(
+            @RequestBody Api api,
+            @PathVariable("id") int id,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        return accepted(apiService.updateApiAsync(id, api, user, group),
+                "/apis/registrations/{id}", ToolRegistration::getId);
+    }
+
+    /**
+     * Handles GET requests for /apis/registrations/{id}
+     *
+     * @param id    The id of the {@link ToolRegistration} to get
+     * @return      The queried {@link ToolRegistration}
+     */
+    public ResponseEntity<ToolRegistration> getRegistration(
+            @PathVariable("id") long id,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        return ResponseEntity.ok(apiService.fetchToolRegistration(id, user, group));
+    }
+
     /**
      * Handles DELETE requests for /apis/{id}
      *
@@ -102,12 +248,180 @@ public class ApiControllerImpl implements ApiManagementController {
     }
 
 
+    /**
+     * Handles POST requests for /apis/{id}/invoke
+     *
+     * @param query             The query to invoke the {@link Api} with
+     * @param id                The id of the {@link Api} to invoke
+     * @param idempotencyKey    If given, a retry of a non-GET query with the same key gets the response of the first request
+     * @return                  The wrapped upstream response
+     */
     public ResponseEntity<InvokeResult> invokeApi(
+            @RequestBody InvokeQuery query,
+            @PathVariable("id") int id,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group,
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String caller = tokenProvider.getSubjectFromToken();
+        if (query.getRequestType() == RequestType.GET) {
+            // GET queries are idempotent anyway and served from the response cache
+            return ResponseEntity.ok(apiService.invoke(id, user, group, query));
+        }
+        return idempotencyStore.execute(caller, "POST /apis/" + id + "/invoke?user=" + user + "&group=" + group,
+                idempotencyKey, query, () -> ResponseEntity.ok(apiService.invoke(id, user, group, query)));
+    }
+
+    /**
+     * Handles POST requests for /apis/{id}/invoke?mode=proxy
+     *
+     * @param query     The query to invoke the {@link Api} with
+     * @param id        The id of the {@link Api} to invoke
+     * @param response  The response the upstream response is streamed to
+     */
+    public void invokeApiProxy(
+            @RequestBody InvokeQuery query,
+            @PathVariable("id") int id,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group,
+            HttpServletResponse response) {
+        tokenProvider.getToken();
+        apiService.proxy(id, user, group, query, response);
+    }
+
+    /**
+     * Handles POST requests for /apis/invoke/batch
+     *
+     * @param items The {@link Api}s to invoke with their queries
+     * @return      The outcome of every invocation, in the order of the request
+     */
+    public ResponseEntity<List<BatchInvokeResult>> invokeApis(
+            @RequestBody List<BatchInvokeItem> items,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        BatchInvokeResult[] results = new BatchInvokeResult[items.size()];
+        apiService.invokeBatch(items, user, group, result -> results[result.getIndex()] = result);
+        return ResponseEntity.ok(Arrays.asList(results));
+    }
+
+    /**
+     * Handles POST requests for /apis/invoke/batch accepting {@code application/x-ndjson}.
+     * Every outcome is written and flushed as soon as it completes.
+     *
+     * @param items     The {@link Api}s to invoke with their queries
+     * @param response  The response the outcomes are streamed to
+     */
+    public void invokeApisStreamed(
+            @RequestBody List<BatchInvokeItem> items,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group,
+            HttpServletResponse response) throws IOException {
+        tokenProvider.getToken();
+        OutputStream out = response.getOutputStream();
+        try {
+            apiService.invokeBatch(items, user, group, result -> {
+                try {
+                    if (!response.isCommitted()) {
+                        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+                    }
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // The client has gone away, the remaining invocations have been cancelled
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handles POST requests for /apis/{id}/invoke?mode=async
+     *
+     * @param query The query to invoke the {@link Api} with
+     * @param id    The id of the {@link Api} to invoke
+     * @return      The submitted {@link InvokeJob}
+     */
+    public ResponseEntity<InvokeJob> invokeApiAsync(
             @RequestBody InvokeQuery query,
             @PathVariable("id") int id,
             @RequestParam("user") String user,
             @RequestParam(value = "group", required = false) String group) {
         tokenProvider.getToken();
-        return ResponseEntity.ok(apiService.invoke(id, user, group, query));
+        return accepted(apiService.invokeAsync(id, user, group, query), "/apis/invocations/{id}", InvokeJob::id);
+    }
+
+    /**
+     * Handles GET requests for /apis/invocations/{jobId}
+     *
+     * @param jobId The id of the {@link InvokeJob} to get
+     * @return      The current state of the {@link InvokeJob}
+     */
+    public ResponseEntity<InvokeJob> getInvocation(
+            @PathVariable("jobId") String jobId,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        return ResponseEntity.ok(apiService.fetchInvokeJob(jobId, user, group));
+    }
+
+    /**
+     * Handles GET requests for /apis/invocations/{jobId}/events. Sends the current state of the {@link InvokeJob}
+     * as {@code status} event and its final state as {@code result} event, then closes the stream.
+     *
+     * @param jobId The id of the {@link InvokeJob} to stream
+     * @return      The event stream
+     */
+    public SseEmitter streamInvocation(
+            @PathVariable("jobId") String jobId,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) throws IOException {
+        tokenProvider.getToken();
+        InvokeJob job = apiService.fetchInvokeJob(jobId, user, group);
+
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        emitter.send(SseEmitter.event().name("status").id(jobId).data(job, MediaType.APPLICATION_JSON));
+        apiService.awaitInvokeJob(jobId, user, group).whenComplete((finished, e) -> {
+            try {
+                emitter.send(SseEmitter.event().name("result").id(jobId).data(finished, MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException ex) {
+                // The client has gone away or the stream has timed out
+                emitter.completeWithError(ex);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Handles DELETE requests for /apis/invocations/{jobId}
+     *
+     * @param jobId The id of the {@link InvokeJob} to cancel
+     * @return      The state of the {@link InvokeJob}
+     */
+    public ResponseEntity<InvokeJob> cancelInvocation(
+            @PathVariable("jobId") String jobId,
+            @RequestParam("user") String user,
+            @RequestParam(value = "group", required = false) String group) {
+        tokenProvider.getToken();
+        return ResponseEntity.ok(apiService.cancelInvokeJob(jobId, user, group));
+    }
+
+    /**
+     * Answers an asynchronous request with 202 - Accepted and the location of the resource tracking it
+     *
+     * @param body      The resource tracking the request
+     * @param location  The path of the resource with an {@code {id}} variable
+     * @param idOf      Gets the id of the resource
+     */
+    private static <T> ResponseEntity<T> accepted(T body, String location, Function<T, Object> idOf) {
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path(location)
+                        .buildAndExpand(idOf.apply(body))
+                        .toUri())
+                .body(body);
     }
 }
@@ -1,7 +1,12 @@
 package de.thm.apimanagement.controller;
 import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.BatchInvokeItem;
+import de.thm.apimanagement.entity.BatchInvokeResult;
+import de.thm.apimanagement.entity.BatchItemResult;
+import de.thm.apimanagement.entity.InvokeJob;
 import de.thm.apimanagement.entity.InvokeQuery;
 import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.entity.ToolRegistration;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -11,9 +16,13 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 
 
@@ -23,22 +32,32 @@ public interface ApiManagementController {
 
     @Operation(
             summary = "List APIs",
-            description = "Returns all API definitions."
+            description = "Returns the API definitions the user or group has access to. "
+                    + "Without a limit all APIs are returned, otherwise the cursor of the next page "
+                    + "is returned in the X-Next-Cursor header."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "List of APIs returned",
                     content = {@Content(mediaType = "application/json",
                     array = @ArraySchema(schema = @Schema(implementation = Api.class)))}),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, sort order or fields"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping("/apis")
-    ResponseEntity<List<Api>> getApis(
+    void getApis(
             @Parameter(description = "Requesting user", required = true) String user,
-            @Parameter(description = "Requesting group") String group);
+            @Parameter(description = "Requesting group") String group,
+            @Parameter(description = "Maximum number of APIs to return") Integer limit,
+            @Parameter(description = "Cursor returned in X-Next-Cursor with the previous page") String cursor,
+            @Parameter(description = "Sort order: id (default) or name") String sort,
+            @Parameter(description = "Comma separated fields to return, summary for id, name, description, version and format")
+            String fields,
+            @Parameter(hidden = true) HttpServletResponse response) throws IOException;
 
     @Operation(
             summary = "Create an API",
-            description = "Creates a new API definition."
+            description = "Creates a new API definition. Retries sent with the same Idempotency-Key header "
+                    + "get the original response replayed instead of creating the API again."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "API created",
@@ -46,15 +65,100 @@ public interface ApiManagementController {
                     schema = @Schema(implementation = Api.class))}),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Not allowed"),
+            @ApiResponse(responseCode = "409", description = "Idempotency-Key reused for a different request or still in progress"),
             @ApiResponse(responseCode = "500", description = "Internal Server error")
     })
     @PostMapping("/apis")
     ResponseEntity<Api> postApi(
             @RequestBody Api api,
             @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Requesting group") String group,
+            @Parameter(description = "Unique key of the request, a retry with the same key gets the original response replayed")
+            String idempotencyKey
+    );
+
+    @Operation(
+            summary = "Create an API asynchronously",
+            description = "Creates a new API definition and returns once it has been stored. Assigning the API "
+                    + "and registering its MCP tool happen in the background, their progress is tracked by the "
+                    + "returned registration, which is linked in the Location header."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "API stored, registration pending",
+                    content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ToolRegistration.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal Server error")
+    })
+    @PostMapping(value = "/apis", params = "mode=async")
+    ResponseEntity<ToolRegistration> postApiAsync(
+            @RequestBody Api api,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Requesting group") String group,
+            @Parameter(description = "Unique key of the request, a retry with the same key gets the original response replayed")
+            String idempotencyKey
+    );
+
+    @Operation(
+            summary = "Create APIs",
+            description = "Creates multiple API definitions. The APIs are created independently of each other, "
+                    + "the outcome of every API is returned in the order of the request."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Outcome of every API",
+                    content = {@Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = BatchItemResult.class)))}),
+            @ApiResponse(responseCode = "400", description = "Too many APIs"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal Server error")
+    })
+    @PostMapping("/apis/batch")
+    ResponseEntity<List<BatchItemResult>> postApis(
+            @RequestBody List<Api> apis,
+            @Parameter(description = "Requesting user", required = true) String user,
             @Parameter(description = "Requesting group") String group
     );
 
+    @Operation(
+            summary = "Replace APIs",
+            description = "Replaces multiple existing API definitions, identified by their id. The APIs are updated "
+                    + "independently of each other, the outcome of every API is returned in the order of the request."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Outcome of every API",
+                    content = {@Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = BatchItemResult.class)))}),
+            @ApiResponse(responseCode = "400", description = "Too many APIs"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/apis/batch")
+    ResponseEntity<List<BatchItemResult>> putApis(
+            @RequestBody List<Api> apis,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    );
+
+    @Operation(
+            summary = "Delete APIs",
+            description = "Deletes multiple API definitions by id. The APIs are deleted independently of each other, "
+                    + "the outcome of every API is returned in the order of the request."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Outcome of every API",
+                    content = {@Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = BatchItemResult.class)))}),
+            @ApiResponse(responseCode = "400", description = "Too many APIs"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/apis/batch")
+    ResponseEntity<List<BatchItemResult>> deleteApis(
+            @Parameter(description = "Ids of the APIs to delete", required = true) List<Integer> ids,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    );
+
     @Operation(
             summary = "Get API by id",
             description = "Fetch a single API definition by its id."
@@ -95,6 +199,48 @@ public interface ApiManagementController {
             @Parameter(description = "Optional group") String group
     );
 
+    @Operation(
+            summary = "Replace an API asynchronously",
+            description = "Replaces an existing API definition by id and returns once it has been stored. "
+                    + "Updating its MCP tool happens in the background, its progress is tracked by the "
+                    + "returned registration, which is linked in the Location header."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "API stored, registration pending",
+                    content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ToolRegistration.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "API not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping(value = "/apis/{id}", params = "mode=async")
+    ResponseEntity<ToolRegistration> putApiAsync(
+            @RequestBody Api api,
+            @PathVariable int id,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    );
+
+    @Operation(
+            summary = "Get the registration of an API",
+            description = "Returns the progress of an asynchronous create or replace: PENDING while it is "
+                    + "dispatched or retried, DONE once the MCP tool has been registered and FAILED once "
+                    + "it has been given up on."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Registration returned",
+                    content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ToolRegistration.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Registration not found")
+    })
+    @GetMapping("/apis/registrations/{id}")
+    ResponseEntity<ToolRegistration> getRegistration(
+            @PathVariable long id,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Requesting group") String group
+    );
+
     @Operation(
             summary = "Delete an API",
             description = "Deletes an API definition by id."
@@ -115,7 +261,8 @@ public interface ApiManagementController {
 
     @Operation(
             summary = "Invoke an API",
-            description = "Invokes the configured upstream API using the provided query."
+            description = "Invokes the configured upstream API using the provided query. Retries of non-GET "
+                    + "queries sent with the same Idempotency-Key header get the original response replayed."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Invocation result",
@@ -124,6 +271,8 @@ public interface ApiManagementController {
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Not allowed"),
             @ApiResponse(responseCode = "404", description = "API not found"),
+            @ApiResponse(responseCode = "409", description = "Idempotency-Key reused for a different request or still in progress"),
+            @ApiResponse(responseCode = "429", description = "Rate limit or concurrency cap exceeded"),
             @ApiResponse(responseCode = "500", description = "Internal Server error")
     })
     @PostMapping("/apis/{id}/invoke")
@@ -131,7 +280,151 @@ public interface ApiManagementController {
             @RequestBody InvokeQuery query,
             @PathVariable int id,
             @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group,
+            @Parameter(description = "Unique key of the request, a retry with the same key gets the original response "
+                    + "replayed. Ignored for GET requests.")
+            String idempotencyKey
+    );
+
+    @Operation(
+            summary = "Invoke an API and stream its response",
+            description = "Invokes the configured upstream API using the provided query. Status, headers " +
+                    "and body of the upstream response are streamed back as is instead of being wrapped."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "default", description = "Upstream response"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Not allowed"),
+            @ApiResponse(responseCode = "404", description = "API not found"),
+            @ApiResponse(responseCode = "429", description = "Rate limit or concurrency cap exceeded"),
+            @ApiResponse(responseCode = "500", description = "Internal Server error")
+    })
+    @PostMapping(value = "/apis/{id}/invoke", params = "mode=proxy")
+    void invokeApiProxy(
+            @RequestBody InvokeQuery query,
+            @PathVariable int id,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group,
+            @Parameter(hidden = true) HttpServletResponse response
+    );
+
+    @Operation(
+            summary = "Invoke APIs",
+            description = "Invokes multiple APIs, or one API multiple times, concurrently. Access is checked once "
+                    + "for the whole batch. The outcome of every invocation is returned in the order of the request, "
+                    + "invocations which have not finished by the deadline of the batch are reported with status 504."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Outcome of every invocation",
+                    content = {@Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = BatchInvokeResult.class)))}),
+            @ApiResponse(responseCode = "400", description = "Too many invocations"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "503", description = "Too many invocations running")
+    })
+    @PostMapping("/apis/invoke/batch")
+    ResponseEntity<List<BatchInvokeResult>> invokeApis(
+            @RequestBody List<BatchInvokeItem> items,
+            @Parameter(description = "Requesting user", required = true) String user,
             @Parameter(description = "Optional group") String group
     );
-}
 
+    @Operation(
+            summary = "Invoke APIs and stream the outcomes",
+            description = "Same as invoking APIs, but the outcome of every invocation is streamed as one line "
+                    + "of newline delimited JSON as soon as it completes. Outcomes carry the index of their invocation."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Outcome of every invocation",
+                    content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = BatchInvokeResult.class))}),
+            @ApiResponse(responseCode = "400", description = "Too many invocations"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "503", description = "Too many invocations running")
+    })
+    @PostMapping(value = "/apis/invoke/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    void invokeApisStreamed(
+            @RequestBody List<BatchInvokeItem> items,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group,
+            @Parameter(hidden = true) HttpServletResponse response
+    ) throws IOException;
+
+    @Operation(
+            summary = "Invoke an API asynchronously",
+            description = "Invokes the configured upstream API using the provided query in the background and "
+                    + "returns a job at once. The job is linked in the Location header, its result can be polled "
+                    + "or streamed as server-sent events."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job submitted",
+                    content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = InvokeJob.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Not allowed"),
+            @ApiResponse(responseCode = "404", description = "API not found"),
+            @ApiResponse(responseCode = "429", description = "Rate limit or concurrency cap exceeded"),
+            @ApiResponse(responseCode = "503", description = "Too many jobs queued")
+    })
+    @PostMapping(value = "/apis/{id}/invoke", params = "mode=async")
+    ResponseEntity<InvokeJob> invokeApiAsync(
+            @RequestBody InvokeQuery query,
+            @PathVariable int id,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    );
+
+    @Operation(
+            summary = "Get an asynchronous invocation",
+            description = "Returns the current state of an asynchronous invocation, including the result once it has finished."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job returned",
+                    content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = InvokeJob.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @GetMapping("/apis/invocations/{jobId}")
+    ResponseEntity<InvokeJob> getInvocation(
+            @PathVariable String jobId,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    );
+
+    @Operation(
+            summary = "Stream an asynchronous invocation",
+            description = "Streams the state of an asynchronous invocation as server-sent events: a status event "
+                    + "with the current state at once and a result event with the final state once it has finished."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @GetMapping(value = "/apis/invocations/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter streamInvocation(
+            @PathVariable String jobId,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    ) throws IOException;
+
+    @Operation(
+            summary = "Cancel an asynchronous invocation",
+            description = "Cancels an asynchronous invocation which is still running. A finished job keeps its state."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "State of the job",
+                    content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = InvokeJob.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @DeleteMapping("/apis/invocations/{jobId}")
+    ResponseEntity<InvokeJob> cancelInvocation(
+            @PathVariable String jobId,
+            @Parameter(description = "Requesting user", required = true) String user,
+            @Parameter(description = "Optional group") String group
+    );
+}
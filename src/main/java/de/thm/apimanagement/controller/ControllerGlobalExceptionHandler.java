@@ -1,9 +1,15 @@
 package de.thm.apimanagement.controller;
 
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+import de.thm.apimanagement.service.exceptions.ServiceConflict;
 import de.thm.apimanagement.service.exceptions.ServiceError;
 import de.thm.apimanagement.service.exceptions.ServiceNotAllowed;
 import de.thm.apimanagement.service.exceptions.ServiceNotFound;
+import de.thm.apimanagement.service.exceptions.ServiceRateLimited;
+import de.thm.apimanagement.service.exceptions.ServiceUnavailable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -20,6 +26,12 @@ public class ControllerGlobalExceptionHandler {
         return Map.of("error", "Unauthorized", "message", ex.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(ServiceBadRequest.class)
+    public Map<String, String> handleServiceBadRequestException(ServiceBadRequest ex) {
+        return Map.of("error", "Bad request", "message", ex.getMessage());
+    }
+
     @ResponseStatus(HttpStatus.FORBIDDEN)
     @ExceptionHandler(ServiceNotAllowed.class)
     public Map<String, String> handleServiceNotAllowedException(ServiceNotAllowed ex) {
@@ -32,6 +44,25 @@ public class ControllerGlobalExceptionHandler {
         return Map.of("error", "Resource not found", "message", ex.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ServiceConflict.class)
+    public Map<String, String> handleServiceConflictException(ServiceConflict ex) {
+        return Map.of("error", "Conflict", "message", ex.getMessage());
+    }
+
+    @ExceptionHandler(ServiceRateLimited.class)
+    public ResponseEntity<Map<String, String>> handleServiceRateLimitedException(ServiceRateLimited ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(Map.of("error", "Too many requests", "message", ex.getMessage()));
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceUnavailable.class)
+    public Map<String, String> handleServiceUnavailableException(ServiceUnavailable ex) {
+        return Map.of("error", "Service unavailable", "message", ex.getMessage());
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(ServiceError.class)
     public Map<String, String> handleServiceErrorException(ServiceError ex) {
@@ -0,0 +1,211 @@
+package de.thm.apimanagement.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.entity.SpecDigest;
+import de.thm.apimanagement.service.exceptions.ServiceConflict;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * IdempotencyStore remembers the responses of requests sent with an {@code Idempotency-Key} header, so a client
+ * retrying such a request gets the original response replayed instead of running it again.
+ * A duplicate which arrives while the original request is still running is held until the original one finishes.
+ * <p>
+ * Keys are scoped to the caller and the operation, and are bound to the request they have been used with first,
+ * reusing one for a different request is answered with 409. Only successful responses are kept, a failed request
+ * can be retried with the same key. The store is bounded by the size of the kept responses and entries expire
+ * after a configurable TTL, its hits and misses are exposed as {@code cache.*} metrics with {@code cache=idempotency}.
+ * Requests which are still running are held apart from the kept responses until they finish, so they are never
+ * evicted and a duplicate can always find them.
+ * Responses larger than the maximum entry size are only handed to the duplicates waiting for them, a later retry
+ * runs the request again.
+ */
+@Component
+public class IdempotencyStore {
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    // What an entry takes besides its body: the key, the fingerprint, the future and the headers of the response
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private record Key(String caller, String operation, String idempotencyKey) {}
+
+    private record Entry(String fingerprint, CompletableFuture<ResponseEntity<?>> response, int weight) {}
+
+    private final Cache<Key, Entry> cache;
+    private final ConcurrentMap<Key, Entry> pending = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final long maxEntrySize;
+    private final Duration waitTimeout;
+
+    public IdempotencyStore(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.ttl:24h}") Duration ttl,
+            @Value("${idempotency.max-size:64MB}") DataSize maxSize,
+            @Value("${idempotency.max-entry-size:1MB}") DataSize maxEntrySize,
+            @Value("${idempotency.wait-timeout:60s}") Duration waitTimeout) {
+        this.objectMapper = objectMapper;
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.waitTimeout = waitTimeout;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    /**
+     * Runs a request once per idempotency key
+     *
+     * @param caller            The subject of the token the request is made with
+     * @param operation         The operation, e.g. {@code POST /apis}
+     * @param idempotencyKey    The key sent by the client. Without a key the request is simply run.
+     * @param request           The body of the request, which is bound to the key
+     * @param call              Runs the request
+     * @return                  The response of the request, or the replayed response of its first run
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String caller, String operation, String idempotencyKey,
+                                         Object request, Supplier<ResponseEntity<T>> call) {
+        if (!StringUtils.hasText(idempotencyKey)) {
+            return call.get();
+        }
+
+        Key key = new Key(caller, operation, idempotencyKey);
+        // A running request is weighed once it has finished and its body is known
+        Entry entry = new Entry(fingerprint(request), new CompletableFuture<>(), 0);
+        Entry existing = claim(key, entry);
+
+        if (existing == null) {
+            try {
+                ResponseEntity<T> response = call.get();
+                keep(key, entry, response);
+                entry.response().complete(response);
+                return response;
+            } catch (RuntimeException e) {
+                pending.remove(key, entry);
+                entry.response().completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        if (!existing.fingerprint().equals(entry.fingerprint())) {
+            throw new ServiceConflict("Idempotency-Key has already been used for a different request");
+        }
+        return (ResponseEntity<T>) replay(await(existing));
+    }
+
+    /**
+     * @return  The weight of all entries once pending evictions have been made
+     */
+    long weightedSize() {
+        cache.cleanUp();
+        return cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+
+    /**
+     * Registers a request as pending, unless a request with the same key is pending or its response is kept
+     *
+     * @return  The entry of the earlier request, or {@code null} if the request has to be run
+     */
+    private Entry claim(Key key, Entry entry) {
+        Entry kept = cache.getIfPresent(key);
+        if (kept != null) {
+            return kept;
+        }
+
+        Entry[] existing = new Entry[1];
+        pending.compute(key, (k, current) -> {
+            // A request which has just finished is moved into the cache while holding its key, see keep
+            existing[0] = current != null ? current : cache.asMap().get(k);
+            return existing[0] != null ? current : entry;
+        });
+        return existing[0];
+    }
+
+    /**
+     * Moves a finished request from the pending requests into the cache, weighed with its body
+     */
+    private void keep(Key key, Entry entry, ResponseEntity<?> response) {
+        long size = sizeOf(response.getBody());
+        pending.computeIfPresent(key, (k, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            if (size <= maxEntrySize) {
+                int weight = (int) Math.min(Integer.MAX_VALUE, size + ENTRY_OVERHEAD);
+                cache.put(k, new Entry(entry.fingerprint(), entry.response(), weight));
+            }
+            return null;
+        });
+    }
+
+    private long sizeOf(Object body) {
+        if (body == null) {
+            return 0;
+        }
+        if (body instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (body instanceof String text) {
+            // Strings of non-Latin-1 text take two bytes per character, weigh them as such
+            return 2L * text.length();
+        }
+        try {
+            return objectMapper.writeValueAsBytes(body).length;
+        } catch (JsonProcessingException e) {
+            // What cannot be measured is not kept
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private ResponseEntity<?> await(Entry entry) {
+        try {
+            return entry.response().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceConflict("A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException e) {
+            // The original request has failed, so has its duplicate
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceConflict("A request with this Idempotency-Key is still in progress");
+        }
+    }
+
+    private static ResponseEntity<?> replay(ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private String fingerprint(Object request) {
+        return SpecDigest.of(request != null ? objectMapper.convertValue(request, MAP_TYPE) : null);
+    }
+}
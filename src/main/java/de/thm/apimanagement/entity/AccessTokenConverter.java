@@ -0,0 +1,92 @@
+package de.thm.apimanagement.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts the access token of a {@link ToolRegistration} with AES-GCM when saved inside the database and
+ * decrypts it when read from the database, so tokens can neither be read from the database nor from its backups.
+ * <p>
+ * The key is configured in {@code tool-registration.token-key} as Base64 encoded AES key and is required
+ * while the asynchronous mode is enabled, see {@link de.thm.apimanagement.config.ToolRegistrationConfig}.
+ * A token which cannot be decrypted, e.g. after the key has been changed, is read as {@code null}.
+ */
+@Converter
+public class AccessTokenConverter implements AttributeConverter<String, String> {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Logger logger = LoggerFactory.getLogger(AccessTokenConverter.class);
+    private final SecretKey key;
+
+    public AccessTokenConverter(@Value("${tool-registration.token-key:}") String key) {
+        this.key = key == null || key.isBlank()
+                ? null
+                : new SecretKeySpec(Base64.getDecoder().decode(key.trim()), "AES");
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String token) {
+        if (token == null) {
+            return null;
+        }
+        if (key == null) {
+            throw new IllegalStateException("Could not encrypt access token: tool-registration.token-key is not set");
+        }
+
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(IV_LENGTH + encrypted.length)
+                    .put(iv)
+                    .put(encrypted)
+                    .array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt access token", e);
+        }
+    }
+
+    @Override
+    public String convertToEntityAttribute(String data) {
+        if (data == null) {
+            return null;
+        }
+        if (key == null) {
+            logger.warn("Could not decrypt access token: tool-registration.token-key is not set");
+            return null;
+        }
+
+        try {
+            byte[] raw = Base64.getDecoder().decode(data);
+            if (raw.length < IV_LENGTH + TAG_BITS / 8) {
+                logger.warn("Could not decrypt access token: it is too short");
+                return null;
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, raw, 0, IV_LENGTH));
+            return new String(cipher.doFinal(raw, IV_LENGTH, raw.length - IV_LENGTH), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            // Written with another key
+            logger.warn("Could not decrypt access token: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package de.thm.apimanagement.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,11 +22,17 @@ public class Api {
     private String description;
     private String version;
     private String format;
-    @Convert(converter = JsonToMapConverter.class)
-    @Lob
+    // The specification is stored once per content in a SpecBlob, the API refers to it by its hash
+    @Transient
     private Map<String, Object> spec;
+    @Column(length = 64)
+    @JsonIgnore
+    private String specHash;
     @Lob
     private String token;
+    private Integer rateLimitPerSecond;
+    private Integer rateLimitBurst;
+    private Integer maxConcurrentInvocations;
 
     public Api(Api other) {
         this.id = other.id;
@@ -34,7 +41,11 @@ public class Api {
         this.version = other.version;
         this.format = other.format;
         this.spec = other.spec;
+        this.specHash = other.specHash;
         this.token = other.token;
+        this.rateLimitPerSecond = other.rateLimitPerSecond;
+        this.rateLimitBurst = other.rateLimitBurst;
+        this.maxConcurrentInvocations = other.maxConcurrentInvocations;
     }
 
     @PrePersist
@@ -0,0 +1,81 @@
+package de.thm.apimanagement.entity;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The fields of an {@link Api} which can be selected when listing APIs
+ */
+public final class ApiFields {
+    private static final Map<String, Function<Api, Object>> ACCESSORS = new LinkedHashMap<>();
+
+    static {
+        ACCESSORS.put("id", Api::getId);
+        ACCESSORS.put("name", Api::getName);
+        ACCESSORS.put("description", Api::getDescription);
+        ACCESSORS.put("version", Api::getVersion);
+        ACCESSORS.put("format", Api::getFormat);
+        ACCESSORS.put("spec", Api::getSpec);
+        ACCESSORS.put("token", Api::getToken);
+        ACCESSORS.put("rateLimitPerSecond", Api::getRateLimitPerSecond);
+        ACCESSORS.put("rateLimitBurst", Api::getRateLimitBurst);
+        ACCESSORS.put("maxConcurrentInvocations", Api::getMaxConcurrentInvocations);
+    }
+
+    /**
+     * The fields contained in an {@link ApiSummary}
+     */
+    public static final Set<String> SUMMARY = Set.of("id", "name", "description", "version", "format");
+
+    private ApiFields() {}
+
+    /**
+     * Parses a comma separated list of fields. {@code summary} selects all fields of an {@link ApiSummary}.
+     *
+     * @param fields    The fields to select
+     * @return          The selected fields in their declared order or {@code null} if no fields have been given,
+     *                  which selects the whole {@link Api}
+     * @throws IllegalArgumentException if an unknown field has been given
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .flatMap(field -> field.equals("summary") ? SUMMARY.stream() : Stream.of(field))
+                .collect(Collectors.toSet());
+        for (String field : requested) {
+            if (!ACCESSORS.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field " + field);
+            }
+        }
+
+        return ACCESSORS.keySet().stream()
+                .filter(requested::contains)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Gets the selected fields of an {@link Api}
+     *
+     * @param api       The API to get the fields of
+     * @param fields    The fields to select
+     * @return          The values of the selected fields by their names
+     */
+    public static Map<String, Object> select(Api api, Set<String> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>(fields.size() * 2);
+        for (String field : fields) {
+            selected.put(field, ACCESSORS.get(field).apply(api));
+        }
+        return selected;
+    }
+}
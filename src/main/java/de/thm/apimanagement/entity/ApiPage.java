@@ -0,0 +1,13 @@
+package de.thm.apimanagement.entity;
+
+import java.util.Set;
+
+/**
+ * A page of {@link Api}s. Only the order of the page is determined before the page is returned, the APIs
+ * are loaded chunk by chunk while they are iterated.
+ *
+ * @param apis          The APIs on the page, loaded while they are iterated
+ * @param fields        The fields to return or {@code null} for whole APIs
+ * @param nextCursor    The cursor of the next page or {@code null} if this is the last page
+ */
+public record ApiPage(Iterable<Api> apis, Set<String> fields, String nextCursor) {}
@@ -0,0 +1,11 @@
+package de.thm.apimanagement.entity;
+
+/**
+ * A request for a page of {@link Api}s
+ *
+ * @param limit     The maximum number of APIs on the page, {@code null} for all APIs
+ * @param cursor    The cursor returned with the previous page, {@code null} for the first page
+ * @param sort      The order of the APIs, see {@link ApiSort}
+ * @param fields    The fields to return, see {@link ApiFields#parse}
+ */
+public record ApiPageRequest(Integer limit, String cursor, String sort, String fields) {}
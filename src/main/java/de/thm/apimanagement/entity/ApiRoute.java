@@ -0,0 +1,13 @@
+package de.thm.apimanagement.entity;
+
+/**
+ * Closed projection of an {@link Api} which only contains what is needed to invoke it.
+ * Neither the metadata nor the hash of the specification are part of the projection.
+ */
+public interface ApiRoute {
+    int getId();
+    String getToken();
+    Integer getRateLimitPerSecond();
+    Integer getRateLimitBurst();
+    Integer getMaxConcurrentInvocations();
+}
@@ -0,0 +1,22 @@
+package de.thm.apimanagement.entity;
+
+import java.util.Locale;
+
+/**
+ * The orders a list of {@link Api}s can be sorted in. Ties are always broken by id.
+ */
+public enum ApiSort {
+    ID,
+    NAME;
+
+    /**
+     * Gets an order by its name as used in requests
+     *
+     * @param name  The name of the order, e.g. {@code name}. Defaults to {@link #ID} if empty.
+     * @return      The order
+     * @throws IllegalArgumentException if there is no order with this name
+     */
+    public static ApiSort of(String name) {
+        return name == null || name.isBlank() ? ID : valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,10 @@
+package de.thm.apimanagement.entity;
+
+/**
+ * Closed projection of an {@link Api} which only contains the columns a list of APIs can be sorted by,
+ * see {@link ApiSort}.
+ */
+public interface ApiSortKey {
+    int getId();
+    String getName();
+}
@@ -0,0 +1,14 @@
+package de.thm.apimanagement.entity;
+
+/**
+ * Closed projection of an {@link Api} which only contains its metadata.
+ * The {@code token} LOB column and the hash of the specification are not part of the projection
+ * and are therefore never read from the database.
+ */
+public interface ApiSummary {
+    int getId();
+    String getName();
+    String getDescription();
+    String getVersion();
+    String getFormat();
+}
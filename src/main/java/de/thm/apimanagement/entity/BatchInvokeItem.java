@@ -0,0 +1,22 @@
+package de.thm.apimanagement.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single invocation of a batch invoke request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchInvokeItem {
+    /**
+     * Id of the {@link Api} to invoke
+     */
+    private int apiId;
+    /**
+     * The query to invoke the {@link Api} with
+     */
+    private InvokeQuery query;
+}
@@ -0,0 +1,32 @@
+package de.thm.apimanagement.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The outcome of a single invocation of a batch invoke request
+ */
+@Data
+@AllArgsConstructor
+public class BatchInvokeResult {
+    /**
+     * Position of the invocation in the request
+     */
+    private int index;
+    /**
+     * Id of the invoked {@link Api}
+     */
+    private int apiId;
+    /**
+     * HTTP status the invocation would have been answered with as a single request
+     */
+    private int status;
+    /**
+     * The wrapped upstream response, {@code null} on failure
+     */
+    private InvokeResult result;
+    /**
+     * Reason of the failure, {@code null} on success
+     */
+    private String error;
+}
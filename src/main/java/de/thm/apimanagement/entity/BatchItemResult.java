@@ -0,0 +1,28 @@
+package de.thm.apimanagement.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The outcome of a single item of a batch request
+ */
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    /**
+     * Position of the item in the request
+     */
+    private int index;
+    /**
+     * Id of the {@link Api}, {@code null} if a new API could not be saved
+     */
+    private Integer id;
+    /**
+     * HTTP status the item would have been answered with as a single request
+     */
+    private int status;
+    /**
+     * Reason of the failure, {@code null} on success
+     */
+    private String error;
+}
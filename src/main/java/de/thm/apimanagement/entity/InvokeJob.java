@@ -0,0 +1,45 @@
+package de.thm.apimanagement.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * The state of an asynchronous invocation of an {@link Api}. A new state is created for every change,
+ * so a state can be handed out while the invocation goes on.
+ *
+ * @param id            The id of the job
+ * @param apiId         The id of the invoked API
+ * @param status        The status of the job
+ * @param result        The wrapped upstream response once the job has succeeded
+ * @param errorStatus   The HTTP status the invocation would have been answered with once the job has failed
+ * @param error         The reason of the failure
+ * @param createdAt     When the job has been submitted
+ * @param finishedAt    When the job has finished, {@code null} while it is running
+ */
+public record InvokeJob(String id, int apiId, Status status, InvokeResult result, Integer errorStatus, String error,
+                        Instant createdAt, Instant finishedAt) {
+
+    public enum Status { RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    public static InvokeJob running(String id, int apiId) {
+        return new InvokeJob(id, apiId, Status.RUNNING, null, null, null, Instant.now(), null);
+    }
+
+    public InvokeJob succeeded(InvokeResult result) {
+        return new InvokeJob(id, apiId, Status.SUCCEEDED, result, null, null, createdAt, Instant.now());
+    }
+
+    public InvokeJob failed(int errorStatus, String error) {
+        return new InvokeJob(id, apiId, Status.FAILED, null, errorStatus, error, createdAt, Instant.now());
+    }
+
+    public InvokeJob cancelled() {
+        return new InvokeJob(id, apiId, Status.CANCELLED, null, null, null, createdAt, Instant.now());
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+}
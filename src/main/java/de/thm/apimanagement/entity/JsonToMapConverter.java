@@ -2,6 +2,7 @@ package de.thm.apimanagement.entity;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 
@@ -11,13 +12,15 @@ import java.util.Map;
 
 /**
  * Converts a JSON structure to a string when saved inside the database and to a JSON structure
- * when read from the database
+ * when read from the database. Both directions are timed as {@code spec.conversion}.
  *
  * @author Justin Wolek
  */
 @Converter
 public class JsonToMapConverter implements AttributeConverter<Map<String, Object>, String> {
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Timer encodeTimer = SpecConversionMetrics.timer("json-text", "encode");
+    private final Timer decodeTimer = SpecConversionMetrics.timer("json-text", "decode");
 
     /**
      * Converts from a {@code Map<String, Object>} to a String
@@ -30,10 +33,13 @@ public class JsonToMapConverter implements AttributeConverter<Map<String, Object
         if (stringObjectMap == null) {
             return null;
         }
+        Timer.Sample sample = Timer.start();
         try {
             return objectMapper.writeValueAsString(stringObjectMap);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Error converting map to JSON", e);
+        } finally {
+            sample.stop(encodeTimer);
         }
     }
 
@@ -48,10 +54,13 @@ public class JsonToMapConverter implements AttributeConverter<Map<String, Object
         if (s == null) {
             return new HashMap<>();
         }
+        Timer.Sample sample = Timer.start();
         try {
             return objectMapper.readValue(s, Map.class);
         } catch (IOException e) {
             throw new RuntimeException("Error converting JSON to map", e);
+        } finally {
+            sample.stop(decodeTimer);
         }
     }
 }
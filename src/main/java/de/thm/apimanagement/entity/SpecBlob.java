@@ -0,0 +1,59 @@
+package de.thm.apimanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * An API specification stored once under its content hash as computed by {@link SpecDigest#of}.
+ * {@link Api}s refer to the specification by its hash, the number of referring APIs is counted in {@code refCount}.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+public class SpecBlob implements Persistable<String> {
+    @Id
+    @Column(length = 64)
+    private String hash;
+    @Convert(converter = SpecStorageConverter.class)
+    @Lob
+    private Map<String, Object> content;
+    private int refCount;
+    private Instant createdAt;
+
+    // Blobs are only ever inserted, so saving a new instance must not merge it into an existing row
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    public SpecBlob(String hash, Map<String, Object> content, int refCount, Instant createdAt) {
+        this.hash = hash;
+        this.content = content;
+        this.refCount = refCount;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
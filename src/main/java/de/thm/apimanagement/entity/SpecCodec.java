@@ -0,0 +1,131 @@
+package de.thm.apimanagement.entity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Storage formats for API specifications. Every stored specification starts with the id of the codec
+ * it has been encoded with, so rows written with different codecs can be read side by side and the codec
+ * used for writing can be changed without migrating existing rows.
+ * Data without a known id, which starts with {@code '{'}, is read as plain JSON text as written by
+ * {@link JsonToMapConverter}.
+ */
+public enum SpecCodec {
+    /**
+     * Plain JSON as UTF-8
+     */
+    JSON((byte) 1) {
+        @Override
+        void write(Map<String, Object> spec, OutputStream out) throws IOException {
+            JSON_MAPPER.writeValue(out, spec);
+        }
+
+        @Override
+        Map<String, Object> read(InputStream in) throws IOException {
+            return JSON_MAPPER.readValue(in, MAP_TYPE);
+        }
+    },
+
+    /**
+     * Binary JSON (Smile) compressed with deflate. Smile refers back to repeated keys and short values,
+     * which are frequent in API specifications, and is parsed faster than text.
+     */
+    SMILE_DEFLATE((byte) 2) {
+        @Override
+        void write(Map<String, Object> spec, OutputStream out) throws IOException {
+            try (DeflaterOutputStream deflated = new DeflaterOutputStream(out)) {
+                SMILE_MAPPER.writeValue(deflated, spec);
+            }
+        }
+
+        @Override
+        Map<String, Object> read(InputStream in) throws IOException {
+            try (InflaterInputStream inflated = new InflaterInputStream(in)) {
+                return SMILE_MAPPER.readValue(inflated, MAP_TYPE);
+            }
+        }
+    };
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper SMILE_MAPPER = new SmileMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final byte id;
+
+    SpecCodec(byte id) {
+        this.id = id;
+    }
+
+    abstract void write(Map<String, Object> spec, OutputStream out) throws IOException;
+
+    abstract Map<String, Object> read(InputStream in) throws IOException;
+
+    /**
+     * Encodes a specification, prefixed with the id of this codec
+     *
+     * @param spec  The specification to encode
+     * @return      The encoded specification
+     */
+    public byte[] encode(Map<String, Object> spec) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(id);
+            write(spec, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding specification", e);
+        }
+    }
+
+    /**
+     * Decodes a specification with the codec it has been encoded with
+     *
+     * @param data  The encoded specification
+     * @return      The specification
+     */
+    public static Map<String, Object> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new HashMap<>();
+        }
+
+        try {
+            if (data[0] == '{') {
+                return JSON.read(new ByteArrayInputStream(data));
+            }
+            return byId(data[0]).read(new ByteArrayInputStream(data, 1, data.length - 1));
+        } catch (IOException e) {
+            throw new RuntimeException("Error decoding specification", e);
+        }
+    }
+
+    /**
+     * Gets a codec by its name as used in the configuration, e.g. {@code smile-deflate}
+     *
+     * @param name  The name of the codec
+     * @return      The codec
+     */
+    public static SpecCodec byName(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+    private static SpecCodec byId(byte id) {
+        for (SpecCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown specification codec " + id);
+    }
+}
@@ -0,0 +1,27 @@
+package de.thm.apimanagement.entity;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers of the attribute converters for specifications. Converters are created by Hibernate, so the
+ * timers are registered in the global registry, which Spring Boot adds its registry to.
+ */
+final class SpecConversionMetrics {
+    private SpecConversionMetrics() {}
+
+    /**
+     * Gets the timer {@code spec.conversion} of a converter
+     *
+     * @param converter The converter, {@code json-text} or {@code storage}
+     * @param operation The direction, {@code encode} or {@code decode}
+     * @return          The timer
+     */
+    static Timer timer(String converter, String operation) {
+        return Timer.builder("spec.conversion")
+                .description("Duration of converting a specification to or from its database column")
+                .tag("converter", converter)
+                .tag("operation", operation)
+                .register(Metrics.globalRegistry);
+    }
+}
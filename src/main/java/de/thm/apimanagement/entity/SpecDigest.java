@@ -0,0 +1,52 @@
+package de.thm.apimanagement.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Computes content hashes of API specifications. The specification is serialized canonically
+ * with map entries ordered by key, so equal specifications always have the same hash
+ * regardless of the order their fields have been sent in.
+ */
+public final class SpecDigest {
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private SpecDigest() {}
+
+    /**
+     * Computes the SHA-256 hash of a specification
+     *
+     * @param spec  The specification to hash
+     * @return      The hash as a lowercase hex string with 64 characters
+     */
+    public static String of(Map<String, Object> spec) {
+        try {
+            byte[] canonical = CANONICAL_MAPPER.writeValueAsBytes(spec != null ? spec : Map.of());
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error converting map to JSON", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Computes the key of a conversion of a specification with a given format
+     *
+     * @param format    Specification format. Can be OpenAPI or RAML
+     * @param spec      The specification to convert
+     * @return          The key in the form {@code <format>:<hash>}
+     */
+    public static String conversionKey(String format, Map<String, Object> spec) {
+        return format.toLowerCase(Locale.ROOT) + ":" + of(spec);
+    }
+}
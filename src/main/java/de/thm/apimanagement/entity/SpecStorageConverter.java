@@ -0,0 +1,48 @@
+package de.thm.apimanagement.entity;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Map;
+
+/**
+ * Converts a JSON structure to its binary storage format when saved inside the database and back
+ * when read from the database. New rows are written with the {@link SpecCodec} configured in
+ * {@code spec-storage.codec}, rows are read with the codec they have been written with.
+ * Both directions are timed as {@code spec.conversion}.
+ */
+@Converter
+public class SpecStorageConverter implements AttributeConverter<Map<String, Object>, byte[]> {
+    private final SpecCodec codec;
+    private final Timer encodeTimer = SpecConversionMetrics.timer("storage", "encode");
+    private final Timer decodeTimer = SpecConversionMetrics.timer("storage", "decode");
+
+    public SpecStorageConverter(@Value("${spec-storage.codec:smile-deflate}") String codec) {
+        this.codec = SpecCodec.byName(codec);
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(Map<String, Object> spec) {
+        if (spec == null) {
+            return null;
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            return codec.encode(spec);
+        } finally {
+            sample.stop(encodeTimer);
+        }
+    }
+
+    @Override
+    public Map<String, Object> convertToEntityAttribute(byte[] data) {
+        Timer.Sample sample = Timer.start();
+        try {
+            return SpecCodec.decode(data);
+        } finally {
+            sample.stop(decodeTimer);
+        }
+    }
+}
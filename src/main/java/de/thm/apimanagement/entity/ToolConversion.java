@@ -0,0 +1,25 @@
+package de.thm.apimanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A {@link ToolDefinition} which has been converted from a specification by the Spec2Tool subsystem,
+ * stored under the key of the conversion as computed by {@link SpecDigest#conversionKey}
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolConversion {
+    @Id
+    @Column(length = 80)
+    private String conversionKey;
+    @Lob
+    private String toolDefinition;
+    private Instant createdAt;
+}
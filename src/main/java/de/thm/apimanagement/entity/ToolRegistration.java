@@ -0,0 +1,71 @@
+package de.thm.apimanagement.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An outbox record of an {@link Api} which has been saved or updated asynchronously. It is committed
+ * together with the API, the MCP tool of the API is registered afterwards by the
+ * {@link de.thm.apimanagement.service.ToolRegistrationDispatcher}. Doubles as the status resource
+ * returned to the client.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "status, nextAttemptAt"))
+public class ToolRegistration {
+    public enum Operation { CREATE, UPDATE }
+
+    public enum Status { PENDING, DONE, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+    private int apiId;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Operation operation;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Status status;
+    /**
+     * Whether the API has been assigned to its user or group, so a retry does not assign it twice
+     */
+    private boolean assigned;
+    private int attempts;
+    private Instant nextAttemptAt;
+    @Column(length = 1000)
+    private String lastError;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    @JsonIgnore
+    private String userName;
+    @JsonIgnore
+    private String groupName;
+    /**
+     * Token of the request which has created the record. Subsystems are called on behalf of it,
+     * it is stored encrypted and removed once the record is finished.
+     */
+    @JsonIgnore
+    @Convert(converter = AccessTokenConverter.class)
+    @Lob
+    private String accessToken;
+
+    public ToolRegistration(int apiId, Operation operation, String userName, String groupName,
+                            String accessToken, Instant now) {
+        this.apiId = apiId;
+        this.operation = operation;
+        this.status = Status.PENDING;
+        this.userName = userName;
+        this.groupName = groupName;
+        this.accessToken = accessToken;
+        this.nextAttemptAt = now;
+        this.createdAt = now;
+        this.updatedAt = now;
+    }
+}
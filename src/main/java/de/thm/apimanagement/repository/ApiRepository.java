@@ -1,6 +1,161 @@
 package de.thm.apimanagement.repository;
 
 import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiRoute;
+import de.thm.apimanagement.entity.ApiSort;
+import de.thm.apimanagement.entity.ApiSortKey;
+import de.thm.apimanagement.entity.ApiSummary;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
-public interface ApiRepository extends CrudRepository<Api, Integer> {}
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+public interface ApiRepository extends CrudRepository<Api, Integer> {
+
+    /**
+     * Maximum number of ids which are bound into a single {@code IN} clause.
+     * Larger id sets are split into multiple queries.
+     */
+    int ID_CHUNK_SIZE = 500;
+
+    /**
+     * The order of names used by {@link #findSortKeysOrderedByName}: by their UTF-8 bytes, compared unsigned
+     */
+    Comparator<String> NAME_ORDER = (first, second) -> Arrays.compareUnsigned(
+            first.getBytes(StandardCharsets.UTF_8), second.getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Gets all {@link Api}s with a matching id, ordered by id
+     *
+     * @param ids   The ids of the APIs to get
+     * @return      The matching {@link Api}s
+     */
+    List<Api> findByIdInOrderByIdAsc(Collection<Integer> ids);
+
+    /**
+     * Gets the {@link ApiSummary} of every {@link Api} with a matching id, ordered by id.
+     * Does not read the LOB columns.
+     *
+     * @param ids   The ids of the APIs to get
+     * @return      The matching {@link ApiSummary}s
+     */
+    List<ApiSummary> findSummariesByIdInOrderByIdAsc(Collection<Integer> ids);
+
+    /**
+     * Gets the {@link ApiRoute} of an {@link Api}. Does not read the {@code spec} column.
+     *
+     * @param id    The id of the API to get
+     * @return      The {@link ApiRoute} of the API, if it exists
+     */
+    Optional<ApiRoute> findRouteById(int id);
+
+    /**
+     * Gets the {@link ApiSortKey}s of the {@link Api}s with a matching id which come after a position
+     * when ordered by id
+     *
+     * @param ids       The ids of the APIs to get
+     * @param afterId   The id to start after
+     * @param limit     The maximum number of keys to get
+     * @return          The matching {@link ApiSortKey}s, ordered by id
+     */
+    @Query("SELECT a.id AS id, a.name AS name FROM Api a WHERE a.id IN :ids AND a.id > :afterId ORDER BY a.id")
+    List<ApiSortKey> findSortKeysOrderedById(Collection<Integer> ids, int afterId, Limit limit);
+
+    /**
+     * Gets the {@link ApiSortKey}s of the {@link Api}s with a matching id which come after a position
+     * when ordered by name and id. APIs without a name are ordered like an empty name.
+     * Names are compared by their bytes, so the order does not depend on the collation of the database
+     * and matches {@link #NAME_ORDER}.
+     *
+     * @param ids       The ids of the APIs to get
+     * @param afterName The name to start after
+     * @param afterId   The id to start after among the APIs named {@code afterName}
+     * @param limit     The maximum number of keys to get
+     * @return          The matching {@link ApiSortKey}s, ordered by name and id
+     */
+    @Query("SELECT a.id AS id, a.name AS name FROM Api a WHERE a.id IN :ids"
+            + " AND (CAST(COALESCE(a.name, '') AS Binary) > CAST(:afterName AS Binary)"
+            + " OR (CAST(COALESCE(a.name, '') AS Binary) = CAST(:afterName AS Binary) AND a.id > :afterId))"
+            + " ORDER BY CAST(COALESCE(a.name, '') AS Binary), a.id")
+    List<ApiSortKey> findSortKeysOrderedByName(Collection<Integer> ids, String afterName, int afterId, Limit limit);
+
+    /**
+     * Same as {@link #findByIdInOrderByIdAsc(Collection)}, but splits large id sets
+     * into chunks of {@link #ID_CHUNK_SIZE}
+     *
+     * @param ids   The ids of the APIs to get
+     * @return      The matching {@link Api}s, ordered by id
+     */
+    default List<Api> findAllByIdChunked(Collection<Integer> ids) {
+        return findChunked(ids, this::findByIdInOrderByIdAsc);
+    }
+
+    /**
+     * Same as {@link #findSummariesByIdInOrderByIdAsc(Collection)}, but splits large id sets
+     * into chunks of {@link #ID_CHUNK_SIZE}
+     *
+     * @param ids   The ids of the APIs to get
+     * @return      The matching {@link ApiSummary}s, ordered by id
+     */
+    default List<ApiSummary> findSummariesByIdChunked(Collection<Integer> ids) {
+        return findChunked(ids, this::findSummariesByIdInOrderByIdAsc);
+    }
+
+    /**
+     * Gets the {@link ApiSortKey}s of a page of {@link Api}s, see {@link #findSortKeysOrderedById} and
+     * {@link #findSortKeysOrderedByName}. Large id sets are split into chunks of {@link #ID_CHUNK_SIZE},
+     * every chunk returns at most {@code limit} keys which are merged into the page.
+     *
+     * @param ids       The ids of the APIs to get
+     * @param sort      The order of the page
+     * @param afterId   The id to start after
+     * @param afterName The name to start after, only used when ordered by name
+     * @param limit     The maximum number of keys to get
+     * @return          The matching {@link ApiSortKey}s in the order of the page
+     */
+    default List<ApiSortKey> findSortKeysChunked(Collection<Integer> ids, ApiSort sort, int afterId, String afterName,
+                                                 Limit limit) {
+        List<ApiSortKey> keys = findChunked(ids, chunk -> sort == ApiSort.NAME
+                ? findSortKeysOrderedByName(chunk, afterName, afterId, limit)
+                : findSortKeysOrderedById(chunk, afterId, limit));
+        if (ids.size() <= ID_CHUNK_SIZE) {
+            return keys;
+        }
+
+        // Every chunk is ordered on its own, the names are compared by their bytes in both places
+        Comparator<ApiSortKey> order = sort == ApiSort.NAME
+                ? Comparator.comparing((ApiSortKey key) -> Objects.requireNonNullElse(key.getName(), ""), NAME_ORDER)
+                        .thenComparingInt(ApiSortKey::getId)
+                : Comparator.comparingInt(ApiSortKey::getId);
+        keys = new ArrayList<>(keys);
+        keys.sort(order);
+        return limit.isLimited() && keys.size() > limit.max() ? keys.subList(0, limit.max()) : keys;
+    }
+
+    private static <T> List<T> findChunked(Collection<Integer> ids, Function<List<Integer>, List<T>> query) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Sorting the ids keeps the concatenated chunks ordered by id
+        List<Integer> sortedIds = ids.stream().distinct().sorted().toList();
+        if (sortedIds.size() <= ID_CHUNK_SIZE) {
+            return query.apply(sortedIds);
+        }
+
+        List<T> result = new ArrayList<>(sortedIds.size());
+        for (int i = 0; i < sortedIds.size(); i += ID_CHUNK_SIZE) {
+            result.addAll(query.apply(sortedIds.subList(i, Math.min(i + ID_CHUNK_SIZE, sortedIds.size()))));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.entity.SpecBlob;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface SpecBlobRepository extends CrudRepository<SpecBlob, String> {
+
+    /**
+     * Adds a reference to a {@link SpecBlob}
+     *
+     * @param hash  The hash of the blob
+     * @return      The number of updated rows, {@code 0} if the blob does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpecBlob b SET b.refCount = b.refCount + 1 WHERE b.hash = :hash")
+    int incrementRefCount(String hash);
+
+    /**
+     * Removes a reference from a {@link SpecBlob}
+     *
+     * @param hash  The hash of the blob
+     * @return      The number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpecBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash AND b.refCount > 0")
+    int decrementRefCount(String hash);
+
+    /**
+     * Deletes a {@link SpecBlob} if no {@link de.thm.apimanagement.entity.Api} refers to it anymore
+     *
+     * @param hash  The hash of the blob
+     * @return      The number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SpecBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(String hash);
+}
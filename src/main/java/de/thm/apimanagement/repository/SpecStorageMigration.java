@@ -0,0 +1,153 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.entity.JsonToMapConverter;
+import de.thm.apimanagement.entity.SpecCodec;
+import de.thm.apimanagement.service.SpecBlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpecStorageMigration moves specifications which are still stored in a column of the {@code api} table
+ * into the {@link SpecBlobStore}. These are the legacy {@code spec} text column and the {@code spec_data}
+ * column, which has held the binary format of the {@link SpecCodec} before specifications have been deduplicated.
+ * It runs once all beans have been created, so before the web server accepts requests.
+ * Rows are migrated in batches, rows which can not be read are logged and skipped. The references to the blobs
+ * of a batch are added in the transaction which marks its rows as migrated, so a batch which fails is neither
+ * referenced nor migrated and is migrated again on the next start.
+ */
+@Component
+public class SpecStorageMigration implements SmartInitializingSingleton {
+    private static final String TEXT_COLUMN = "spec";
+    private static final String BINARY_COLUMN = "spec_data";
+
+    private record LegacyRow(int id, String text, byte[] data) {}
+
+    private final Logger logger = LoggerFactory.getLogger(SpecStorageMigration.class);
+    private final JsonToMapConverter textConverter = new JsonToMapConverter();
+    private final JdbcTemplate jdbcTemplate;
+    private final SpecBlobStore specBlobStore;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public SpecStorageMigration(
+            JdbcTemplate jdbcTemplate,
+            SpecBlobStore specBlobStore,
+            TransactionTemplate transactionTemplate,
+            @Value("${spec-storage.migration.enabled:true}") boolean enabled,
+            @Value("${spec-storage.migration.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.specBlobStore = specBlobStore;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+
+        boolean hasText = hasColumn(TEXT_COLUMN);
+        boolean hasBinary = hasColumn(BINARY_COLUMN);
+        if (!hasText && !hasBinary) {
+            return;
+        }
+
+        String select = "SELECT id, "
+                + (hasText ? TEXT_COLUMN : "NULL") + " AS legacy_text, "
+                + (hasBinary ? BINARY_COLUMN : "NULL") + " AS legacy_data "
+                + "FROM api WHERE id > ? AND spec_hash IS NULL AND ("
+                + (hasText ? TEXT_COLUMN + " IS NOT NULL" : "1 = 0") + " OR "
+                + (hasBinary ? BINARY_COLUMN + " IS NOT NULL" : "1 = 0") + ") ORDER BY id LIMIT ?";
+        String update = "UPDATE api SET spec_hash = ?"
+                + (hasText ? ", " + TEXT_COLUMN + " = NULL" : "")
+                + (hasBinary ? ", " + BINARY_COLUMN + " = NULL" : "")
+                + " WHERE id = ? AND spec_hash IS NULL";
+
+        int migrated = 0;
+        int lastId = Integer.MIN_VALUE;
+        List<LegacyRow> rows;
+        do {
+            rows = jdbcTemplate.query(select,
+                    (rs, rowNum) -> new LegacyRow(rs.getInt("id"), rs.getString("legacy_text"), rs.getBytes("legacy_data")),
+                    lastId, batchSize);
+
+            if (!rows.isEmpty()) {
+                lastId = rows.get(rows.size() - 1).id();
+                migrated += migrate(rows, update);
+            }
+        } while (rows.size() == batchSize);
+
+        if (migrated > 0) {
+            logger.info("Migrated {} specifications to the spec blob store", migrated);
+        }
+    }
+
+    /**
+     * Migrates a batch of rows in one transaction
+     *
+     * @return  The number of migrated rows
+     */
+    private int migrate(List<LegacyRow> rows, String update) {
+        Integer migrated = transactionTemplate.execute(status -> {
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (LegacyRow row : rows) {
+                Map<String, Object> spec;
+                try {
+                    spec = read(row);
+                } catch (RuntimeException e) {
+                    logger.error("Could not migrate specification of api {}: {}", row.id(), e.getMessage());
+                    continue;
+                }
+                updates.add(new Object[]{specBlobStore.acquire(spec), row.id()});
+            }
+
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(update, updates);
+            }
+            return updates.size();
+        });
+        return migrated != null ? migrated : 0;
+    }
+
+    private Map<String, Object> read(LegacyRow row) {
+        return row.data() != null
+                ? SpecCodec.decode(row.data())
+                : textConverter.convertToEntityAttribute(row.text());
+    }
+
+    /**
+     * Checks if a legacy column still exists. Databases created after it has been
+     * replaced do not have it.
+     */
+    private boolean hasColumn(String name) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : List.of("api", "API")) {
+                for (String column : List.of(name, name.toUpperCase())) {
+                    try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+                        if (columns.next()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
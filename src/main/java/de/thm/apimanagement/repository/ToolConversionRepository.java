@@ -0,0 +1,6 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.entity.ToolConversion;
+import org.springframework.data.repository.CrudRepository;
+
+public interface ToolConversionRepository extends CrudRepository<ToolConversion, String> {}
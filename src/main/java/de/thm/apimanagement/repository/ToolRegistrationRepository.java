@@ -0,0 +1,53 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.entity.ToolRegistration;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ToolRegistrationRepository extends CrudRepository<ToolRegistration, Long> {
+
+    /**
+     * Gets the {@link ToolRegistration}s which are due to be dispatched, longest waiting first
+     *
+     * @param status    The status of dispatchable registrations, {@code PENDING}
+     * @param now       The current time
+     * @param pageable  The maximum number of registrations to get
+     * @return          The due registrations
+     */
+    @Query("SELECT r FROM ToolRegistration r WHERE r.status = :status AND r.nextAttemptAt <= :now ORDER BY r.nextAttemptAt")
+    List<ToolRegistration> findDue(ToolRegistration.Status status, Instant now, Pageable pageable);
+
+    /**
+     * Claims a due {@link ToolRegistration} by moving its next attempt to the end of a lease.
+     * Only one instance succeeds, if the instance stops while dispatching, the registration is due again after the lease.
+     *
+     * @param id            The id of the registration
+     * @param status        The status of dispatchable registrations, {@code PENDING}
+     * @param now           The current time
+     * @param leaseUntil    The end of the lease
+     * @return              The number of updated rows, {@code 0} if the registration has been claimed by someone else
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ToolRegistration r SET r.nextAttemptAt = :leaseUntil "
+            + "WHERE r.id = :id AND r.status = :status AND r.nextAttemptAt <= :now")
+    int claim(long id, ToolRegistration.Status status, Instant now, Instant leaseUntil);
+
+    /**
+     * Deletes finished {@link ToolRegistration}s
+     *
+     * @param status    The status of pending registrations, which are kept
+     * @param before    Registrations last updated before are deleted
+     * @return          The number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ToolRegistration r WHERE r.status <> :status AND r.updatedAt < :before")
+    int deleteFinishedBefore(ToolRegistration.Status status, Instant before);
+}
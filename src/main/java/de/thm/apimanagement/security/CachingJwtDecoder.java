@@ -0,0 +1,117 @@
+package de.thm.apimanagement.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link Jwt}s decoded by another {@link JwtDecoder}, so a bearer token sent with many requests,
+ * e.g. during an agent session, is parsed and its signature verified only once.
+ * <p>
+ * Entries are keyed by the SHA-256 hash of the token, so the cache never holds the tokens themselves.
+ * Only tokens which have been verified and validated are kept, and never beyond their {@code exp} or
+ * a configurable maximum TTL, whichever comes first. The cache is bounded in size, its hits and misses are exposed
+ * as {@code cache.*} metrics with {@code cache=jwt}. Verifications are timed as {@code jwt.verification},
+ * the time saved by every hit is estimated from their mean and counted as {@code jwt.verification.saved}.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Duration maxTtl;
+    private final Clock clock;
+    private final Timer verified;
+    private final Timer rejected;
+    private final Counter saved;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, long maxSize, Duration maxTtl) {
+        this(delegate, meterRegistry, maxSize, maxTtl, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, long maxSize, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.maxTtl = maxTtl;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String key, Jwt jwt) -> timeToLive(jwt)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt");
+
+        this.verified = verificationTimer(meterRegistry, "valid");
+        this.rejected = verificationTimer(meterRegistry, "invalid");
+        this.saved = Counter.builder("jwt.verification.saved")
+                .description("Estimated time saved by serving verified tokens from the cache")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null) {
+            saved.increment(verified.mean(TimeUnit.SECONDS));
+            return cached;
+        }
+
+        // Not loaded through the cache, as fetching the keys to verify with may block other tokens
+        long start = System.nanoTime();
+        Jwt jwt;
+        try {
+            jwt = delegate.decode(token);
+        } catch (RuntimeException e) {
+            rejected.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        verified.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        Duration timeToLive = timeToLive(jwt);
+        if (!timeToLive.isNegative() && !timeToLive.isZero()) {
+            cache.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private Duration timeToLive(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return maxTtl;
+        }
+        Duration untilExpiry = Duration.between(clock.instant(), expiresAt);
+        return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwt.verification")
+                .description("Time to parse a token and verify its signature and claims")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package de.thm.apimanagement.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+import java.util.List;
+
+/**
+ * Authentication of work which runs after the request it has been started by, e.g. the dispatch of a
+ * {@link de.thm.apimanagement.entity.ToolRegistration}. Only carries the bearer token of that request, so
+ * subsystems can be called on behalf of its user. The token is not verified again and grants no authorities.
+ */
+public class DelegatedAuthentication extends AbstractAuthenticationToken {
+    private final String token;
+    private final String name;
+
+    /**
+     * @param token The bearer token of the request the work has been started by
+     * @param name  The name of the user the work is done for
+     */
+    public DelegatedAuthentication(String token, String name) {
+        super(List.of());
+        this.token = token;
+        this.name = name;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -1,12 +1,30 @@
 package de.thm.apimanagement.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.converter.RsaKeyConverters;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 @Configuration
 public class SecurityConfig {
 
@@ -18,6 +36,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Preflight erlauben
                         .requestMatchers("/.well-known/**", "/swagger-ui/**", "/v3/api-docs*/**").permitAll()
+                        // Liveness probes run without a token, metrics are only scraped with one
+                        .requestMatchers("/actuator/health").permitAll()
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth -> oauth
@@ -25,4 +45,71 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    /**
+     * Decodes bearer tokens like the decoder Spring Boot configures from
+     * {@code spring.security.oauth2.resourceserver.jwt.*}, with a {@link CachingJwtDecoder} in front of it
+     * unless {@code jwt-cache.enabled} is {@code false}.
+     * The keys are taken from {@code jwk-set-uri}, {@code public-key-location} or the provider configuration of
+     * {@code issuer-uri}, in this order. The provider configuration is only loaded once the first token arrives.
+     *
+     * @throws IllegalStateException if none of them is configured
+     */
+    @Bean
+    JwtDecoder jwtDecoder(
+            OAuth2ResourceServerProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${jwt-cache.enabled:true}") boolean cacheEnabled,
+            @Value("${jwt-cache.max-size:10000}") long cacheMaxSize,
+            @Value("${jwt-cache.max-ttl:10m}") Duration cacheMaxTtl) {
+        OAuth2ResourceServerProperties.Jwt jwt = properties.getJwt();
+        JwtDecoder decoder;
+        if (jwt.getJwkSetUri() != null) {
+            decoder = validated(NimbusJwtDecoder.withJwkSetUri(jwt.getJwkSetUri())
+                    .jwsAlgorithms(algorithms -> jwt.getJwsAlgorithms()
+                            .forEach(algorithm -> algorithms.add(SignatureAlgorithm.from(algorithm))))
+                    .build(), jwt);
+        } else if (jwt.getPublicKeyLocation() != null) {
+            if (jwt.getJwsAlgorithms().size() != 1) {
+                throw new IllegalStateException("Exactly one jws-algorithm has to be configured with a public-key-location");
+            }
+            decoder = validated(NimbusJwtDecoder.withPublicKey(publicKey(jwt.getPublicKeyLocation()))
+                    .signatureAlgorithm(SignatureAlgorithm.from(jwt.getJwsAlgorithms().get(0)))
+                    .build(), jwt);
+        } else if (jwt.getIssuerUri() != null) {
+            decoder = new SupplierJwtDecoder(() -> validated(NimbusJwtDecoder.withIssuerLocation(jwt.getIssuerUri())
+                    .jwsAlgorithms(algorithms -> jwt.getJwsAlgorithms()
+                            .forEach(algorithm -> algorithms.add(SignatureAlgorithm.from(algorithm))))
+                    .build(), jwt));
+        } else {
+            throw new IllegalStateException("Bearer tokens can not be verified, configure one of "
+                    + "spring.security.oauth2.resourceserver.jwt.jwk-set-uri, issuer-uri or public-key-location");
+        }
+
+        return cacheEnabled ? new CachingJwtDecoder(decoder, meterRegistry, cacheMaxSize, cacheMaxTtl) : decoder;
+    }
+
+    private static NimbusJwtDecoder validated(NimbusJwtDecoder decoder, OAuth2ResourceServerProperties.Jwt jwt) {
+        List<OAuth2TokenValidator<Jwt>> validators = new ArrayList<>();
+        validators.add(jwt.getIssuerUri() != null
+                ? JwtValidators.createDefaultWithIssuer(jwt.getIssuerUri())
+                : JwtValidators.createDefault());
+        if (!jwt.getAudiences().isEmpty()) {
+            validators.add(new JwtClaimValidator<List<String>>(JwtClaimNames.AUD,
+                    audiences -> audiences != null && !Collections.disjoint(audiences, jwt.getAudiences())));
+        }
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(validators));
+        return decoder;
+    }
+
+    private static RSAPublicKey publicKey(Resource location) {
+        if (!location.exists()) {
+            throw new IllegalStateException("The public-key-location " + location + " does not exist");
+        }
+        try (InputStream key = location.getInputStream()) {
+            return RsaKeyConverters.x509().convert(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The public-key-location " + location + " can not be read", e);
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package de.thm.apimanagement.security;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Hands the security context of the submitting thread over to the thread executing a task.
+ * Clients call subsystems with the token of the current request, which is read from the security context.
+ */
+public class SecurityContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        SecurityContext context = SecurityContextHolder.getContext();
+        return () -> {
+            SecurityContext previous = SecurityContextHolder.getContext();
+            SecurityContextHolder.setContext(context);
+            try {
+                runnable.run();
+            } finally {
+                // Restore instead of clearing, as the task might run on the submitting thread
+                SecurityContextHolder.setContext(previous);
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package de.thm.apimanagement.security;
 
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -10,20 +11,35 @@ import org.springframework.stereotype.Component;
 public class TokenProvider {
 
     public String getToken() throws OAuth2AuthenticationException {
+        if (getAuthentication() instanceof DelegatedAuthentication delegated) {
+            return delegated.getToken();
+        }
         return getJWTToken().getTokenValue();
     }
 
     public String getUsernameFromToken() throws OAuth2AuthenticationException {
+        if (getAuthentication() instanceof DelegatedAuthentication delegated) {
+            return delegated.getName();
+        }
         return getJWTToken().getClaim("preferred_username");
     }
 
+    public String getSubjectFromToken() throws OAuth2AuthenticationException {
+        if (getAuthentication() instanceof DelegatedAuthentication delegated) {
+            return delegated.getName();
+        }
+        return getJWTToken().getSubject();
+    }
+
+    private Authentication getAuthentication() {
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
     private Jwt getJWTToken() throws OAuth2AuthenticationException {
-        var token = SecurityContextHolder.getContext().getAuthentication();
+        var token = getAuthentication();
         if (!(token instanceof JwtAuthenticationToken jwtToken)) {
             throw new OAuth2AuthenticationException("JWT token is not valid");
         }
         return jwtToken.getToken();
     }
 }
-
-
@@ -0,0 +1,51 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.entity.ApiSort;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position after the last {@link de.thm.apimanagement.entity.Api} of a page, as the sort key of that API.
+ * Cursors are handed to clients as opaque URL-safe strings.
+ *
+ * @param sort  The order the page has been sorted in
+ * @param id    The id of the last API
+ * @param name  The name of the last API, only set when sorted by name
+ */
+record ApiCursor(ApiSort sort, int id, String name) {
+
+    String encode() {
+        String raw = sort.name() + "\n" + id + (name != null ? "\n" + name : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor which has been returned with a previous page
+     *
+     * @param cursor    The encoded cursor, may be {@code null} for the first page
+     * @param sort      The order of the requested page, which has to match the order of the cursor
+     * @return          The decoded cursor or {@code null} for the first page
+     */
+    static ApiCursor decode(String cursor, ApiSort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 3);
+            ApiSort cursorSort = ApiSort.valueOf(parts[0]);
+            if (cursorSort != sort) {
+                throw new ServiceBadRequest("Cursor does not match the requested sort order");
+            }
+            // Only cursors of pages sorted by name carry a name
+            if ((cursorSort == ApiSort.NAME) != (parts.length > 2)) {
+                throw new ServiceBadRequest("Invalid cursor");
+            }
+            return new ApiCursor(cursorSort, Integer.parseInt(parts[1]), parts.length > 2 ? parts[2] : null);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new ServiceBadRequest("Invalid cursor");
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package de.thm.apimanagement.service;
 
 import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiPage;
+import de.thm.apimanagement.entity.ApiPageRequest;
+import de.thm.apimanagement.entity.BatchInvokeItem;
+import de.thm.apimanagement.entity.BatchInvokeResult;
+import de.thm.apimanagement.entity.BatchItemResult;
+import de.thm.apimanagement.entity.InvokeJob;
 import de.thm.apimanagement.entity.InvokeQuery;
 import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.entity.ToolRegistration;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Defines an API service which contains the business logic of the microservice.
@@ -31,6 +41,33 @@ public interface ApiService {
      */
     public Api updateApi(int apiId, Api api, String user, String group);
 
+    /**
+     * Handles saving an API asynchronously. The API is committed together with a {@link ToolRegistration},
+     * assigning it and registering its MCP tool is left to the {@link ToolRegistrationDispatcher}.
+     *
+     * @param api   The API to save
+     * @return      The registration, which tracks the outstanding steps
+     */
+    public ToolRegistration saveApiAsync(Api api, String user, String group);
+
+    /**
+     * Handles updating an API asynchronously. The API is committed together with a {@link ToolRegistration},
+     * updating its MCP tool is left to the {@link ToolRegistrationDispatcher}.
+     *
+     * @param apiId The id of the API to update
+     * @param api   The API object which should be used to update its current instance
+     * @return      The registration, which tracks the outstanding steps
+     */
+    public ToolRegistration updateApiAsync(int apiId, Api api, String user, String group);
+
+    /**
+     * Gets a {@link ToolRegistration} which has been created by the same user or group
+     *
+     * @param registrationId    The id of the registration
+     * @return                  The registration
+     */
+    public ToolRegistration fetchToolRegistration(long registrationId, String user, String group);
+
     /**
      * Handles deleting an API
      *
@@ -39,11 +76,39 @@ public interface ApiService {
     public void deleteApiById(int apiId, String user, String group);
 
     /**
-     * Gets an array which contains all APIs
+     * Handles saving multiple APIs. The APIs are inserted together, everything else is done per API,
+     * so a failing API is undone without affecting the others.
+     *
+     * @param apis  The APIs to save
+     * @return      The outcome of every API, in the given order
+     */
+    public List<BatchItemResult> saveApis(List<Api> apis, String user, String group);
+
+    /**
+     * Handles updating multiple APIs. Every API is updated on its own, identified by its id.
+     *
+     * @param apis  The API objects which should be used to update their current instances
+     * @return      The outcome of every API, in the given order
+     */
+    public List<BatchItemResult> updateApis(List<Api> apis, String user, String group);
+
+    /**
+     * Handles deleting multiple APIs. Every API is deleted on its own.
      *
-     * @return  An array with every current API
+     * @param apiIds    The ids of the APIs which should be deleted
+     * @return          The outcome of every API, in the given order
      */
-    public List<Api> fetchApiList(String user, String group);
+    public List<BatchItemResult> deleteApisById(List<Integer> apiIds, String user, String group);
+
+    /**
+     * Gets one page of the APIs a user or group has access to, using keyset pagination
+     *
+     * @param user      The user to get the APIs of
+     * @param group     The group to get the APIs of
+     * @param request   The page to get, its order and the fields to return
+     * @return          The {@link ApiPage}
+     */
+    public ApiPage fetchApiPage(String user, String group, ApiPageRequest request);
 
     /**
      * Gets one {@link Api} or {@code null} with a matching id.
@@ -63,4 +128,64 @@ public interface ApiService {
      * @return      A {@link InvokeResult} which wraps the HTTP response
      */
     public InvokeResult invoke(int apiId, String user, String group, InvokeQuery query);
+
+    /**
+     * Handles querying multiple HTTP requests to APIs at once. Access is checked once for the whole batch,
+     * the requests are run concurrently, at most {@code invoke.batch.parallelism} at once, until the
+     * deadline of the batch. Requests which have not finished by then are reported with status 504.
+     *
+     * @param items     The APIs to invoke with their queries
+     * @param user      the user which is trying to invoke the APIs
+     * @param group     the group the APIs might belong to
+     * @param results   Receives the outcome of every request as it completes, on the calling thread
+     */
+    public void invokeBatch(List<BatchInvokeItem> items, String user, String group, Consumer<BatchInvokeResult> results);
+
+    /**
+     * Handles querying an HTTP request to an API according to the {@link InvokeQuery} and streams
+     * the HTTP response as is to {@code response}
+     *
+     * @param apiId     The api to invoke
+     * @param user      the user which is trying to invoke an api
+     * @param group     the group an api might belong to
+     * @param query     The query which should be performed
+     * @param response  The response to stream the HTTP response to
+     */
+    public void proxy(int apiId, String user, String group, InvokeQuery query, HttpServletResponse response);
+
+    /**
+     * Handles querying an HTTP request to an API according to the {@link InvokeQuery} in the background.
+     * Access and limits are checked before the job is submitted, the limits are held until the job has ended.
+     *
+     * @param apiId The api to invoke
+     * @param user  the user which is trying to invoke an api
+     * @param group the group an api might belong to
+     * @param query The query which should be performed
+     * @return      The state of the submitted {@link InvokeJob}
+     */
+    public InvokeJob invokeAsync(int apiId, String user, String group, InvokeQuery query);
+
+    /**
+     * Gets the current state of an {@link InvokeJob} submitted by the same user or group
+     *
+     * @param jobId The id of the job
+     * @return      The state of the job
+     */
+    public InvokeJob fetchInvokeJob(String jobId, String user, String group);
+
+    /**
+     * Gets a future which completes with the final state of an {@link InvokeJob} submitted by the same user or group
+     *
+     * @param jobId The id of the job
+     * @return      The future of the final state
+     */
+    public CompletableFuture<InvokeJob> awaitInvokeJob(String jobId, String user, String group);
+
+    /**
+     * Cancels an {@link InvokeJob} submitted by the same user or group
+     *
+     * @param jobId The id of the job
+     * @return      The state of the job, which keeps its state if it has already finished
+     */
+    public InvokeJob cancelInvokeJob(String jobId, String user, String group);
 }
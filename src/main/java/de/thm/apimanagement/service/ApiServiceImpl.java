@@ -8,16 +8,39 @@ import de.thm.apimanagement.client.exceptions.ClientNotFoundException;
 import de.thm.apimanagement.commands.*;
 import de.thm.apimanagement.entity.*;
 import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.repository.ToolRegistrationRepository;
+import de.thm.apimanagement.security.TokenProvider;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
 import de.thm.apimanagement.service.exceptions.ServiceError;
 import de.thm.apimanagement.service.exceptions.ServiceExceptionHandler;
 import de.thm.apimanagement.service.exceptions.ServiceNotFound;
+import de.thm.apimanagement.service.exceptions.ServiceUnavailable;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -34,57 +57,61 @@ public class ApiServiceImpl implements ApiService {
     @Autowired private UserManagementClient userManagementClient;
     @Autowired private McpManagementClient mcpManagementClient;
     @Autowired private ExternalApiClient externalApiClient;
+    @Autowired private InvokeLimiter invokeLimiter;
+    @Autowired private InvokeRouteTable invokeRouteTable;
+    @Autowired private SpecBlobStore specBlobStore;
+    @Autowired @Qualifier("sagaExecutor") private Executor sagaExecutor;
+    @Autowired private MeterRegistry meterRegistry;
+    @Autowired private ToolRegistrationRepository toolRegistrationRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private TokenProvider tokenProvider;
+    @Autowired private InvokeJobStore invokeJobStore;
+    @Autowired @Qualifier("invokeJobExecutor") private AsyncTaskExecutor invokeJobExecutor;
 
     Logger logger = LoggerFactory.getLogger(ApiServiceImpl.class);
 
+    @Value("${api-list.max-page-size:1000}") private int maxPageSize;
+    @Value("${api-list.chunk-size:100}") private int listChunkSize;
+    @Value("${api-batch.max-size:500}") private int maxBatchSize;
+    @Value("${api-batch.parallelism:8}") private int batchParallelism;
+    @Value("${invoke.batch.max-size:100}") private int maxInvokeBatchSize;
+    @Value("${invoke.batch.parallelism:8}") private int invokeBatchParallelism;
+    @Value("${invoke.batch.deadline:30s}") private Duration invokeBatchDeadline;
+    @Value("${tool-registration.async.enabled:true}") private boolean asyncEnabled;
+
     ApiServiceImpl(ApiRepository apiRepository) {
         this.apiRepository = apiRepository;
     }
 
     @Override
     public Api saveApi(Api api, String user, String group) {
-        Stack<Command> commands = new Stack<>();
-
         if (!StringUtils.hasText(user)) {
             throw new ServiceError("A user must be provided!");
         }
 
+        // The API has to be saved before it can be assigned, as its id is generated by the repository.
+        // Converting the specification does not depend on the repository, so it runs alongside.
+        ConvertSpecToToolCommand convertSpecToToolCommand = new ConvertSpecToToolCommand(
+                spec2ToolClient, api.getFormat(), api.getSpec());
+        Saga saga = new Saga(meterRegistry)
+                .step("save-api", new SaveApiToRepositoryCommand(apiRepository, specBlobStore, invokeRouteTable, api))
+                .step("convert-spec", convertSpecToToolCommand)
+                .step("assign-api", () -> {
+                    // If no group has been provided, add the api to the user, otherwise to the group
+                    ApiWithActive apiWithActive = new ApiWithActive(api.getId(), true);
+                    return !StringUtils.hasText(group)
+                            ? new AddApiToUserCommand(userManagementClient, user, apiWithActive)
+                            : new AddApiToGroupCommand(userManagementClient, group, apiWithActive);
+                }, "save-api")
+                .step("register-tool", () -> new AddOrUpdateMcpToolCommand(
+                        mcpManagementClient, convertSpecToToolCommand.getToolDefinition(), api.getId()),
+                        "save-api", "convert-spec");
+
         logger.info("====== Starting Save Api Transaction ======");
         try {
-            logger.debug("Saving api to repository...");
-            SaveApiToRepositoryCommand saveApiToRepositoryCommand = new SaveApiToRepositoryCommand(
-                    apiRepository, api);
-            saveApiToRepositoryCommand.execute();
-            commands.add(saveApiToRepositoryCommand);
-
-            // If no group has been provided, add the api to the user, otherwise to the group
-            if (!StringUtils.hasText(group)) {
-                logger.debug("Adding api to user...");
-                AddApiToUserCommand addApiToUserCommand = new AddApiToUserCommand(
-                        userManagementClient, user, new ApiWithActive(api.getId(), true));
-                addApiToUserCommand.execute();
-                commands.add(addApiToUserCommand);
-            } else {
-                logger.debug("Adding api to group...");
-                AddApiToGroupCommand addApiToGroupCommand = new AddApiToGroupCommand(
-                        userManagementClient, group, new ApiWithActive(api.getId(), true));
-                addApiToGroupCommand.execute();
-                commands.add(addApiToGroupCommand);
-            }
-
-            logger.debug("Converting api specification to MCP tool...");
-            ToolDefinition toolDef = spec2ToolClient.convertSpec2Tool(
-                    api.getFormat(),
-                    api.getSpec());
-
-            logger.debug("Updating MCP tool in MCP server...");
-            AddOrUpdateMcpToolCommand addOrUpdateMcpToolCommand = new AddOrUpdateMcpToolCommand(
-                    mcpManagementClient, toolDef, api.getId());
-            addOrUpdateMcpToolCommand.execute();
-            commands.add(addOrUpdateMcpToolCommand);
-
+            saga.execute(sagaExecutor);
         } catch (Exception e) {
-            handleFailure(e, commands);
+            handleFailure(e);
             throw ServiceExceptionHandler.handleException(e);
         }
 
@@ -94,8 +121,6 @@ public class ApiServiceImpl implements ApiService {
 
     @Override
     public Api updateApi(int apiId, Api api, String user, String group) {
-        Stack<Command> commands = new Stack<>();
-
         if (!StringUtils.hasText(user)) {
             throw new ServiceError("A user must be provided!");
         }
@@ -103,7 +128,7 @@ public class ApiServiceImpl implements ApiService {
         logger.info("====== Starting Update Api Transaction ======");
         try {
             logger.debug("Checking if api exists in repository...");
-            if (apiRepository.findById(apiId).orElse(null) == null) {
+            if (!apiRepository.existsById(apiId)) {
                 logger.error("Api with id " + apiId + " does not exist!");
                 throw new ClientNotFoundException("Api does not exist!");
             }
@@ -123,25 +148,19 @@ public class ApiServiceImpl implements ApiService {
                 throw new ClientNotFoundException("Api does not exist!");
             }
 
-            logger.debug("Updating api in repository...");
-            UpdateApiInRepositoryCommand updateApiInRepositoryCommand = new UpdateApiInRepositoryCommand(
-                    apiRepository, apiId, api);
-            updateApiInRepositoryCommand.execute();
-            commands.add(updateApiInRepositoryCommand);
-
-            logger.debug("Converting api specification to MCP tool...");
-            ToolDefinition toolDef = spec2ToolClient.convertSpec2Tool(
-                    api.getFormat(),
-                    api.getSpec());
-
-            logger.debug("Updating MCP tool in McpManagement...");
-            AddOrUpdateMcpToolCommand addOrUpdateMcpToolCommand = new AddOrUpdateMcpToolCommand(
-                    mcpManagementClient, toolDef, apiId);
-            addOrUpdateMcpToolCommand.execute();
-            commands.add(addOrUpdateMcpToolCommand);
+            ConvertSpecToToolCommand convertSpecToToolCommand = new ConvertSpecToToolCommand(
+                    spec2ToolClient, api.getFormat(), api.getSpec());
+            new Saga(meterRegistry)
+                    .step("update-api", new UpdateApiInRepositoryCommand(
+                            apiRepository, specBlobStore, invokeRouteTable, apiId, api))
+                    .step("convert-spec", convertSpecToToolCommand)
+                    .step("register-tool", () -> new AddOrUpdateMcpToolCommand(
+                            mcpManagementClient, convertSpecToToolCommand.getToolDefinition(), apiId),
+                            "update-api", "convert-spec")
+                    .execute(sagaExecutor);
 
         } catch (Exception e) {
-            handleFailure(e, commands);
+            handleFailure(e);
             throw ServiceExceptionHandler.handleException(e);
         }
 
@@ -149,6 +168,95 @@ public class ApiServiceImpl implements ApiService {
         return api;
     }
 
+    @Override
+    public ToolRegistration saveApiAsync(Api api, String user, String group) {
+        if (!StringUtils.hasText(user)) {
+            throw new ServiceError("A user must be provided!");
+        }
+        if (!asyncEnabled) {
+            throw new ServiceBadRequest("The asynchronous mode is disabled");
+        }
+
+        logger.info("====== Starting Async Save Api Transaction ======");
+        ToolRegistration registration;
+        try {
+            String token = tokenProvider.getToken();
+            api.setSpecHash(specBlobStore.acquire(api.getSpec()));
+            try {
+                registration = transactionTemplate.execute(status -> {
+                    apiRepository.save(api);
+                    return toolRegistrationRepository.save(new ToolRegistration(api.getId(),
+                            ToolRegistration.Operation.CREATE, user, emptyToNull(group), token, Instant.now()));
+                });
+            } catch (RuntimeException e) {
+                specBlobStore.release(api.getSpecHash());
+                throw e;
+            }
+            invokeRouteTable.put(api);
+
+        } catch (Exception e) {
+            handleFailure(e);
+            throw ServiceExceptionHandler.handleException(e);
+        }
+
+        logger.info("====== Ending Transaction: ACCEPTED (registration {}) ======", registration.getId());
+        return registration;
+    }
+
+    @Override
+    public ToolRegistration updateApiAsync(int apiId, Api api, String user, String group) {
+        if (!StringUtils.hasText(user)) {
+            throw new ServiceError("A user must be provided!");
+        }
+        if (!asyncEnabled) {
+            throw new ServiceBadRequest("The asynchronous mode is disabled");
+        }
+
+        logger.info("====== Starting Async Update Api Transaction ======");
+        ToolRegistration registration;
+        try {
+            logger.debug("Checking if api exists in repository...");
+            if (!apiRepository.existsById(apiId)) {
+                logger.error("Api with id " + apiId + " does not exist!");
+                throw new ClientNotFoundException("Api does not exist!");
+            }
+
+            logger.debug("Checking if api exists in userManagement...");
+            if (!fetchEntitledApiIds(user, group).contains(apiId)) {
+                throw new ClientNotFoundException("Api does not exist!");
+            }
+
+            String token = tokenProvider.getToken();
+            try {
+                registration = transactionTemplate.execute(status -> {
+                    new UpdateApiInRepositoryCommand(apiRepository, specBlobStore, invokeRouteTable, apiId, api).execute();
+                    return toolRegistrationRepository.save(new ToolRegistration(apiId,
+                            ToolRegistration.Operation.UPDATE, user, emptyToNull(group), token, Instant.now()));
+                });
+            } catch (RuntimeException e) {
+                // The update has been rolled back, the route is reloaded from the repository
+                invokeRouteTable.remove(apiId);
+                throw e;
+            }
+
+        } catch (Exception e) {
+            handleFailure(e);
+            throw ServiceExceptionHandler.handleException(e);
+        }
+
+        logger.info("====== Ending Transaction: ACCEPTED (registration {}) ======", registration.getId());
+        return registration;
+    }
+
+    @Override
+    public ToolRegistration fetchToolRegistration(long registrationId, String user, String group) {
+        // Registrations are only visible to the user or group which has created them
+        return toolRegistrationRepository.findById(registrationId)
+                .filter(registration -> Objects.equals(registration.getUserName(), user)
+                        && Objects.equals(registration.getGroupName(), emptyToNull(group)))
+                .orElseThrow(() -> new ServiceNotFound("Registration does not exist!"));
+    }
+
     @Override
     public void deleteApiById(int apiId, String user, String group) {
         Stack<Command> commands = new Stack<>();
@@ -183,29 +291,29 @@ public class ApiServiceImpl implements ApiService {
             logger.debug("Deleting MCP tool in MCP server...");
             ToolDefinition mcpManagementToolBackup = mcpManagementClient.getToolWithId(apiId);
             if (mcpManagementToolBackup != null) {
-                DeleteMcpToolCommand deleteMcpToolCommand = new DeleteMcpToolCommand(
-                        mcpManagementClient, apiId, mcpManagementToolBackup);
+                Command deleteMcpToolCommand = new TimedCommand(new DeleteMcpToolCommand(
+                        mcpManagementClient, apiId, mcpManagementToolBackup), meterRegistry);
                 deleteMcpToolCommand.execute();
                 commands.add(deleteMcpToolCommand);
             }
 
             if (!StringUtils.hasText(group)) {
                 logger.debug("Deleting api in user in UserManagement...");
-                DeleteApiFromUserCommand deleteApiFromUserCommand = new DeleteApiFromUserCommand(
-                        userManagementClient, user, userManagementApiBackup);
+                Command deleteApiFromUserCommand = new TimedCommand(new DeleteApiFromUserCommand(
+                        userManagementClient, user, userManagementApiBackup), meterRegistry);
                 deleteApiFromUserCommand.execute();
                 commands.add(deleteApiFromUserCommand);
             } else {
                 logger.debug("Deleting api in group in UserManagement...");
-                DeleteApiFromGroupCommand deleteApiFromGroupCommand = new DeleteApiFromGroupCommand(
-                        userManagementClient, group, userManagementApiBackup);
+                Command deleteApiFromGroupCommand = new TimedCommand(new DeleteApiFromGroupCommand(
+                        userManagementClient, group, userManagementApiBackup), meterRegistry);
                 deleteApiFromGroupCommand.execute();
                 commands.add(deleteApiFromGroupCommand);
             }
 
             logger.debug("Deleting api in repository...");
-            DeleteApiFromRepositoryCommand deleteApiFromRepositoryCommand = new DeleteApiFromRepositoryCommand(
-                    apiRepository, api);
+            Command deleteApiFromRepositoryCommand = new TimedCommand(new DeleteApiFromRepositoryCommand(
+                    apiRepository, specBlobStore, invokeRouteTable, api), meterRegistry);
             deleteApiFromRepositoryCommand.execute();
             commands.add(deleteApiFromRepositoryCommand);
 
@@ -218,27 +326,173 @@ public class ApiServiceImpl implements ApiService {
     }
 
     @Override
-    public List<Api> fetchApiList(String user, String group) {
+    public List<BatchItemResult> saveApis(List<Api> apis, String user, String group) {
+        if (!StringUtils.hasText(user)) {
+            throw new ServiceError("A user must be provided!");
+        }
+        checkBatchSize(apis);
+
+        logger.info("====== Starting Save Api Batch Transaction ({} apis) ======", apis.size());
+        SaveApisToRepositoryCommand saveApisCommand = new SaveApisToRepositoryCommand(
+                apiRepository, specBlobStore, invokeRouteTable, apis);
         try {
-            logger.debug("Getting apis from userManagement...");
-            List<ApiWithActive> apiWithActive = Collections.emptyList();
-            if (StringUtils.hasText(user)) {
-                if (!StringUtils.hasText(group)) {
-                    apiWithActive = Arrays.asList(userManagementClient.getApisOfUser(user));
-                } else {
-                    apiWithActive = Arrays.asList(userManagementClient.getApisOfGroup(group));
-                }
-            }
+            saveApisCommand.execute();
+        } catch (Exception e) {
+            handleFailure(e);
+            throw ServiceExceptionHandler.handleException(e);
+        }
+
+        // Everything but the insert is done per API, so a failure only undoes the API it occurred for.
+        // The other steps depend on save-api, so it has always completed and is undone on a failure.
+        Map<Integer, Saga> sagas = new LinkedHashMap<>();
+        for (int i = 0; i < apis.size(); i++) {
+            Api api = apis.get(i);
+            ApiWithActive apiWithActive = new ApiWithActive(api.getId(), true);
+            ConvertSpecToToolCommand convertSpecToToolCommand = new ConvertSpecToToolCommand(
+                    spec2ToolClient, api.getFormat(), api.getSpec());
+            sagas.put(i, new Saga(meterRegistry)
+                    .step("save-api", saveApisCommand.forApi(api))
+                    .step("convert-spec", convertSpecToToolCommand, "save-api")
+                    .step("assign-api", !StringUtils.hasText(group)
+                            ? new AddApiToUserCommand(userManagementClient, user, apiWithActive)
+                            : new AddApiToGroupCommand(userManagementClient, group, apiWithActive), "save-api")
+                    .step("register-tool", () -> new AddOrUpdateMcpToolCommand(
+                            mcpManagementClient, convertSpecToToolCommand.getToolDefinition(), api.getId()),
+                            "convert-spec"));
+        }
+
+        return executeBatch(sagas, new RuntimeException[apis.size()], i -> apis.get(i).getId(), false);
+    }
 
-            // Extract IDs in ApiWithActive into a set.
-            Set<Integer> activeApiIds = apiWithActive.stream()
-                    .map(ApiWithActive::getApiId)
+    @Override
+    public List<BatchItemResult> updateApis(List<Api> apis, String user, String group) {
+        if (!StringUtils.hasText(user)) {
+            throw new ServiceError("A user must be provided!");
+        }
+        checkBatchSize(apis);
+
+        logger.info("====== Starting Update Api Batch Transaction ({} apis) ======", apis.size());
+        Set<Integer> entitledIds;
+        Set<Integer> existingIds;
+        try {
+            entitledIds = fetchEntitledApiIds(user, group);
+            existingIds = apiRepository.findSummariesByIdChunked(apis.stream().map(Api::getId).toList()).stream()
+                    .map(ApiSummary::getId)
                     .collect(Collectors.toSet());
+        } catch (Exception e) {
+            handleFailure(e);
+            throw ServiceExceptionHandler.handleException(e);
+        }
+
+        RuntimeException[] failures = new RuntimeException[apis.size()];
+        Map<Integer, Saga> sagas = new LinkedHashMap<>();
+        Set<Integer> seenIds = new HashSet<>();
+        for (int i = 0; i < apis.size(); i++) {
+            Api api = apis.get(i);
+            int apiId = api.getId();
+            if (!existingIds.contains(apiId) || !entitledIds.contains(apiId)) {
+                failures[i] = new ServiceNotFound("Api does not exist!");
+                continue;
+            }
+            if (!seenIds.add(apiId)) {
+                failures[i] = new ServiceBadRequest("Api " + apiId + " is contained more than once");
+                continue;
+            }
+
+            ConvertSpecToToolCommand convertSpecToToolCommand = new ConvertSpecToToolCommand(
+                    spec2ToolClient, api.getFormat(), api.getSpec());
+            sagas.put(i, new Saga(meterRegistry)
+                    .step("update-api", new UpdateApiInRepositoryCommand(
+                            apiRepository, specBlobStore, invokeRouteTable, apiId, api))
+                    .step("convert-spec", convertSpecToToolCommand)
+                    .step("register-tool", () -> new AddOrUpdateMcpToolCommand(
+                            mcpManagementClient, convertSpecToToolCommand.getToolDefinition(), apiId),
+                            "update-api", "convert-spec"));
+        }
+
+        return executeBatch(sagas, failures, i -> apis.get(i).getId(), true);
+    }
+
+    @Override
+    public List<BatchItemResult> deleteApisById(List<Integer> apiIds, String user, String group) {
+        if (!StringUtils.hasText(user)) {
+            throw new ServiceError("A user must be provided!");
+        }
+        checkBatchSize(apiIds);
+
+        logger.info("====== Starting Delete Api Batch Transaction ({} apis) ======", apiIds.size());
+        Map<Integer, ApiWithActive> entitledApis = new HashMap<>();
+        Map<Integer, Api> existingApis = new HashMap<>();
+        try {
+            fetchEntitledApis(user, group).forEach(a -> entitledApis.put(a.getApiId(), a));
+            apiRepository.findAllByIdChunked(apiIds).forEach(api -> existingApis.put(api.getId(), api));
+        } catch (Exception e) {
+            handleFailure(e);
+            throw ServiceExceptionHandler.handleException(e);
+        }
+
+        RuntimeException[] failures = new RuntimeException[apiIds.size()];
+        Map<Integer, Saga> sagas = new LinkedHashMap<>();
+        Set<Integer> seenIds = new HashSet<>();
+        for (int i = 0; i < apiIds.size(); i++) {
+            int apiId = apiIds.get(i);
+            Api api = existingApis.get(apiId);
+            ApiWithActive userManagementApiBackup = entitledApis.get(apiId);
+            if (api == null || userManagementApiBackup == null) {
+                failures[i] = new ServiceNotFound("Api does not exist!");
+                continue;
+            }
+            if (!seenIds.add(apiId)) {
+                failures[i] = new ServiceBadRequest("Api " + apiId + " is contained more than once");
+                continue;
+            }
+
+            sagas.put(i, new Saga(meterRegistry)
+                    .step("delete-tool", new DeleteMcpToolCommand(mcpManagementClient, apiId))
+                    .step("unassign-api", !StringUtils.hasText(group)
+                            ? new DeleteApiFromUserCommand(userManagementClient, user, userManagementApiBackup)
+                            : new DeleteApiFromGroupCommand(userManagementClient, group, userManagementApiBackup))
+                    .step("delete-api", new DeleteApiFromRepositoryCommand(
+                            apiRepository, specBlobStore, invokeRouteTable, api),
+                            "delete-tool", "unassign-api"));
+        }
+
+        return executeBatch(sagas, failures, apiIds::get, true);
+    }
+
+    @Override
+    public ApiPage fetchApiPage(String user, String group, ApiPageRequest request) {
+        ApiSort sort;
+        Set<String> fields;
+        try {
+            sort = ApiSort.of(request.sort());
+            fields = ApiFields.parse(request.fields());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceBadRequest(e.getMessage());
+        }
+        ApiCursor after = ApiCursor.decode(request.cursor(), sort);
+        Integer limit = request.limit() != null ? Math.max(1, Math.min(request.limit(), maxPageSize)) : null;
 
-            // Filter the list, so only the APIs th user has access to are returned
-            return ((List<Api>) apiRepository.findAll()).stream()
-                    .filter(local -> activeApiIds.contains(local.getId()))
-                    .collect(Collectors.toList());
+        try {
+            Set<Integer> entitledIds = fetchEntitledApiIds(user, group);
+
+            // Keyset pagination over the entitled APIs: the database only returns the sort keys of the page
+            // and of the first API after it, which tells whether there is a next page
+            List<ApiSortKey> keys = apiRepository.findSortKeysChunked(entitledIds, sort,
+                    after != null ? after.id() : Integer.MIN_VALUE,
+                    after != null ? Objects.requireNonNullElse(after.name(), "") : "",
+                    limit != null ? Limit.of(limit + 1) : Limit.unlimited());
+
+            String nextCursor = null;
+            if (limit != null && keys.size() > limit) {
+                keys = keys.subList(0, limit);
+                ApiSortKey last = keys.get(limit - 1);
+                nextCursor = new ApiCursor(sort, last.getId(),
+                        sort == ApiSort.NAME ? Objects.requireNonNullElse(last.getName(), "") : null).encode();
+            }
+
+            List<Integer> pageIds = keys.stream().map(ApiSortKey::getId).toList();
+            return new ApiPage(streamApis(pageIds, fields), fields, nextCursor);
 
         } catch (Exception e) {
             throw ServiceExceptionHandler.handleException(e);
@@ -271,6 +525,7 @@ public class ApiServiceImpl implements ApiService {
                 }
             }
 
+            api.setSpec(specBlobStore.load(api.getSpecHash()));
             return api;
 
         } catch (Exception e) {
@@ -280,9 +535,115 @@ public class ApiServiceImpl implements ApiService {
 
     @Override
     public InvokeResult invoke(int apiId, String user, String group, InvokeQuery query) {
-        logger.debug("Checking if api exists in repository...");
-        Api api = apiRepository.findById(apiId).orElse(null);
-        if (api == null) throw new ServiceNotFound("Api does not exist!");
+        InvokeRouteTable.InvokeRoute route = fetchInvokableRoute(apiId, user, group);
+        try (InvokeLimiter.Permit permit = invokeLimiter.acquire(apiId, route.limits(), user, group)) {
+            return externalApiClient.invoke(apiId, route.token(), query);
+        }
+    }
+
+    @Override
+    public void proxy(int apiId, String user, String group, InvokeQuery query, HttpServletResponse response) {
+        InvokeRouteTable.InvokeRoute route = fetchInvokableRoute(apiId, user, group);
+        try (InvokeLimiter.Permit permit = invokeLimiter.acquire(apiId, route.limits(), user, group)) {
+            externalApiClient.proxy(route.token(), query, response);
+        }
+    }
+
+    @Override
+    public void invokeBatch(List<BatchInvokeItem> items, String user, String group, Consumer<BatchInvokeResult> results) {
+        if (items.size() > maxInvokeBatchSize) {
+            throw new ServiceBadRequest("At most " + maxInvokeBatchSize + " APIs can be invoked at once");
+        }
+
+        Set<Integer> entitledIds;
+        try {
+            entitledIds = fetchEntitledApiIds(user, group);
+        } catch (Exception e) {
+            throw ServiceExceptionHandler.handleException(e);
+        }
+
+        // Every worker takes the next item until all have been taken, which bounds the concurrency of the batch
+        long deadline = System.nanoTime() + invokeBatchDeadline.toNanos();
+        BlockingQueue<BatchInvokeResult> completed = new LinkedBlockingQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int w = 0; w < Math.min(invokeBatchParallelism, items.size()); w++) {
+                workers.add(invokeJobExecutor.submit(() -> {
+                    int i;
+                    while (!Thread.currentThread().isInterrupted() && (i = next.getAndIncrement()) < items.size()) {
+                        completed.add(invokeBatchItem(i, items.get(i), entitledIds, user, group));
+                    }
+                }));
+            }
+        } catch (TaskRejectedException e) {
+            if (workers.isEmpty()) {
+                throw new ServiceUnavailable("Too many invocations are running, please try again later");
+            }
+        }
+
+        boolean[] reported = new boolean[items.size()];
+        try {
+            for (int remaining = items.size(); remaining > 0; remaining--) {
+                BatchInvokeResult result = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    break;
+                }
+                reported[result.getIndex()] = true;
+                results.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // A worker overrunning the deadline might not react to the interrupt, it must not take another item
+            next.set(items.size());
+            workers.forEach(worker -> worker.cancel(true));
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            if (!reported[i]) {
+                results.accept(new BatchInvokeResult(i, items.get(i).getApiId(), 504, null,
+                        "Deadline of the batch has been exceeded"));
+            }
+        }
+    }
+
+    @Override
+    public InvokeJob invokeAsync(int apiId, String user, String group, InvokeQuery query) {
+        InvokeRouteTable.InvokeRoute route = fetchInvokableRoute(apiId, user, group);
+        InvokeLimiter.Permit permit = invokeLimiter.acquire(apiId, route.limits(), user, group);
+        return invokeJobStore.submit(apiId, user, emptyToNull(group),
+                () -> externalApiClient.invoke(apiId, route.token(), query), permit::close);
+    }
+
+    @Override
+    public InvokeJob fetchInvokeJob(String jobId, String user, String group) {
+        return invokeJobStore.get(jobId, user, emptyToNull(group));
+    }
+
+    @Override
+    public CompletableFuture<InvokeJob> awaitInvokeJob(String jobId, String user, String group) {
+        return invokeJobStore.await(jobId, user, emptyToNull(group));
+    }
+
+    @Override
+    public InvokeJob cancelInvokeJob(String jobId, String user, String group) {
+        return invokeJobStore.cancel(jobId, user, emptyToNull(group));
+    }
+
+    /**
+     * Gets the route of an {@link Api} which is about to be invoked and checks if the user or group is allowed to invoke it.
+     * Routes are served from the {@link InvokeRouteTable}, so the specification of the api is not read.
+     *
+     * @param apiId The api to invoke
+     * @param user  the user which is trying to invoke an api
+     * @param group the group an api might belong to
+     * @return      The route of the {@link Api} to invoke
+     */
+    private InvokeRouteTable.InvokeRoute fetchInvokableRoute(int apiId, String user, String group) {
+        logger.debug("Checking if api exists in route table...");
+        InvokeRouteTable.InvokeRoute route = invokeRouteTable.get(apiId);
+        if (route == null) throw new ServiceNotFound("Api does not exist!");
 
         try {
             logger.debug("Checking if api exists in userManagement...");
@@ -304,7 +665,186 @@ public class ApiServiceImpl implements ApiService {
             throw ServiceExceptionHandler.handleException(e);
         }
 
-        return externalApiClient.invoke(api.getToken(), query);
+        return route;
+    }
+
+    /**
+     * Invokes a single item of a batch. Failures are reported as the outcome of the item.
+     *
+     * @param index         The position of the item in the batch
+     * @param item          The API to invoke with its query
+     * @param entitledIds   The ids of the APIs the user or group has access to
+     * @return              The outcome of the item
+     */
+    private BatchInvokeResult invokeBatchItem(int index, BatchInvokeItem item, Set<Integer> entitledIds,
+                                              String user, String group) {
+        int apiId = item.getApiId();
+        try {
+            InvokeRouteTable.InvokeRoute route = entitledIds.contains(apiId) ? invokeRouteTable.get(apiId) : null;
+            if (route == null) throw new ServiceNotFound("Api does not exist!");
+
+            try (InvokeLimiter.Permit permit = invokeLimiter.acquire(apiId, route.limits(), user, group)) {
+                return new BatchInvokeResult(index, apiId, 200,
+                        externalApiClient.invoke(apiId, route.token(), item.getQuery()), null);
+            }
+        } catch (RuntimeException e) {
+            RuntimeException failure = ServiceExceptionHandler.asServiceException(e);
+            return new BatchInvokeResult(index, apiId, ServiceExceptionHandler.statusOf(failure), null, failure.getMessage());
+        }
+    }
+
+    /**
+     * Gets the ids of the APIs a user or group has access to
+     *
+     * @param user  The user to get the APIs of
+     * @param group The group to get the APIs of. If given, the APIs of the group are returned instead.
+     * @return      The ids of the APIs
+     */
+    private Set<Integer> fetchEntitledApiIds(String user, String group) {
+        // Extract IDs in ApiWithActive into a set.
+        return fetchEntitledApis(user, group).stream()
+                .map(ApiWithActive::getApiId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Gets the APIs a user or group has access to from userManagement
+     *
+     * @param user  The user to get the APIs of
+     * @param group The group to get the APIs of. If given, the APIs of the group are returned instead.
+     * @return      The APIs as stored in userManagement
+     */
+    private List<ApiWithActive> fetchEntitledApis(String user, String group) {
+        logger.debug("Getting apis from userManagement...");
+        if (!StringUtils.hasText(user)) {
+            return Collections.emptyList();
+        }
+        return !StringUtils.hasText(group)
+                ? Arrays.asList(userManagementClient.getApisOfUser(user))
+                : Arrays.asList(userManagementClient.getApisOfGroup(group));
+    }
+
+    private static String emptyToNull(String value) {
+        return StringUtils.hasText(value) ? value : null;
+    }
+
+    private void checkBatchSize(List<?> items) {
+        if (items.size() > maxBatchSize) {
+            throw new ServiceBadRequest("At most " + maxBatchSize + " APIs can be processed at once");
+        }
+    }
+
+    /**
+     * Executes the sagas of a batch, at most {@code api-batch.parallelism} at once, and collects the outcome of every item
+     *
+     * @param sagas             The sagas by the index of their item
+     * @param failures          The failures of the items which have been rejected before, by index. Filled with the failed sagas.
+     * @param idOf              Gets the id of the API of an item
+     * @param idOnFailure       Whether the id is reported for failed items. Failed new APIs do not have an id anymore.
+     * @return                  The outcome of every item
+     */
+    private List<BatchItemResult> executeBatch(Map<Integer, Saga> sagas, RuntimeException[] failures,
+                                               IntFunction<Integer> idOf, boolean idOnFailure) {
+        List<Integer> indices = new ArrayList<>(sagas.keySet());
+        List<RuntimeException> sagaFailures = Saga.executeAll(new ArrayList<>(sagas.values()), batchParallelism, sagaExecutor);
+        for (int i = 0; i < indices.size(); i++) {
+            RuntimeException e = sagaFailures.get(i);
+            if (e != null) {
+                logger.error("Error in Transaction of item {}! Reason: {}", indices.get(i), e.getMessage());
+                failures[indices.get(i)] = ServiceExceptionHandler.handleException(e);
+            }
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(failures.length);
+        int succeeded = 0;
+        for (int i = 0; i < failures.length; i++) {
+            RuntimeException e = failures[i];
+            if (e == null) {
+                results.add(new BatchItemResult(i, idOf.apply(i), 200, null));
+                succeeded++;
+            } else {
+                results.add(new BatchItemResult(i, idOnFailure ? idOf.apply(i) : null,
+                        ServiceExceptionHandler.statusOf(e), e.getMessage()));
+            }
+        }
+
+        logger.info("====== Ending Batch Transaction: {} of {} succeeded ======", succeeded, failures.length);
+        return results;
+    }
+
+    /**
+     * Loads {@link Api}s in the given order. If only fields of the {@link ApiSummary} are selected,
+     * neither tokens nor specifications are read.
+     *
+     * @param ids       The ids of the APIs in the order to return them in
+     * @param fields    The selected fields or {@code null} for whole APIs
+     * @return          The APIs which still exist
+     */
+    private List<Api> loadApis(List<Integer> ids, Set<String> fields) {
+        boolean summaryOnly = fields != null && ApiFields.SUMMARY.containsAll(fields);
+        boolean withSpec = fields == null || fields.contains("spec");
+
+        List<Api> apis = summaryOnly
+                ? apiRepository.findSummariesByIdChunked(ids).stream()
+                        .map(summary -> Api.builder()
+                                .id(summary.getId())
+                                .name(summary.getName())
+                                .description(summary.getDescription())
+                                .version(summary.getVersion())
+                                .format(summary.getFormat())
+                                .build())
+                        .toList()
+                : apiRepository.findAllByIdChunked(ids);
+        if (withSpec) {
+            specBlobStore.resolve(apis);
+        }
+
+        // Restore the order of the page, the APIs have been loaded ordered by id
+        Map<Integer, Api> byId = new HashMap<>();
+        apis.forEach(api -> byId.put(api.getId(), api));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Loads the {@link Api}s of a page chunk by chunk while they are iterated, so only one chunk is held
+     * in memory. The first chunk is loaded right away, a failure before anything is written is therefore
+     * still reported as an error response.
+     *
+     * @param ids       The ids of the APIs in the order to return them in
+     * @param fields    The selected fields or {@code null} for whole APIs
+     * @return          The APIs which still exist when their chunk is loaded
+     */
+    private Iterable<Api> streamApis(List<Integer> ids, Set<String> fields) {
+        int chunkSize = Math.max(1, listChunkSize);
+        int firstEnd = Math.min(chunkSize, ids.size());
+        List<Api> firstChunk = loadApis(ids.subList(0, firstEnd), fields);
+
+        return () -> new Iterator<>() {
+            private Iterator<Api> chunk = firstChunk.iterator();
+            private int nextStart = firstEnd;
+
+            @Override
+            public boolean hasNext() {
+                while (!chunk.hasNext() && nextStart < ids.size()) {
+                    int end = Math.min(nextStart + chunkSize, ids.size());
+                    try {
+                        chunk = loadApis(ids.subList(nextStart, end), fields).iterator();
+                    } catch (Exception e) {
+                        throw ServiceExceptionHandler.handleException(e);
+                    }
+                    nextStart = end;
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public Api next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.next();
+            }
+        };
     }
 
     /**
@@ -330,4 +870,14 @@ public class ApiServiceImpl implements ApiService {
         rollback(commands);
         logger.info("====== Ending Transaction: FAILED ======");
     }
+
+    /**
+     * Utility function to print exceptions of a {@link Saga}, which has already been rolled back
+     *
+     * @param e         The exception to print
+     */
+    private void handleFailure(Exception e) {
+        logger.error("Error in Transaction! Reason: {}", e.getMessage());
+        logger.info("====== Ending Transaction: FAILED ======");
+    }
 }
@@ -0,0 +1,236 @@
+package de.thm.apimanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import de.thm.apimanagement.client.RequestCancellation;
+import de.thm.apimanagement.entity.InvokeJob;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.service.exceptions.ServiceExceptionHandler;
+import de.thm.apimanagement.service.exceptions.ServiceNotFound;
+import de.thm.apimanagement.service.exceptions.ServiceUnavailable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * InvokeJobStore runs asynchronous invocations of external APIs on the {@code invokeJobExecutor} and keeps their
+ * {@link InvokeJob} states, so they can be polled, awaited or cancelled by the user or group which has submitted them.
+ * <p>
+ * The store is bounded in size and jobs expire after a configurable TTL, counted from their last change.
+ * A running job which is evicted is cancelled. Hits and misses are exposed as {@code cache.*} metrics
+ * with {@code cache=invoke-jobs}.
+ */
+@Component
+public class InvokeJobStore {
+    private final Logger logger = LoggerFactory.getLogger(InvokeJobStore.class);
+    private final Cache<String, Job> jobs;
+    private final Executor executor;
+
+    /**
+     * A submitted job. The thread running it is tracked, so cancelling interrupts the invocation and aborts
+     * its requests, but never a thread which has moved on to another job.
+     * What has been acquired for the job is released once it has ended or has been cancelled, whichever is first,
+     * so an invocation which does not return right away when it is cancelled does not hold it any longer.
+     */
+    private static final class Job {
+        private final String user;
+        private final String group;
+        private final CompletableFuture<InvokeJob> completion = new CompletableFuture<>();
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile InvokeJob state;
+        private Thread runner;
+        private RequestCancellation requests;
+
+        private Job(String user, String group, InvokeJob state, Runnable release) {
+            this.user = user;
+            this.group = group;
+            this.state = state;
+            this.release = release;
+        }
+
+        /**
+         * Sets the final state of the job, unless it has already finished
+         *
+         * @return  Whether the state has been set
+         */
+        private boolean finish(InvokeJob finished) {
+            synchronized (this) {
+                if (state.isFinished()) {
+                    return false;
+                }
+                state = finished;
+            }
+            // Completing runs the stages of everyone awaiting the job, which must not hold its monitor
+            completion.complete(finished);
+            return true;
+        }
+
+        private synchronized boolean start() {
+            if (state.isFinished()) {
+                return false;
+            }
+            runner = Thread.currentThread();
+            requests = RequestCancellation.open();
+            return true;
+        }
+
+        private synchronized void stop() {
+            requests.close();
+            requests = null;
+            runner = null;
+            // Do not pass an interrupt of a cancellation on to the next job of the thread
+            Thread.interrupted();
+        }
+
+        private boolean cancel() {
+            InvokeJob cancelled;
+            RequestCancellation inFlight;
+            synchronized (this) {
+                if (state.isFinished()) {
+                    return false;
+                }
+                cancelled = state.cancelled();
+                state = cancelled;
+                inFlight = requests;
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+            if (inFlight != null) {
+                inFlight.cancel();
+            }
+            completion.complete(cancelled);
+            release();
+            return true;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+
+    public InvokeJobStore(
+            @Qualifier("invokeJobExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${invoke.jobs.ttl:15m}") Duration ttl,
+            @Value("${invoke.jobs.max-size:10000}") long maxSize) {
+        this.executor = executor;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .removalListener((String id, Job job, RemovalCause cause) -> {
+                    if (job != null && cause.wasEvicted() && job.cancel()) {
+                        logger.warn("Cancelled invocation job {} as it has been evicted", id);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, jobs, "invoke-jobs");
+    }
+
+    /**
+     * Submits an invocation
+     *
+     * @param apiId     The id of the invoked API
+     * @param user      The user which is invoking the API
+     * @param group     The group the API might belong to
+     * @param call      Invokes the API
+     * @param release   Releases what has been acquired for the invocation. Runs once the job has ended or has
+     *                  been cancelled, also if it has been cancelled before it has started or could not be submitted.
+     * @return          The state of the submitted job
+     * @throws ServiceUnavailable if too many jobs are queued
+     */
+    public InvokeJob submit(int apiId, String user, String group, Supplier<InvokeResult> call, Runnable release) {
+        String id = UUID.randomUUID().toString();
+        Job job = new Job(user, group, InvokeJob.running(id, apiId), release);
+        jobs.put(id, job);
+
+        try {
+            executor.execute(() -> run(id, job, call));
+        } catch (TaskRejectedException e) {
+            jobs.invalidate(id);
+            job.release();
+            throw new ServiceUnavailable("Too many invocations are running, please try again later");
+        }
+        return job.state;
+    }
+
+    /**
+     * Gets the current state of a job
+     *
+     * @throws ServiceNotFound if the job does not exist or has been submitted by someone else
+     */
+    public InvokeJob get(String id, String user, String group) {
+        return find(id, user, group).state;
+    }
+
+    /**
+     * Gets a future which completes with the final state of a job
+     *
+     * @throws ServiceNotFound if the job does not exist or has been submitted by someone else
+     */
+    public CompletableFuture<InvokeJob> await(String id, String user, String group) {
+        return find(id, user, group).completion;
+    }
+
+    /**
+     * Cancels a job. A job which has already finished keeps its state.
+     *
+     * @return  The state of the job
+     * @throws ServiceNotFound if the job does not exist or has been submitted by someone else
+     */
+    public InvokeJob cancel(String id, String user, String group) {
+        Job job = find(id, user, group);
+        if (job.cancel()) {
+            jobs.put(id, job);
+        }
+        return job.state;
+    }
+
+    private void run(String id, Job job, Supplier<InvokeResult> call) {
+        try {
+            if (!job.start()) {
+                return;
+            }
+            try {
+                job.finish(job.state.succeeded(call.get()));
+            } catch (RuntimeException e) {
+                RuntimeException failure = ServiceExceptionHandler.asServiceException(e);
+                if (job.finish(job.state.failed(ServiceExceptionHandler.statusOf(failure), failure.getMessage()))) {
+                    logger.error("Invocation job {} has failed: {}", id, e.getMessage());
+                }
+            } finally {
+                job.stop();
+            }
+            // Restart the TTL, so the result can be fetched for as long as configured
+            jobs.asMap().replace(id, job, job);
+        } finally {
+            job.release();
+        }
+    }
+
+    private Job find(String id, String user, String group) {
+        Job job = jobs.getIfPresent(id);
+        if (job == null || !Objects.equals(job.user, user) || !Objects.equals(job.group, group)) {
+            throw new ServiceNotFound("Job does not exist!");
+        }
+        return job;
+    }
+}
@@ -0,0 +1,254 @@
+package de.thm.apimanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.service.exceptions.ServiceRateLimited;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InvokeLimiter enforces rate limits and caps on concurrent invocations, both per API and per user or group.
+ * The limits of an API are stored with the API, the limits of users and groups are configured globally.
+ * <p>
+ * Checking a limit does not block: token buckets and in-flight counters are updated with compare-and-set,
+ * and an invocation which exceeds a limit is rejected right away with a {@link ServiceRateLimited}.
+ * An invocation rejected by the limits of the user or group gets the token it has taken from the API back.
+ * Decisions are counted in {@code invoke.limiter} by scope and result, {@code allowed} only once every scope
+ * has allowed the invocation.
+ * <p>
+ * Limiters of idle APIs, users and groups are dropped, but a limiter with invocations in flight is kept until
+ * they have finished, so dropping it never resets a cap on concurrent invocations.
+ */
+@Component
+public class InvokeLimiter {
+    private final Cache<String, Limiter> limiters;
+    private final Map<String, Limiter> inFlightLimiters = new ConcurrentHashMap<>();
+    private final Limits userLimits;
+    private final Limits groupLimits;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InvokeLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${invoke.limits.user.requests-per-second:0}") int userRequestsPerSecond,
+            @Value("${invoke.limits.user.burst:0}") int userBurst,
+            @Value("${invoke.limits.user.max-concurrent:0}") int userMaxConcurrent,
+            @Value("${invoke.limits.group.requests-per-second:0}") int groupRequestsPerSecond,
+            @Value("${invoke.limits.group.burst:0}") int groupBurst,
+            @Value("${invoke.limits.group.max-concurrent:0}") int groupMaxConcurrent) {
+        this(meterRegistry,
+                new Limits(userRequestsPerSecond, userBurst, userMaxConcurrent),
+                new Limits(groupRequestsPerSecond, groupBurst, groupMaxConcurrent),
+                Duration.ofMinutes(10), 100_000);
+    }
+
+    InvokeLimiter(MeterRegistry meterRegistry, Limits userLimits, Limits groupLimits, Duration idleTimeout, long maxSize) {
+        this.meterRegistry = meterRegistry;
+        this.userLimits = userLimits;
+        this.groupLimits = groupLimits;
+        // Limiters of idle APIs, users and groups are dropped, they start with a full bucket when used again
+        this.limiters = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Acquires a permit to invoke an API. The permit has to be closed once the invocation has finished.
+     *
+     * @param apiId     The id of the API to invoke
+     * @param apiLimits The limits stored with the API
+     * @param user      The user which is trying to invoke the API
+     * @param group     The group the API might belong to. If given, the limits of the group apply instead
+     *                  of the limits of the user.
+     * @return          The permit to invoke the API
+     * @throws ServiceRateLimited if a limit has been exceeded
+     */
+    public Permit acquire(int apiId, Limits apiLimits, String user, String group) {
+        String callerScope = StringUtils.hasText(group) ? "group" : "user";
+        Acquired api = acquire("api", String.valueOf(apiId), apiLimits);
+        Acquired caller;
+        try {
+            caller = StringUtils.hasText(group)
+                    ? acquire(callerScope, group, groupLimits)
+                    : acquire(callerScope, user, userLimits);
+        } catch (RuntimeException e) {
+            // The invocation does not happen, so it must not use up the rate of the API
+            api.refund().run();
+            throw e;
+        }
+
+        if (api.limited()) count("api", "allowed");
+        if (caller.limited()) count(callerScope, "allowed");
+        return () -> {
+            caller.permit().close();
+            api.permit().close();
+        };
+    }
+
+    private Acquired acquire(String scope, String name, Limits limits) {
+        if (limits == null || !limits.isLimited()) {
+            return Acquired.UNLIMITED;
+        }
+
+        String key = scope + ":" + name;
+        Limiter limiter = limiter(key, limits);
+        if (!limiter.limits.equals(limits)) {
+            // The limits have been changed since the limiter has been created
+            limiters.asMap().replace(key, limiter, new Limiter(limits));
+            limiter = limiter(key, limits);
+        }
+
+        if (!enter(key, limiter)) {
+            count(scope, "rejected");
+            throw new ServiceRateLimited("Too many concurrent invocations for " + scope + " " + name, 1);
+        }
+
+        long wait = limiter.tryTakeToken();
+        if (wait > 0) {
+            exit(key, limiter);
+            count(scope, "rejected");
+            throw new ServiceRateLimited("Rate limit exceeded for " + scope + " " + name,
+                    Math.max(1, (long) Math.ceil(wait / (double) TimeUnit.SECONDS.toNanos(1))));
+        }
+
+        Limiter acquired = limiter;
+        Permit permit = () -> exit(key, acquired);
+        return new Acquired(permit, () -> {
+            acquired.refundToken();
+            permit.close();
+        }, true);
+    }
+
+    /**
+     * Gets the limiter of a key. A limiter which has been dropped from the cache while invocations were in flight
+     * is taken over again, so its count of invocations in flight is kept.
+     */
+    private Limiter limiter(String key, Limits limits) {
+        return limiters.get(key, k -> {
+            Limiter inFlight = inFlightLimiters.get(k);
+            return inFlight != null ? inFlight : new Limiter(limits);
+        });
+    }
+
+    private boolean enter(String key, Limiter limiter) {
+        if (!limiter.tryEnter()) {
+            return false;
+        }
+        if (limiter.isCapped() && inFlightLimiters.get(key) != limiter) {
+            // Checked again under the lock of the key, as the last invocation in flight might exit concurrently
+            inFlightLimiters.compute(key, (k, current) -> limiter.inFlight.get() > 0 ? limiter : current);
+        }
+        return true;
+    }
+
+    private void exit(String key, Limiter limiter) {
+        if (limiter.exit() == 0) {
+            inFlightLimiters.computeIfPresent(key, (k, current) ->
+                    current == limiter && limiter.inFlight.get() == 0 ? null : current);
+        }
+    }
+
+    private void count(String scope, String result) {
+        counters.computeIfAbsent(scope + ":" + result, k -> Counter.builder("invoke.limiter")
+                        .description("Invocations checked against rate limits and concurrency caps")
+                        .tag("scope", scope)
+                        .tag("result", result)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Limits for invoking APIs. A value of {@code null} or {@code 0} means unlimited.
+     *
+     * @param requestsPerSecond The number of invocations per second
+     * @param burst             The number of invocations which may be done at once. Defaults to {@code requestsPerSecond}
+     * @param maxConcurrent     The number of invocations which may be in flight at the same time
+     */
+    public record Limits(Integer requestsPerSecond, Integer burst, Integer maxConcurrent) {
+
+        boolean isLimited() {
+            return isSet(requestsPerSecond) || isSet(maxConcurrent);
+        }
+
+        private static boolean isSet(Integer value) {
+            return value != null && value > 0;
+        }
+    }
+
+    /**
+     * A permit of a single scope, which can be refunded as long as the invocation has not started
+     */
+    private record Acquired(Permit permit, Runnable refund, boolean limited) {
+        static final Acquired UNLIMITED = new Acquired(() -> {}, () -> {}, false);
+    }
+
+    /**
+     * Closes a permit acquired from the {@link InvokeLimiter}, so the invocation no longer counts as in flight
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Limiter {
+        private final Limits limits;
+        private final TokenBucket bucket;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Limiter(Limits limits) {
+            this.limits = limits;
+            this.bucket = Limits.isSet(limits.requestsPerSecond())
+                    ? new TokenBucket(limits.requestsPerSecond(), Limits.isSet(limits.burst())
+                            ? limits.burst() : limits.requestsPerSecond())
+                    : null;
+        }
+
+        boolean isCapped() {
+            return Limits.isSet(limits.maxConcurrent());
+        }
+
+        boolean tryEnter() {
+            if (!isCapped()) {
+                return true;
+            }
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= limits.maxConcurrent()) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        /**
+         * @return  The number of invocations still in flight, {@code -1} if concurrency is not capped
+         */
+        int exit() {
+            return isCapped() ? inFlight.decrementAndGet() : -1;
+        }
+
+        long tryTakeToken() {
+            return bucket != null ? bucket.tryAcquire() : 0;
+        }
+
+        void refundToken() {
+            if (bucket != null) {
+                bucket.refund();
+            }
+        }
+    }
+}
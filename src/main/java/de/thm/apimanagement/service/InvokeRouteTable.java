@@ -0,0 +1,94 @@
+package de.thm.apimanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiRoute;
+import de.thm.apimanagement.repository.ApiRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * InvokeRouteTable holds what is needed to invoke an {@link Api}, so invocations neither read
+ * nor parse the specification of an API and usually do not touch the database at all.
+ * <p>
+ * Routes are loaded lazily with the {@link ApiRoute} projection and kept up to date by the commands
+ * which save, update and delete APIs in the repository. As other instances of this service might change
+ * an API as well, routes are loaded again after a configurable TTL.
+ * Hits and misses are exposed as {@code cache.*} metrics with {@code cache=invoke-routes}.
+ */
+@Component
+public class InvokeRouteTable {
+    private final ApiRepository apiRepository;
+    private final Cache<Integer, InvokeRoute> routes;
+
+    public InvokeRouteTable(
+            ApiRepository apiRepository,
+            MeterRegistry meterRegistry,
+            @Value("${invoke.routes.ttl:10m}") Duration ttl,
+            @Value("${invoke.routes.max-size:100000}") long maxSize) {
+        this.apiRepository = apiRepository;
+        this.routes = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, routes, "invoke-routes");
+    }
+
+    /**
+     * Gets the route of an API, loading it from the database if it is not known yet
+     *
+     * @param apiId The id of the API
+     * @return      The route of the API or {@code null} if the API does not exist
+     */
+    public InvokeRoute get(int apiId) {
+        // Loading inside the cache makes a concurrent put() wait for the load, so a route
+        // loaded before an update can not overwrite the route of the update
+        return routes.get(apiId, id -> apiRepository.findRouteById(id)
+                .map(InvokeRoute::of)
+                .orElse(null));
+    }
+
+    /**
+     * Stores the route of an API which has been saved to the repository
+     *
+     * @param api   The API which has been saved
+     */
+    public void put(Api api) {
+        routes.put(api.getId(), InvokeRoute.of(api));
+    }
+
+    /**
+     * Removes the route of an API which has been deleted from the repository
+     *
+     * @param apiId The id of the API which has been deleted
+     */
+    public void remove(int apiId) {
+        routes.invalidate(apiId);
+    }
+
+    /**
+     * What is needed to invoke an {@link Api}
+     *
+     * @param apiId     The id of the API
+     * @param token     The token to invoke the API with
+     * @param limits    The rate limits and concurrency caps of the API
+     */
+    public record InvokeRoute(int apiId, String token, InvokeLimiter.Limits limits) {
+
+        static InvokeRoute of(Api api) {
+            return new InvokeRoute(api.getId(), api.getToken(), new InvokeLimiter.Limits(
+                    api.getRateLimitPerSecond(), api.getRateLimitBurst(), api.getMaxConcurrentInvocations()));
+        }
+
+        static InvokeRoute of(ApiRoute route) {
+            return new InvokeRoute(route.getId(), route.getToken(), new InvokeLimiter.Limits(
+                    route.getRateLimitPerSecond(), route.getRateLimitBurst(), route.getMaxConcurrentInvocations()));
+        }
+    }
+}
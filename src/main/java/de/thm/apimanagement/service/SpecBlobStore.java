@@ -0,0 +1,168 @@
+package de.thm.apimanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.SpecBlob;
+import de.thm.apimanagement.entity.SpecDigest;
+import de.thm.apimanagement.repository.SpecBlobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * SpecBlobStore stores API specifications once per content hash, no matter how many {@link Api}s use them.
+ * Saving a specification which is already known only adds a reference to it, a specification is deleted
+ * once the last reference to it has been released.
+ * <p>
+ * As the content of a hash never changes, decoded specifications are kept in a bounded cache without
+ * any invalidation. Cached specifications are shared by every caller and therefore handed out as
+ * unmodifiable copies. Hits and misses are exposed as {@code cache.*} metrics with {@code cache=spec-blobs}.
+ */
+@Component
+public class SpecBlobStore {
+    private final Logger logger = LoggerFactory.getLogger(SpecBlobStore.class);
+    private final SpecBlobRepository specBlobRepository;
+    private final Cache<String, Map<String, Object>> cache;
+
+    public SpecBlobStore(
+            SpecBlobRepository specBlobRepository,
+            MeterRegistry meterRegistry,
+            @Value("${spec-storage.blob-cache.max-size:200}") long maxSize) {
+        this.specBlobRepository = specBlobRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "spec-blobs");
+    }
+
+    /**
+     * Adds a reference to a specification, storing it if it is not known yet
+     *
+     * @param spec  The specification
+     * @return      The hash the specification is stored under
+     */
+    public String acquire(Map<String, Object> spec) {
+        Map<String, Object> content = spec != null ? spec : Map.of();
+        String hash = SpecDigest.of(content);
+
+        if (specBlobRepository.incrementRefCount(hash) == 0) {
+            try {
+                specBlobRepository.save(new SpecBlob(hash, content, 1, Instant.now()));
+            } catch (DataIntegrityViolationException e) {
+                // The same specification has been stored concurrently
+                if (specBlobRepository.incrementRefCount(hash) == 0) {
+                    throw e;
+                }
+            }
+        }
+
+        cache.put(hash, unmodifiableCopy(content));
+        return hash;
+    }
+
+    /**
+     * Removes a reference to a specification and deletes it if it is not referenced anymore
+     *
+     * @param hash  The hash of the specification. Nothing happens if it is {@code null}.
+     */
+    public void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+
+        specBlobRepository.decrementRefCount(hash);
+        if (specBlobRepository.deleteIfUnreferenced(hash) > 0) {
+            cache.invalidate(hash);
+        }
+    }
+
+    /**
+     * Gets a specification by its hash
+     *
+     * @param hash  The hash of the specification
+     * @return      The unmodifiable specification or {@code null} if it does not exist
+     */
+    public Map<String, Object> load(String hash) {
+        if (hash == null) {
+            return null;
+        }
+
+        Map<String, Object> spec = cache.getIfPresent(hash);
+        if (spec == null) {
+            spec = specBlobRepository.findById(hash).map(blob -> unmodifiableCopy(blob.getContent())).orElse(null);
+            if (spec != null) {
+                cache.put(hash, spec);
+            } else {
+                logger.warn("Specification {} does not exist", hash);
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * Sets the specification of every given {@link Api}, loading all missing specifications with one query
+     *
+     * @param apis  The APIs to set the specification of
+     */
+    public void resolve(Collection<Api> apis) {
+        Set<String> missing = apis.stream()
+                .map(Api::getSpecHash)
+                .filter(Objects::nonNull)
+                .filter(hash -> cache.getIfPresent(hash) == null)
+                .collect(Collectors.toSet());
+
+        Map<String, Map<String, Object>> loaded = new HashMap<>();
+        specBlobRepository.findAllById(missing).forEach(blob -> {
+            Map<String, Object> spec = unmodifiableCopy(blob.getContent());
+            loaded.put(blob.getHash(), spec);
+            cache.put(blob.getHash(), spec);
+        });
+
+        for (Api api : apis) {
+            String hash = api.getSpecHash();
+            if (hash != null) {
+                Map<String, Object> spec = loaded.get(hash);
+                api.setSpec(spec != null ? spec : load(hash));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> unmodifiableCopy(Map<String, Object> spec) {
+        return (Map<String, Object>) unmodifiableCopy((Object) spec);
+    }
+
+    private static Object unmodifiableCopy(Object value) {
+        // Specifications are JSON structures, so only maps and lists need to be copied.
+        // The copies keep the order of the keys and allow null values.
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((key, element) -> copy.put(String.valueOf(key), unmodifiableCopy(element)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(element -> copy.add(unmodifiableCopy(element)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+}
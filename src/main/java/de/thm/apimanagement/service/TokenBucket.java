@@ -0,0 +1,64 @@
+package de.thm.apimanagement.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket, implemented as generic cell rate algorithm (GCRA).
+ * Instead of a token count, only the theoretical arrival time of the next request is stored, so the whole
+ * state fits into a single {@link AtomicLong} which is updated with compare-and-set.
+ */
+public class TokenBucket {
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final LongSupplier nanoClock;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * @param permitsPerSecond  The rate the bucket is refilled with
+     * @param burst             The capacity of the bucket
+     * @param nanoClock         The source of the current time in nanoseconds
+     */
+    public TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.emissionInterval = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstTolerance = emissionInterval * (burst - 1L);
+        this.nanoClock = nanoClock;
+        this.theoreticalArrivalTime = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * Tries to take one token out of the bucket
+     *
+     * @return  {@code 0} if a token has been taken, otherwise the nanoseconds until the next token is available
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = theoreticalArrivalTime.get();
+            long arrival = Math.max(current, now);
+
+            long wait = arrival - burstTolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, arrival + emissionInterval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Puts a token taken with {@link #tryAcquire()} back into the bucket, e.g. because the request has been
+     * rejected for another reason
+     */
+    public void refund() {
+        theoreticalArrivalTime.addAndGet(-emissionInterval);
+    }
+}
@@ -0,0 +1,282 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.client.McpManagementClient;
+import de.thm.apimanagement.client.Spec2ToolClient;
+import de.thm.apimanagement.client.UserManagementClient;
+import de.thm.apimanagement.commands.*;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiWithActive;
+import de.thm.apimanagement.entity.ToolRegistration;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.repository.ToolRegistrationRepository;
+import de.thm.apimanagement.security.DelegatedAuthentication;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+import de.thm.apimanagement.service.exceptions.ServiceExceptionHandler;
+import de.thm.apimanagement.service.exceptions.ServiceNotAllowed;
+import de.thm.apimanagement.service.exceptions.ServiceNotFound;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * ToolRegistrationDispatcher works off the {@link ToolRegistration}s written by the asynchronous mode of
+ * {@link ApiService#saveApiAsync} and {@link ApiService#updateApiAsync}. For every due registration the
+ * API is assigned to its user or group if it is new, its specification is converted and the MCP tool is
+ * added or updated.
+ * <p>
+ * Every step may run more than once, as a registration is retried with exponential backoff until
+ * {@code tool-registration.retry.max-attempts} is reached: assigning is recorded on the registration
+ * and skipped afterwards, converting has no side effects and the tool is registered with a PUT.
+ * Registrations are claimed with a lease before they are dispatched, so several instances can dispatch side by side.
+ * <p>
+ * If a registration of a new API fails for good, the API is unassigned and deleted again, so no API is left
+ * behind without a tool. If that fails as well, the API is counted as {@code tool.registration.orphaned}.
+ * A registration whose access token cannot be read anymore fails as well, but its API is kept, as the failure
+ * says nothing about the API itself.
+ */
+@Component
+@ConditionalOnProperty(value = "tool-registration.dispatcher.enabled", matchIfMissing = true)
+public class ToolRegistrationDispatcher {
+    private final Logger logger = LoggerFactory.getLogger(ToolRegistrationDispatcher.class);
+    // Length of the lastError column
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private final ToolRegistrationRepository toolRegistrationRepository;
+    private final ApiRepository apiRepository;
+    private final SpecBlobStore specBlobStore;
+    private final InvokeRouteTable invokeRouteTable;
+    private final Spec2ToolClient spec2ToolClient;
+    private final UserManagementClient userManagementClient;
+    private final McpManagementClient mcpManagementClient;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Duration retention;
+    private final Clock clock;
+
+    @Autowired
+    public ToolRegistrationDispatcher(
+            ToolRegistrationRepository toolRegistrationRepository,
+            ApiRepository apiRepository,
+            SpecBlobStore specBlobStore,
+            InvokeRouteTable invokeRouteTable,
+            Spec2ToolClient spec2ToolClient,
+            UserManagementClient userManagementClient,
+            McpManagementClient mcpManagementClient,
+            @Qualifier("sagaExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${tool-registration.dispatcher.batch-size:20}") int batchSize,
+            @Value("${tool-registration.dispatcher.lease:2m}") Duration lease,
+            @Value("${tool-registration.retry.max-attempts:8}") int maxAttempts,
+            @Value("${tool-registration.retry.base-delay:1s}") Duration baseDelay,
+            @Value("${tool-registration.retry.max-delay:2m}") Duration maxDelay,
+            @Value("${tool-registration.retention:7d}") Duration retention) {
+        this(toolRegistrationRepository, apiRepository, specBlobStore, invokeRouteTable, spec2ToolClient,
+                userManagementClient, mcpManagementClient, executor, meterRegistry, batchSize, lease, maxAttempts,
+                baseDelay, maxDelay, retention, Clock.systemUTC());
+    }
+
+    ToolRegistrationDispatcher(ToolRegistrationRepository toolRegistrationRepository, ApiRepository apiRepository,
+                               SpecBlobStore specBlobStore, InvokeRouteTable invokeRouteTable,
+                               Spec2ToolClient spec2ToolClient, UserManagementClient userManagementClient,
+                               McpManagementClient mcpManagementClient, Executor executor, MeterRegistry meterRegistry,
+                               int batchSize, Duration lease, int maxAttempts, Duration baseDelay, Duration maxDelay,
+                               Duration retention, Clock clock) {
+        this.toolRegistrationRepository = toolRegistrationRepository;
+        this.apiRepository = apiRepository;
+        this.specBlobStore = specBlobStore;
+        this.invokeRouteTable = invokeRouteTable;
+        this.spec2ToolClient = spec2ToolClient;
+        this.userManagementClient = userManagementClient;
+        this.mcpManagementClient = mcpManagementClient;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Dispatches the due registrations, at most {@code tool-registration.dispatcher.batch-size} at once
+     */
+    @Scheduled(fixedDelayString = "${tool-registration.dispatcher.interval:1s}")
+    public void dispatchDue() {
+        Instant now = clock.instant();
+        List<ToolRegistration> due = toolRegistrationRepository.findDue(
+                ToolRegistration.Status.PENDING, now, PageRequest.of(0, batchSize));
+
+        List<CompletableFuture<Void>> dispatches = new ArrayList<>();
+        for (ToolRegistration registration : due) {
+            Instant leaseUntil = now.plus(lease);
+            if (toolRegistrationRepository.claim(registration.getId(), ToolRegistration.Status.PENDING,
+                    now, leaseUntil) > 0) {
+                // Saving the registration while it is dispatched must not end the lease
+                registration.setNextAttemptAt(leaseUntil);
+                dispatches.add(CompletableFuture.runAsync(() -> dispatch(registration), executor));
+            }
+        }
+        CompletableFuture.allOf(dispatches.toArray(CompletableFuture[]::new)).join();
+
+        toolRegistrationRepository.deleteFinishedBefore(ToolRegistration.Status.PENDING, now.minus(retention));
+    }
+
+    /**
+     * Dispatches a claimed registration and records its outcome
+     *
+     * @param registration  The registration to dispatch
+     */
+    void dispatch(ToolRegistration registration) {
+        SecurityContext previous = SecurityContextHolder.getContext();
+        SecurityContextHolder.setContext(contextOf(registration));
+        try {
+            if (!StringUtils.hasText(registration.getAccessToken())) {
+                throw new ServiceNotAllowed("The access token of the registration is not available anymore");
+            }
+            register(registration);
+            registration.setStatus(ToolRegistration.Status.DONE);
+            registration.setLastError(null);
+            meterRegistry.counter("tool.registration", "outcome", "done").increment();
+        } catch (RuntimeException e) {
+            RuntimeException serviceException = ServiceExceptionHandler.asServiceException(e);
+            registration.setAttempts(registration.getAttempts() + 1);
+            registration.setLastError(serviceException.getMessage());
+
+            if (isPermanent(serviceException) || registration.getAttempts() >= maxAttempts) {
+                logger.error("Registering the tool of api {} failed after {} attempts: {}",
+                        registration.getApiId(), registration.getAttempts(), e.getMessage());
+                registration.setStatus(ToolRegistration.Status.FAILED);
+                meterRegistry.counter("tool.registration", "outcome", "failed").increment();
+                if (registration.getOperation() == ToolRegistration.Operation.CREATE) {
+                    if (StringUtils.hasText(registration.getAccessToken())) {
+                        discardApi(registration);
+                    } else {
+                        // Without the token the API can neither be registered nor unassigned on behalf of its owner
+                        registration.setLastError(registration.getLastError() + " The api has been kept.");
+                    }
+                }
+            } else {
+                logger.warn("Registering the tool of api {} failed, retrying: {}", registration.getApiId(), e.getMessage());
+                registration.setNextAttemptAt(clock.instant().plus(backoff(registration.getAttempts())));
+                meterRegistry.counter("tool.registration", "outcome", "retry").increment();
+            }
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+
+        if (registration.getStatus() != ToolRegistration.Status.PENDING) {
+            registration.setAccessToken(null);
+        }
+        if (registration.getLastError() != null && registration.getLastError().length() > MAX_ERROR_LENGTH) {
+            registration.setLastError(registration.getLastError().substring(0, MAX_ERROR_LENGTH));
+        }
+        registration.setUpdatedAt(clock.instant());
+        toolRegistrationRepository.save(registration);
+    }
+
+    private void register(ToolRegistration registration) {
+        int apiId = registration.getApiId();
+        Api api = apiRepository.findById(apiId)
+                .orElseThrow(() -> new ServiceNotFound("Api does not exist!"));
+
+        if (registration.getOperation() == ToolRegistration.Operation.CREATE && !registration.isAssigned()) {
+            ApiWithActive apiWithActive = new ApiWithActive(apiId, true);
+            new TimedCommand(!StringUtils.hasText(registration.getGroupName())
+                    ? new AddApiToUserCommand(userManagementClient, registration.getUserName(), apiWithActive)
+                    : new AddApiToGroupCommand(userManagementClient, registration.getGroupName(), apiWithActive),
+                    meterRegistry).execute();
+            registration.setAssigned(true);
+            registration.setUpdatedAt(clock.instant());
+            toolRegistrationRepository.save(registration);
+        }
+
+        // Converts the current specification, so a registration dispatched late never registers an outdated tool
+        ConvertSpecToToolCommand convertSpecToToolCommand = new ConvertSpecToToolCommand(
+                spec2ToolClient, api.getFormat(), specBlobStore.load(api.getSpecHash()));
+        new TimedCommand(convertSpecToToolCommand, meterRegistry).execute();
+        new TimedCommand(new AddOrUpdateMcpToolCommand(
+                mcpManagementClient, convertSpecToToolCommand.getToolDefinition(), apiId), meterRegistry).execute();
+    }
+
+    /**
+     * Unassigns and deletes the API of a registration of a new API which has failed for good.
+     * A failure is recorded on the registration, the API is left behind then.
+     *
+     * @param registration  The failed registration
+     */
+    private void discardApi(ToolRegistration registration) {
+        int apiId = registration.getApiId();
+        try {
+            Api api = apiRepository.findById(apiId).orElse(null);
+            if (api == null) {
+                return;
+            }
+
+            if (registration.isAssigned()) {
+                ApiWithActive apiWithActive = new ApiWithActive(apiId, true);
+                new TimedCommand(!StringUtils.hasText(registration.getGroupName())
+                        ? new DeleteApiFromUserCommand(userManagementClient, registration.getUserName(), apiWithActive)
+                        : new DeleteApiFromGroupCommand(userManagementClient, registration.getGroupName(), apiWithActive),
+                        meterRegistry).execute();
+                registration.setAssigned(false);
+            }
+            new TimedCommand(new DeleteApiFromRepositoryCommand(
+                    apiRepository, specBlobStore, invokeRouteTable, api), meterRegistry).execute();
+            registration.setLastError(registration.getLastError() + " The api has been deleted.");
+        } catch (RuntimeException e) {
+            logger.error("Deleting api {} of failed registration {} failed: {}", apiId, registration.getId(), e.getMessage());
+            registration.setLastError(registration.getLastError() + " The api could not be deleted: "
+                    + ServiceExceptionHandler.handleException(e).getMessage());
+            meterRegistry.counter("tool.registration.orphaned").increment();
+        }
+    }
+
+    /**
+     * Failures which are answered the same way on every attempt are not retried
+     */
+    private static boolean isPermanent(RuntimeException e) {
+        return e instanceof ServiceNotFound || e instanceof ServiceNotAllowed || e instanceof ServiceBadRequest;
+    }
+
+    private Duration backoff(int attempt) {
+        Duration delay = baseDelay.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxDelay) > 0 ? maxDelay : delay;
+    }
+
+    /**
+     * Restores the token of the request which has created the registration. It has been validated with that request.
+     * Once it has expired, the subsystems reject it and the registration fails.
+     */
+    private static SecurityContext contextOf(ToolRegistration registration) {
+        SecurityContext context = new SecurityContextImpl();
+        if (StringUtils.hasText(registration.getAccessToken())) {
+            context.setAuthentication(new DelegatedAuthentication(registration.getAccessToken(), registration.getUserName()));
+        }
+        return context;
+    }
+}
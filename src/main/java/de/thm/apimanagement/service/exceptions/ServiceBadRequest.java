@@ -0,0 +1,7 @@
+package de.thm.apimanagement.service.exceptions;
+
+public class ServiceBadRequest extends RuntimeException {
+    public ServiceBadRequest(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package de.thm.apimanagement.service.exceptions;
+
+public class ServiceConflict extends RuntimeException {
+    public ServiceConflict(String message) {
+        super(message);
+    }
+}
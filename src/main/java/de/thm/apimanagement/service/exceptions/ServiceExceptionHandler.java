@@ -2,6 +2,7 @@ package de.thm.apimanagement.service.exceptions;
 
 import de.thm.apimanagement.client.exceptions.ClientAuthenticationException;
 import de.thm.apimanagement.client.exceptions.ClientNotFoundException;
+import de.thm.apimanagement.client.exceptions.ClientUnavailableException;
 
 /**
  * ServiceExceptionHandler is responsible for converting exceptions which occur
@@ -24,8 +25,45 @@ public class ServiceExceptionHandler {
         } else if (e instanceof ClientAuthenticationException) {
             return new ServiceNotAllowed("Authentication failed!");
 
+        } else if (e instanceof ClientUnavailableException) {
+            return new ServiceUnavailable(e.getMessage());
+
         } else {
             return new ServiceError(e.getMessage());
         }
     }
+
+    /**
+     * Converts exceptions to service-specific exceptions, keeping exceptions which are service-specific already
+     *
+     * @param e The exception which has been thrown
+     * @return  The corresponding service-specific exception
+     */
+    public static RuntimeException asServiceException(RuntimeException e) {
+        return statusOf(e) != 500 ? e : handleException(e);
+    }
+
+    /**
+     * Gets the HTTP status a service-specific exception is answered with
+     *
+     * @param e The service-specific exception
+     * @return  The HTTP status code
+     */
+    public static int statusOf(RuntimeException e) {
+        if (e instanceof ServiceBadRequest) {
+            return 400;
+        } else if (e instanceof ServiceNotAllowed) {
+            return 403;
+        } else if (e instanceof ServiceNotFound) {
+            return 404;
+        } else if (e instanceof ServiceConflict) {
+            return 409;
+        } else if (e instanceof ServiceRateLimited) {
+            return 429;
+        } else if (e instanceof ServiceUnavailable) {
+            return 503;
+        } else {
+            return 500;
+        }
+    }
 }
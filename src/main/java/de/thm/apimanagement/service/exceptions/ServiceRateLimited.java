@@ -0,0 +1,14 @@
+package de.thm.apimanagement.service.exceptions;
+
+public class ServiceRateLimited extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceRateLimited(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package de.thm.apimanagement.service.exceptions;
+
+public class ServiceUnavailable extends RuntimeException {
+    public ServiceUnavailable(String message) {
+        super(message);
+    }
+}
@@ -3,7 +3,7 @@ package de.thm.apimanagement;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "tool-registration.token-key=4FaDIFvEAK/BKLHCwZQjXQiBPPjE58MuDaEf3tMx9Gc=")
 class ApimanagementApplicationTests {
 
 	@Test
@@ -0,0 +1,51 @@
+package de.thm.apimanagement.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.DnsResolver;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingDnsResolverTest {
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final CachingDnsResolver resolver = new CachingDnsResolver(new DnsResolver() {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            lookups.incrementAndGet();
+            if (host.equals("unknown.example")) {
+                throw new UnknownHostException(host);
+            }
+            return new InetAddress[]{InetAddress.getByAddress(host, new byte[]{10, 0, 0, 1})};
+        }
+
+        @Override
+        public String resolveCanonicalHostname(String host) {
+            return host;
+        }
+    }, Duration.ofMinutes(1), 100, new SimpleMeterRegistry());
+
+    @Test
+    void resolvesEveryHostOnce() throws Exception {
+        InetAddress[] first = resolver.resolve("api.example");
+        first[0] = null;
+        InetAddress[] second = resolver.resolve("api.example");
+        resolver.resolve("other.example");
+
+        assertThat(second[0].getHostName()).isEqualTo("api.example");
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void doesNotKeepFailedLookups() {
+        assertThatThrownBy(() -> resolver.resolve("unknown.example")).isInstanceOf(UnknownHostException.class);
+        assertThatThrownBy(() -> resolver.resolve("unknown.example")).isInstanceOf(UnknownHostException.class);
+
+        assertThat(lookups).hasValue(2);
+    }
+}
@@ -0,0 +1,84 @@
+package de.thm.apimanagement.client;
+
+import de.thm.apimanagement.entity.ApiWithActive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntitlementCacheTest {
+    private final EntitlementCache cache = new EntitlementCache(Duration.ofMinutes(1), 100, new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Function<String, ApiWithActive[]> loader(ApiWithActive... apis) {
+        return name -> {
+            loads.incrementAndGet();
+            return apis;
+        };
+    }
+
+    @Test
+    void servesEntriesPerCaller() {
+        cache.getApisOfUser("alice", "alice", loader(new ApiWithActive(1, true)));
+        cache.getApisOfUser("alice", "alice", loader(new ApiWithActive(1, true)));
+        cache.getApisOfUser("bob", "alice", loader(new ApiWithActive(1, true)));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheLoadRacingAWrite() {
+        // The API is added while the entitlements are loaded, so the loaded result does not contain it yet
+        ApiWithActive[] first = cache.getApisOfUser("alice", "alice", name -> {
+            loads.incrementAndGet();
+            cache.addApiToUser("alice", new ApiWithActive(2, true));
+            return new ApiWithActive[]{new ApiWithActive(1, true)};
+        });
+        ApiWithActive[] second = cache.getApisOfUser("alice", "alice",
+                loader(new ApiWithActive(1, true), new ApiWithActive(2, true)));
+
+        assertThat(first).extracting(ApiWithActive::getApiId).containsExactly(1);
+        assertThat(second).extracting(ApiWithActive::getApiId).containsExactly(1, 2);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void appliesAddAndRemoveToEveryCaller() {
+        cache.getApisOfGroup("alice", "team", loader(new ApiWithActive(1, true)));
+        cache.getApisOfGroup("bob", "team", loader(new ApiWithActive(1, true)));
+
+        cache.addApiToGroup("team", new ApiWithActive(2, false));
+        assertThat(cache.getApisOfGroup("alice", "team", loader()))
+                .containsExactly(new ApiWithActive(1, true), new ApiWithActive(2, false));
+
+        cache.removeApiFromGroup("team", 1);
+        assertThat(cache.getApisOfGroup("bob", "team", loader()))
+                .containsExactly(new ApiWithActive(2, false));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void reloadsAfterInvalidation() {
+        cache.getApisOfUser("alice", "alice", loader(new ApiWithActive(1, true)));
+        cache.getApisOfGroup("alice", "alice", loader(new ApiWithActive(3, true)));
+
+        cache.invalidateUser("alice");
+        ApiWithActive[] apis = cache.getApisOfUser("alice", "alice", loader(new ApiWithActive(2, true)));
+        cache.getApisOfGroup("alice", "alice", loader());
+
+        assertThat(apis).containsExactly(new ApiWithActive(2, true));
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void handsOutCopies() {
+        cache.getApisOfUser("alice", "alice", loader(new ApiWithActive(1, true)))[0].setActive(false);
+
+        assertThat(cache.getApisOfUser("alice", "alice", loader()))
+                .containsExactly(new ApiWithActive(1, true));
+    }
+}
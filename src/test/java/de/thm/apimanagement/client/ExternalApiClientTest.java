@@ -0,0 +1,98 @@
+package de.thm.apimanagement.client;
+
+import com.sun.net.httpserver.HttpServer;
+import de.thm.apimanagement.entity.InvokeQuery;
+import de.thm.apimanagement.entity.RequestType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExternalApiClientTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExternalApiClient client = new ExternalApiClient(
+            new HttpComponentsClientHttpRequestFactory(),
+            new InvokeResponseCache(meterRegistry, true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), false,
+                    List.of("authorization")),
+            meterRegistry, 1024, 100);
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void proxyPassesBinaryResponsesThroughWithoutHopByHopHeaders() {
+        byte[] payload = new byte[256 * 1024];
+        new Random(42).nextBytes(payload);
+        server.createContext("/file", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+            exchange.getResponseHeaders().add("X-Checksum", "42");
+            exchange.getResponseHeaders().add("Keep-Alive", "timeout=5");
+            exchange.sendResponseHeaders(201, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            }
+        });
+        MockHttpServletResponse target = new MockHttpServletResponse();
+
+        client.proxy(null, query("/file"), target);
+
+        assertThat(target.getStatus()).isEqualTo(201);
+        assertThat(target.getContentAsByteArray()).isEqualTo(payload);
+        assertThat(target.getHeader("Content-Type")).isEqualTo("application/octet-stream");
+        assertThat(target.getHeader("X-Checksum")).isEqualTo("42");
+        assertThat(target.getHeader("Keep-Alive")).isNull();
+        assertThat(target.getHeader("Transfer-Encoding")).isNull();
+    }
+
+    @Test
+    void proxyWritesTheBodyBeforeTheResponseIsComplete() {
+        MockHttpServletResponse target = new MockHttpServletResponse();
+        AtomicBoolean streamed = new AtomicBoolean();
+        server.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("first".getBytes());
+                out.flush();
+                // The rest is only sent once the first part has reached the target
+                long deadline = System.currentTimeMillis() + 5000;
+                while (target.getContentAsByteArray().length == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.onSpinWait();
+                }
+                streamed.set(target.getContentAsByteArray().length > 0);
+                out.write(" second".getBytes());
+            }
+        });
+
+        client.proxy(null, query("/stream"), target);
+
+        assertThat(streamed).isTrue();
+        assertThat(target.getContentAsByteArray()).isEqualTo("first second".getBytes());
+    }
+
+    private InvokeQuery query(String path) {
+        InvokeQuery query = new InvokeQuery();
+        query.setRequestType(RequestType.GET);
+        query.setRequestPath("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        return query;
+    }
+}
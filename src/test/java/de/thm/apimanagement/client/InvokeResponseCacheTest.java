@@ -0,0 +1,195 @@
+package de.thm.apimanagement.client;
+
+import de.thm.apimanagement.entity.InvokeQuery;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.entity.RequestType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvokeResponseCacheTest {
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final Deque<ResponseEntity<String>> responses = new ArrayDeque<>();
+    private final List<HttpHeaders> sent = new ArrayList<>();
+    private final Function<HttpHeaders, ResponseEntity<String>> exchange = headers -> {
+        sent.add(headers);
+        return responses.removeFirst();
+    };
+
+    private InvokeResponseCache cache(boolean offHeap) {
+        return new InvokeResponseCache(new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(1),
+                offHeap, List.of("authorization", "cookie"), clock);
+    }
+
+    @Test
+    void servesFreshResponsesUntilMaxAgeHasPassed() {
+        InvokeResponseCache cache = cache(false);
+        respond("first", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        respond("second", HttpHeaders.CACHE_CONTROL, "max-age=60");
+
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("first");
+        clock.advance(59);
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("first");
+        clock.advance(2);
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("second");
+        assertThat(sent).hasSize(2);
+    }
+
+    @Test
+    void subtractsAgeAndFallsBackToExpires() {
+        InvokeResponseCache cache = cache(false);
+        respond("aged", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.AGE, "50");
+        respond("expires", HttpHeaders.EXPIRES, "Thu, 01 Jan 2026 00:01:00 GMT",
+                HttpHeaders.DATE, "Thu, 01 Jan 2026 00:00:00 GMT");
+        respond("expired", HttpHeaders.CACHE_CONTROL, "max-age=60");
+
+        cache.invoke(1, query(Map.of()), exchange);
+        clock.advance(11);
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("expires");
+        clock.advance(30);
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("expires");
+        clock.advance(30);
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("expired");
+    }
+
+    @Test
+    void neverStoresNoStoreOrPrivateResponses() {
+        InvokeResponseCache cache = cache(false);
+        respond("no-store", HttpHeaders.CACHE_CONTROL, "no-store, max-age=60");
+        respond("private", HttpHeaders.CACHE_CONTROL, "private, max-age=60");
+        respond("public", HttpHeaders.CACHE_CONTROL, "max-age=60");
+
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("no-store");
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("private");
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("public");
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("public");
+    }
+
+    @Test
+    void revalidatesStaleResponsesWithTheirETag() {
+        InvokeResponseCache cache = cache(true);
+        respond("cached", HttpHeaders.CACHE_CONTROL, "max-age=10", HttpHeaders.ETAG, "\"v1\"");
+        responses.add(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(HttpHeaders.CACHE_CONTROL, "max-age=10").build());
+
+        cache.invoke(1, query(Map.of()), exchange);
+        clock.advance(11);
+        InvokeResult revalidated = cache.invoke(1, query(Map.of()), exchange);
+        InvokeResult fresh = cache.invoke(1, query(Map.of()), exchange);
+
+        assertThat(sent.get(1).getFirst(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"v1\"");
+        assertThat(revalidated.getResponseCode()).isEqualTo(200);
+        assertThat(revalidated.getBody()).isEqualTo("cached");
+        assertThat(fresh.getBody()).isEqualTo("cached");
+        assertThat(sent).hasSize(2);
+    }
+
+    @Test
+    void bypassesRequestsWithCredentials() {
+        InvokeResponseCache cache = cache(false);
+        respond("alice", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        respond("bob", HttpHeaders.CACHE_CONTROL, "max-age=60");
+        respond("anonymous", HttpHeaders.CACHE_CONTROL, "max-age=60");
+
+        assertThat(cache.invoke(1, query(Map.of("Cookie", "session=alice")), exchange).getBody()).isEqualTo("alice");
+        assertThat(cache.invoke(1, query(Map.of("Authorization", "Bearer bob")), exchange).getBody()).isEqualTo("bob");
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("anonymous");
+    }
+
+    @Test
+    void neverReplaysSetCookieOrHopByHopHeaders() {
+        InvokeResponseCache cache = cache(false);
+        respond("body", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.SET_COOKIE, "session=alice",
+                "Keep-Alive", "timeout=5", "X-Request-Id", "1");
+
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getHeader()).containsKey(HttpHeaders.SET_COOKIE);
+        InvokeResult replayed = cache.invoke(1, query(Map.of()), exchange);
+
+        assertThat(replayed.getHeader()).containsEntry("X-Request-Id", "1")
+                .doesNotContainKeys(HttpHeaders.SET_COOKIE, "Keep-Alive");
+    }
+
+    @Test
+    void honoursVary() {
+        InvokeResponseCache cache = cache(false);
+        respond("english", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.VARY, "Accept-Language");
+        respond("german", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.VARY, "Accept-Language");
+
+        cache.invoke(1, query(Map.of("Accept-Language", "en")), exchange);
+
+        assertThat(cache.invoke(1, query(Map.of("accept-language", "en")), exchange).getBody()).isEqualTo("english");
+        assertThat(cache.invoke(1, query(Map.of("Accept-Language", "de")), exchange).getBody()).isEqualTo("german");
+        assertThat(sent).hasSize(2);
+    }
+
+    @Test
+    void neverStoresResponsesVaryingOnCredentials() {
+        InvokeResponseCache cache = cache(false);
+        respond("first", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.VARY, "Cookie");
+        respond("second", HttpHeaders.CACHE_CONTROL, "max-age=60", HttpHeaders.VARY, "Cookie");
+
+        cache.invoke(1, query(Map.of()), exchange);
+
+        assertThat(cache.invoke(1, query(Map.of()), exchange).getBody()).isEqualTo("second");
+    }
+
+    private void respond(String body, String... headers) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        for (int i = 0; i < headers.length; i += 2) {
+            response.header(headers[i], headers[i + 1]);
+        }
+        responses.add(response.body(body));
+    }
+
+    private static InvokeQuery query(Map<String, String> headers) {
+        InvokeQuery query = new InvokeQuery();
+        query.setRequestType(RequestType.GET);
+        query.setRequestPath("https://api.example.com/pets");
+        query.setHeader(new HashMap<>(headers));
+        return query;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(long seconds) {
+            now = now.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.thm.apimanagement.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PathTemplateTest {
+
+    @Test
+    void expandsPathAndRequestParameters() {
+        Map<String, String> requestParameter = new LinkedHashMap<>();
+        requestParameter.put("filter name", "a & b");
+        requestParameter.put("sort", "ä");
+
+        String uri = PathTemplate.parse("https://api.example.com/users/{id}/posts/{post}")
+                .expand(Map.of("id", "42", "post", "a/b c"), requestParameter);
+
+        assertThat(uri).isEqualTo(
+                "https://api.example.com/users/42/posts/a%2Fb%20c?filter%20name=a%20%26%20b&sort=%C3%A4");
+    }
+
+    @Test
+    void encodesPlaceholdersInQueryAsQueryValues() {
+        String uri = PathTemplate.parse("https://api.example.com/search?q={term}")
+                .expand(Map.of("term", "x&y=z"), Map.of("page", "2"));
+
+        assertThat(uri).isEqualTo("https://api.example.com/search?q=x%26y%3Dz&page=2");
+    }
+
+    @Test
+    void keepsExistingEncodingsOfTheLiteralParts() {
+        String uri = PathTemplate.parse("https://api.example.com/files/a%20b/{name} x")
+                .expand(Map.of("name", "c"), Map.of());
+
+        assertThat(uri).isEqualTo("https://api.example.com/files/a%20b/c%20x");
+    }
+
+    @Test
+    void rejectsMissingPathParameters() {
+        PathTemplate template = PathTemplate.parse("https://api.example.com/users/{id}");
+
+        assertThatThrownBy(() -> template.expand(Map.of(), Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("id");
+    }
+}
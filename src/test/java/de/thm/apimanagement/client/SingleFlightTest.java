@@ -0,0 +1,117 @@
+package de.thm.apimanagement.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private final Counter collapsed = new SimpleMeterRegistry().counter("collapsed");
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(collapsed);
+
+    @Test
+    void concurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return "result";
+                })));
+            }
+
+            // Wait until every caller but the leading one has joined the call in flight
+            while (collapsed.count() < 7) Thread.onSpinWait();
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+            }
+            assertThat(executions.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void exceptionIsSharedWithWaitingCallers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("failed");
+            }));
+            await(started);
+
+            Future<String> follower = executor.submit(() -> singleFlight.execute("key", () -> "own call"));
+            while (collapsed.count() < 1) Thread.onSpinWait();
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorIsSharedWithWaitingCallers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new AssertionError("failed");
+            }));
+            await(started);
+
+            Future<String> follower = executor.submit(() -> singleFlight.execute("key", () -> "own call"));
+            while (collapsed.count() < 1) Thread.onSpinWait();
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(AssertionError.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(AssertionError.class);
+            assertThat(singleFlight.execute("key", () -> "next")).isEqualTo("next");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void completedCallsAreNotReused() {
+        assertThat(singleFlight.execute("key", () -> "first")).isEqualTo("first");
+        assertThat(singleFlight.execute("key", () -> "second")).isEqualTo("second");
+        assertThat(collapsed.count()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.thm.apimanagement.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubserviceResilienceTest {
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .recordException(SubserviceResilience::isTransient)
+            .build());
+    private final SubserviceResilience resilience = new SubserviceResilience("test", Bulkhead.ofDefaults("test"),
+            circuitBreaker, 3, Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+    @Test
+    void idempotentCallsAreRetriedOnTransientFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = resilience.executeIdempotent(() -> {
+            if (calls.incrementAndGet() < 3) throw new ResourceAccessException("timeout");
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void otherCallsAndClientErrorsAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> resilience.execute(() -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("timeout");
+        })).isInstanceOf(ResourceAccessException.class);
+        assertThatThrownBy(() -> resilience.executeIdempotent(() -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        })).isInstanceOf(HttpClientErrorException.class);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void openCircuitRejectsCallsWithoutCallingTheSubservice() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> resilience.execute(() -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("timeout");
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+
+        assertThatThrownBy(() -> resilience.executeIdempotent(calls::incrementAndGet))
+                .isInstanceOf(CallNotPermittedException.class);
+        assertThat(calls).hasValue(4);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
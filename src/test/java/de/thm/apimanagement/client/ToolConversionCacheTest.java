@@ -0,0 +1,99 @@
+package de.thm.apimanagement.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.thm.apimanagement.entity.ToolConversion;
+import de.thm.apimanagement.entity.ToolDefinition;
+import de.thm.apimanagement.repository.ToolConversionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ToolConversionCacheTest {
+    private final Map<String, ToolConversion> table = new HashMap<>();
+    private final ToolConversionRepository repository = repository(table);
+    private final AtomicInteger conversions = new AtomicInteger();
+
+    private ToolConversionCache cache(boolean persistent) {
+        return new ToolConversionCache(repository, new ObjectMapper(), new SimpleMeterRegistry(), 100, persistent);
+    }
+
+    private Supplier<ToolDefinition> converter(String name) {
+        return () -> {
+            conversions.incrementAndGet();
+            ToolDefinition toolDefinition = new ToolDefinition();
+            toolDefinition.setName(name);
+            return toolDefinition;
+        };
+    }
+
+    @Test
+    void convertsEquivalentSpecificationsOnce() {
+        ToolConversionCache cache = cache(false);
+        Map<String, Object> spec = new LinkedHashMap<>();
+        spec.put("openapi", "3.0.0");
+        spec.put("info", Map.of("title", "pets"));
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("info", Map.of("title", "pets"));
+        reordered.put("openapi", "3.0.0");
+
+        ToolDefinition first = cache.get("OpenAPI", spec, converter("pets"));
+        ToolDefinition second = cache.get("openapi", reordered, converter("other"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(conversions).hasValue(1);
+    }
+
+    @Test
+    void convertsDifferentFormatsAndSpecificationsSeparately() {
+        ToolConversionCache cache = cache(false);
+
+        cache.get("OpenAPI", Map.of("title", "pets"), converter("pets"));
+        cache.get("RAML", Map.of("title", "pets"), converter("pets"));
+        cache.get("OpenAPI", Map.of("title", "cars"), converter("cars"));
+
+        assertThat(conversions).hasValue(3);
+    }
+
+    @Test
+    void doesNotKeepFailedConversions() {
+        ToolConversionCache cache = cache(false);
+
+        assertThat(cache.get("OpenAPI", Map.of("title", "pets"), () -> null)).isNull();
+        cache.get("OpenAPI", Map.of("title", "pets"), converter("pets"));
+
+        assertThat(conversions).hasValue(1);
+    }
+
+    @Test
+    void readsPersistedConversionsAfterRestart() {
+        cache(true).get("OpenAPI", Map.of("title", "pets"), converter("pets"));
+
+        ToolDefinition restored = cache(true).get("OpenAPI", Map.of("title", "pets"), converter("other"));
+
+        assertThat(restored.getName()).isEqualTo("pets");
+        assertThat(conversions).hasValue(1);
+        assertThat(table).hasSize(1);
+    }
+
+    private static ToolConversionRepository repository(Map<String, ToolConversion> table) {
+        ToolConversionRepository repository = mock(ToolConversionRepository.class);
+        when(repository.findById(any())).thenAnswer(call -> Optional.ofNullable(table.get(call.<String>getArgument(0))));
+        when(repository.save(any())).thenAnswer(call -> {
+            ToolConversion conversion = call.getArgument(0);
+            table.put(conversion.getConversionKey(), conversion);
+            return conversion;
+        });
+        return repository;
+    }
+}
@@ -0,0 +1,83 @@
+package de.thm.apimanagement.commands;
+
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.InvokeRouteTable;
+import de.thm.apimanagement.service.SpecBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RepositoryCommandsTest {
+    // Reference counts of the fake blob store by hash
+    private final Map<String, Integer> references = new HashMap<>();
+    private final SpecBlobStore specBlobStore = mock(SpecBlobStore.class);
+    private final ApiRepository apiRepository = mock(ApiRepository.class);
+    private final InvokeRouteTable invokeRouteTable = mock(InvokeRouteTable.class);
+
+    @BeforeEach
+    void setUp() {
+        when(specBlobStore.acquire(any())).thenAnswer(call -> {
+            String hash = "hash-" + call.getArgument(0);
+            references.merge(hash, 1, Integer::sum);
+            return hash;
+        });
+        doAnswer(call -> references.computeIfPresent(call.getArgument(0), (hash, count) -> count > 1 ? count - 1 : null))
+                .when(specBlobStore).release(any());
+        when(specBlobStore.load(any())).thenAnswer(call -> Map.of("title", "old"));
+    }
+
+    @Test
+    void failedUpdateReleasesTheNewSpecification() {
+        Api stored = Api.builder().id(1).name("pets").specHash("hash-{title=old}").build();
+        references.put("hash-{title=old}", 1);
+        when(apiRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(apiRepository.save(any())).thenThrow(new IllegalStateException("database is gone"));
+
+        UpdateApiInRepositoryCommand update = new UpdateApiInRepositoryCommand(apiRepository, specBlobStore,
+                invokeRouteTable, 1, Api.builder().spec(Map.of("title", "new")).build());
+
+        assertThatThrownBy(update::execute).isInstanceOf(IllegalStateException.class);
+        assertThat(references).containsExactly(Map.entry("hash-{title=old}", 1));
+    }
+
+    @Test
+    void failedAcquireOfABatchReleasesWhatHasBeenAcquired() {
+        references.put("hash-{title=shared}", 1);
+        doThrow(new IllegalStateException("blob store is gone")).when(specBlobStore).acquire(Map.of("title", "broken"));
+
+        SaveApisToRepositoryCommand save = new SaveApisToRepositoryCommand(apiRepository, specBlobStore,
+                invokeRouteTable, List.of(
+                        Api.builder().spec(Map.of("title", "shared")).build(),
+                        Api.builder().spec(Map.of("title", "broken")).build(),
+                        Api.builder().spec(Map.of("title", "never")).build()));
+
+        assertThatThrownBy(save::execute).isInstanceOf(IllegalStateException.class);
+        assertThat(references).containsExactly(Map.entry("hash-{title=shared}", 1));
+    }
+
+    @Test
+    void failedInsertOfABatchReleasesEverySpecification() {
+        when(apiRepository.saveAll(any())).thenThrow(new IllegalStateException("database is gone"));
+
+        SaveApisToRepositoryCommand save = new SaveApisToRepositoryCommand(apiRepository, specBlobStore,
+                invokeRouteTable, List.of(
+                        Api.builder().spec(Map.of("title", "first")).build(),
+                        Api.builder().spec(Map.of("title", "first")).build()));
+
+        assertThatThrownBy(save::execute).isInstanceOf(IllegalStateException.class);
+        assertThat(references).isEmpty();
+    }
+}
@@ -0,0 +1,149 @@
+package de.thm.apimanagement.commands;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SagaTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<String> log = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentStepsRunConcurrently() {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        // Both steps only pass the barrier if they run at the same time
+        new Saga()
+                .step("a", new RecordingCommand("a", () -> await(barrier)))
+                .step("b", new RecordingCommand("b", () -> await(barrier)))
+                .step("c", new RecordingCommand("c"), "a", "b")
+                .execute(executor);
+
+        assertThat(log).hasSize(3).endsWith("execute c");
+    }
+
+    @Test
+    void completedStepsAreUndoneInReverseOrder() {
+        Saga saga = new Saga()
+                .step("a", new RecordingCommand("a"))
+                .step("b", new RecordingCommand("b"), "a")
+                .step("c", new RecordingCommand("c", () -> {
+                    throw new IllegalStateException("c failed");
+                }), "b")
+                .step("d", new RecordingCommand("d"), "c");
+
+        assertThatThrownBy(() -> saga.execute(executor))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("c failed");
+        assertThat(log).containsExactly("execute a", "execute b", "undo b", "undo a");
+    }
+
+    @Test
+    void failedUndoDoesNotStopRollback() {
+        Saga saga = new Saga()
+                .step("a", new RecordingCommand("a"))
+                .step("b", new Command() {
+                    @Override
+                    public void execute() {
+                        log.add("execute b");
+                    }
+
+                    @Override
+                    public void undo() {
+                        throw new IllegalStateException("undo b failed");
+                    }
+                }, "a")
+                .step("c", new RecordingCommand("c", () -> {
+                    throw new IllegalStateException("c failed");
+                }), "b");
+
+        assertThatThrownBy(() -> saga.execute(executor)).hasMessage("c failed");
+        assertThat(log).containsExactly("execute a", "execute b", "undo a");
+    }
+
+    @Test
+    void failingSagaOfBatchIsUndoneOnItsOwn() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Runnable trackConcurrency = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep();
+            running.decrementAndGet();
+        };
+
+        List<Saga> sagas = List.of(
+                new Saga().step("a", new RecordingCommand("a", trackConcurrency)),
+                new Saga()
+                        .step("b", new RecordingCommand("b", trackConcurrency))
+                        .step("c", new RecordingCommand("c", () -> {
+                            throw new IllegalStateException("c failed");
+                        }), "b"),
+                new Saga().step("d", new RecordingCommand("d", trackConcurrency)));
+
+        List<RuntimeException> failures = Saga.executeAll(sagas, 2, executor);
+
+        assertThat(failures.get(0)).isNull();
+        assertThat(failures.get(1)).hasMessage("c failed");
+        assertThat(failures.get(2)).isNull();
+        assertThat(log).contains("execute a", "execute b", "undo b", "execute d").doesNotContain("undo a", "undo d");
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void unknownDependencyIsRejected() {
+        assertThatThrownBy(() -> new Saga().step("a", new RecordingCommand("a"), "b"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class RecordingCommand implements Command {
+        private final String name;
+        private final Runnable action;
+
+        RecordingCommand(String name) {
+            this(name, () -> {});
+        }
+
+        RecordingCommand(String name, Runnable action) {
+            this.name = name;
+            this.action = action;
+        }
+
+        @Override
+        public void execute() {
+            action.run();
+            log.add("execute " + name);
+        }
+
+        @Override
+        public void undo() {
+            log.add("undo " + name);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package de.thm.apimanagement.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExternalApiTransportConfigTest {
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private RestClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/fast", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange);
+        });
+        server.createContext("/slow", exchange -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange);
+        });
+        server.start();
+
+        // One connection per route, so a second concurrent request has to wait for the pool
+        httpClient = new ExternalApiTransportConfig().externalApiHttpClient(new SimpleMeterRegistry(),
+                10, 1, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofMillis(200),
+                Duration.ofSeconds(30), Duration.ofSeconds(60), 100);
+        client = RestClient.builder()
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient))
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void keepsConnectionsAlive() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.get().uri("/fast").retrieve().body(String.class)).isEqualTo("ok");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    void failsRequestsWhichCanNotLeaseAConnectionInTime() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = executor.submit(() -> client.get().uri("/slow").retrieve().body(String.class));
+            // Wait until the slow request holds the only connection of the route
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> client.get().uri("/fast").retrieve().body(String.class))
+                    .isInstanceOf(ResourceAccessException.class);
+
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 2);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write("ok".getBytes());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package de.thm.apimanagement.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToolRegistrationConfigTest {
+
+    @Test
+    void theAsynchronousModeRequiresATokenKey() {
+        assertThatThrownBy(() -> new ToolRegistrationConfig(true, ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("tool-registration.token-key");
+        assertThatCode(() -> new ToolRegistrationConfig(true, "4FaDIFvEAK/BKLHCwZQjXQiBPPjE58MuDaEf3tMx9Gc="))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void startsWithoutATokenKeyWhileTheAsynchronousModeIsDisabled() {
+        assertThatCode(() -> new ToolRegistrationConfig(false, "")).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,130 @@
+package de.thm.apimanagement.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiPage;
+import de.thm.apimanagement.entity.BatchInvokeItem;
+import de.thm.apimanagement.entity.BatchInvokeResult;
+import de.thm.apimanagement.entity.InvokeQuery;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.security.TokenProvider;
+import de.thm.apimanagement.service.ApiService;
+import de.thm.apimanagement.service.exceptions.ServiceUnavailable;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ApiControllerImplTest {
+    private final ApiService apiService = mock(ApiService.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ApiControllerImpl controller = new ApiControllerImpl(mock(TokenProvider.class), apiService,
+            objectMapper, mock(IdempotencyStore.class), Duration.ofMinutes(1));
+    private final List<BatchInvokeItem> items = List.of(
+            new BatchInvokeItem(1, new InvokeQuery()), new BatchInvokeItem(2, new InvokeQuery()));
+
+    @Test
+    void streamsEveryOutcomeAsSoonAsItCompletes() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        List<String> writtenBeforeNext = new ArrayList<>();
+        doAnswer(call -> {
+            Consumer<BatchInvokeResult> results = call.getArgument(3);
+            results.accept(new BatchInvokeResult(1, 2, 200, new InvokeResult(200, Map.of(), "second"), null));
+            writtenBeforeNext.add(response.getContentAsString());
+            results.accept(new BatchInvokeResult(0, 1, 504, null, "Deadline of the batch has been exceeded"));
+            return null;
+        }).when(apiService).invokeBatch(eq(items), eq("alice"), eq(null), any());
+
+        controller.invokeApisStreamed(items, "alice", null, response);
+
+        // The first outcome has been flushed before the second has completed
+        assertThat(writtenBeforeNext).hasSize(1);
+        assertThat(writtenBeforeNext.get(0)).endsWith("\n").doesNotContain("Deadline");
+        assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON_VALUE);
+        String[] lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines[0]).get("index").asInt()).isEqualTo(1);
+        assertThat(objectMapper.readTree(lines[0]).get("result").get("body").asText()).isEqualTo("second");
+        assertThat(objectMapper.readTree(lines[1]).get("status").asInt()).isEqualTo(504);
+        assertThat(objectMapper.readTree(lines[1]).get("error").asText())
+                .isEqualTo("Deadline of the batch has been exceeded");
+    }
+
+    @Test
+    void stopsWhenTheClientHasGoneAway() {
+        MockHttpServletResponse gone = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Broken pipe");
+                    }
+                };
+            }
+        };
+        List<Integer> accepted = new ArrayList<>();
+        doAnswer(call -> {
+            Consumer<BatchInvokeResult> results = call.getArgument(3);
+            for (int i = 0; i < 2; i++) {
+                results.accept(new BatchInvokeResult(i, i + 1, 200, null, null));
+                accepted.add(i);
+            }
+            return null;
+        }).when(apiService).invokeBatch(eq(items), eq("alice"), eq(null), any());
+
+        assertThatThrownBy(() -> controller.invokeApisStreamed(items, "alice", null, gone))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+        // The batch is not continued once writing has failed
+        assertThat(accepted).isEmpty();
+    }
+
+    @Test
+    void leavesTheArrayOpenWhenAChunkFailsToLoad() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Iterable<Api> apis = () -> Stream.of(1, 2)
+                .map(id -> {
+                    if (id == 2) {
+                        throw new ServiceUnavailable("Database is not reachable");
+                    }
+                    return Api.builder().id(id).name("pets").build();
+                })
+                .iterator();
+        when(apiService.fetchApiPage(eq("alice"), eq(null), any())).thenReturn(new ApiPage(apis, null, null));
+
+        assertThatThrownBy(() -> controller.getApis("alice", null, null, null, null, null, response))
+                .isInstanceOf(ServiceUnavailable.class);
+        // The written part is not a complete array, so it cannot be taken for the whole page
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).startsWith("[{").doesNotEndWith("]");
+        assertThatThrownBy(() -> objectMapper.readTree(body)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,161 @@
+package de.thm.apimanagement.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.thm.apimanagement.service.exceptions.ServiceConflict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+    private final IdempotencyStore store = store(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+
+    private static IdempotencyStore store(DataSize maxSize, DataSize maxEntrySize) {
+        return new IdempotencyStore(new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), maxSize,
+                maxEntrySize, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void duplicateIsReplayed() {
+        AtomicInteger executions = new AtomicInteger();
+
+        ResponseEntity<Integer> first = store.execute("alice", "op", "key", Map.of("a", 1),
+                () -> ResponseEntity.ok(executions.incrementAndGet()));
+        ResponseEntity<Integer> second = store.execute("alice", "op", "key", Map.of("a", 1),
+                () -> ResponseEntity.ok(executions.incrementAndGet()));
+
+        assertThat(second.getBody()).isEqualTo(first.getBody()).isEqualTo(1);
+        assertThat(second.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void keyIsScopedToCallerAndBoundToRequest() {
+        store.execute("alice", "op", "key", Map.of("a", 1), () -> ResponseEntity.ok(1));
+
+        assertThat(store.execute("bob", "op", "key", Map.of("a", 1), () -> ResponseEntity.ok(2)).getBody()).isEqualTo(2);
+        assertThatThrownBy(() -> store.execute("alice", "op", "key", Map.of("a", 2), () -> ResponseEntity.ok(3)))
+                .isInstanceOf(ServiceConflict.class);
+    }
+
+    @Test
+    void failedRequestCanBeRetried() {
+        assertThatThrownBy(() -> store.execute("alice", "op", "key", Map.of(), () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(store.execute("alice", "op", "key", Map.of(), () -> ResponseEntity.ok(1)).getBody()).isEqualTo(1);
+    }
+
+    @Test
+    void responsesLargerThanTheMaxEntrySizeAreNotKept() {
+        IdempotencyStore store = store(DataSize.ofMegabytes(1), DataSize.ofKilobytes(1));
+        AtomicInteger executions = new AtomicInteger();
+
+        store.execute("alice", "op", "small", Map.of(), () -> ResponseEntity.ok(body(100, executions)));
+        store.execute("alice", "op", "small", Map.of(), () -> ResponseEntity.ok(body(100, executions)));
+        store.execute("alice", "op", "large", Map.of(), () -> ResponseEntity.ok(body(2048, executions)));
+        ResponseEntity<Map<String, String>> retried = store.execute("alice", "op", "large", Map.of(),
+                () -> ResponseEntity.ok(body(2048, executions)));
+
+        assertThat(executions.get()).isEqualTo(3);
+        assertThat(retried.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void storeIsBoundedByTheSizeOfTheKeptResponses() {
+        IdempotencyStore store = store(DataSize.ofKilobytes(16), DataSize.ofKilobytes(8));
+        AtomicInteger executions = new AtomicInteger();
+
+        for (int i = 0; i < 20; i++) {
+            store.execute("alice", "op", "key-" + i, Map.of(), () -> ResponseEntity.ok(body(4096, executions)));
+        }
+
+        // Twenty responses of 4KB do not fit, while the count alone would be far below any limit
+        assertThat(store.weightedSize()).isLessThanOrEqualTo(DataSize.ofKilobytes(16).toBytes());
+        assertThat(store.weightedSize()).isGreaterThan(DataSize.ofKilobytes(8).toBytes());
+    }
+
+    @Test
+    void concurrentDuplicateIsHeldUntilTheFirstFinishes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<ResponseEntity<Integer>> first = executor.submit(() -> store.execute("alice", "op", "key", Map.of(), () -> {
+                started.countDown();
+                await(release);
+                return ResponseEntity.ok(executions.incrementAndGet());
+            }));
+            started.await();
+            Future<ResponseEntity<Integer>> duplicate = executor.submit(() -> store.execute("alice", "op", "key", Map.of(),
+                    () -> ResponseEntity.ok(executions.incrementAndGet())));
+
+            assertThatThrownBy(() -> duplicate.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+            assertThat(executions.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runningRequestsAreNotEvictedByKeptResponses() throws Exception {
+        IdempotencyStore store = store(DataSize.ofKilobytes(16), DataSize.ofKilobytes(8));
+        CountDownLatch filled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<ResponseEntity<Integer>> first = executor.submit(() -> store.execute("alice", "op", "running", Map.of(),
+                    () -> {
+                        // Other requests fill the store while this one is running
+                        for (int i = 0; i < 20; i++) {
+                            store.execute("alice", "op", "key-" + i, Map.of(),
+                                    () -> ResponseEntity.ok(body(4096, new AtomicInteger())));
+                        }
+                        filled.countDown();
+                        await(release);
+                        return ResponseEntity.ok(executions.incrementAndGet());
+                    }));
+            filled.await();
+            Future<ResponseEntity<Integer>> duplicate = executor.submit(() -> store.execute("alice", "op", "running",
+                    Map.of(), () -> ResponseEntity.ok(executions.incrementAndGet())));
+
+            assertThatThrownBy(() -> duplicate.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+            assertThat(executions.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, String> body(int size, AtomicInteger executions) {
+        return Map.of("run", String.valueOf(executions.incrementAndGet()), "data", "x".repeat(size));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package de.thm.apimanagement.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpecCodecTest {
+    private final Map<String, Object> spec = Map.of(
+            "openapi", "3.0.0",
+            "info", Map.of("title", "Pets", "version", "1.0"),
+            "paths", Map.of("/pets", Map.of("get", Map.of("tags", List.of("pets", "read")))));
+
+    @Test
+    void everyCodecRoundTrips() {
+        for (SpecCodec codec : SpecCodec.values()) {
+            assertThat(SpecCodec.decode(codec.encode(spec))).isEqualTo(spec);
+        }
+    }
+
+    @Test
+    void encodedDataStartsWithTheIdOfTheCodec() {
+        assertThat(SpecCodec.JSON.encode(spec)[0]).isEqualTo((byte) 1);
+        assertThat(SpecCodec.SMILE_DEFLATE.encode(spec)[0]).isEqualTo((byte) 2);
+    }
+
+    @Test
+    void legacyJsonTextIsDecoded() {
+        String legacy = new JsonToMapConverter().convertToDatabaseColumn(spec);
+
+        assertThat(SpecCodec.decode(legacy.getBytes(StandardCharsets.UTF_8))).isEqualTo(spec);
+    }
+
+    @Test
+    void missingDataIsDecodedAsEmptySpec() {
+        assertThat(SpecCodec.decode(null)).isEmpty();
+        assertThat(SpecCodec.byName("smile-deflate")).isEqualTo(SpecCodec.SMILE_DEFLATE);
+    }
+}
@@ -0,0 +1,63 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiSort;
+import de.thm.apimanagement.entity.ApiSortKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Names are compared case-insensitively, like with the default collation of MariaDB
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:names;MODE=MariaDB;IGNORECASE=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ApiRepositoryNameOrderTest {
+    private static final List<String> NAMES = List.of("alpha", "Alpha", "ALPHA", "beta", "Beta", "gamma", "Gamma",
+            "Zeta", "zeta", "ägypten", "Ägypten", "");
+
+    @Autowired
+    private ApiRepository apiRepository;
+
+    @Test
+    void pagesByNameOverManyIdsContainEveryApiOnce() {
+        List<Integer> ids = IntStream.range(0, ApiRepository.ID_CHUNK_SIZE * 2 + 300)
+                .mapToObj(i -> apiRepository.save(Api.builder()
+                        .name(i % 13 == 0 ? null : NAMES.get(i % NAMES.size()))
+                        .build()).getId())
+                .toList();
+
+        List<ApiSortKey> paged = new ArrayList<>();
+        int afterId = Integer.MIN_VALUE;
+        String afterName = "";
+        List<ApiSortKey> page;
+        do {
+            page = apiRepository.findSortKeysChunked(ids, ApiSort.NAME, afterId, afterName, Limit.of(97));
+            paged.addAll(page);
+            if (!page.isEmpty()) {
+                ApiSortKey last = page.get(page.size() - 1);
+                afterId = last.getId();
+                afterName = Objects.requireNonNullElse(last.getName(), "");
+            }
+        } while (page.size() == 97);
+
+        assertThat(paged).extracting(ApiSortKey::getId).containsExactlyInAnyOrderElementsOf(ids);
+        List<ApiSortKey> all = apiRepository.findSortKeysChunked(ids, ApiSort.NAME, Integer.MIN_VALUE, "",
+                Limit.unlimited());
+        assertThat(paged).extracting(ApiSortKey::getId).containsExactlyElementsOf(
+                all.stream().map(ApiSortKey::getId).toList());
+    }
+}
@@ -0,0 +1,135 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiRoute;
+import de.thm.apimanagement.entity.ApiSort;
+import de.thm.apimanagement.entity.ApiSortKey;
+import de.thm.apimanagement.entity.ApiSummary;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "de.thm.apimanagement.repository.ApiRepositoryTest$Statements"
+})
+class ApiRepositoryTest {
+    @Autowired
+    private ApiRepository apiRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void clearStatements() {
+        Statements.SQL.clear();
+    }
+
+    @Test
+    void summariesContainTheMetadataOnly() {
+        Api first = persist("first");
+        Api second = persist("second");
+
+        List<ApiSummary> summaries = apiRepository.findSummariesByIdInOrderByIdAsc(List.of(second.getId(), first.getId()));
+
+        assertThat(summaries).extracting(ApiSummary::getId).containsExactly(first.getId(), second.getId());
+        assertThat(summaries.get(0).getName()).isEqualTo("first");
+        assertThat(summaries.get(0).getDescription()).isEqualTo("first description");
+        assertThat(summaries.get(0).getVersion()).isEqualTo("1.0");
+        assertThat(summaries.get(0).getFormat()).isEqualTo("openapi");
+        assertThat(selects()).singleElement().satisfies(sql -> assertThat(sql).doesNotContain("token", "spec_hash"));
+    }
+
+    @Test
+    void routesContainWhatIsNeededToInvoke() {
+        Api api = persist("api");
+
+        ApiRoute route = apiRepository.findRouteById(api.getId()).orElseThrow();
+
+        assertThat(route.getId()).isEqualTo(api.getId());
+        assertThat(route.getToken()).isEqualTo("api token");
+        assertThat(route.getRateLimitPerSecond()).isEqualTo(10);
+        assertThat(route.getRateLimitBurst()).isEqualTo(20);
+        assertThat(route.getMaxConcurrentInvocations()).isEqualTo(5);
+        assertThat(apiRepository.findRouteById(api.getId() + 1000)).isEmpty();
+        assertThat(selects()).allSatisfy(sql -> assertThat(sql).doesNotContain("spec_hash", "description"));
+    }
+
+    @Test
+    void chunkedSummariesStayOrderedById() {
+        List<Integer> ids = IntStream.range(0, ApiRepository.ID_CHUNK_SIZE * 2 + 10)
+                .mapToObj(i -> persist("api-" + i).getId())
+                .toList();
+
+        List<Integer> reversed = new ArrayList<>(ids);
+        Collections.reverse(reversed);
+
+        List<ApiSummary> summaries = apiRepository.findSummariesByIdChunked(reversed);
+
+        assertThat(summaries).extracting(ApiSummary::getId).containsExactlyElementsOf(ids);
+        assertThat(selects()).hasSize(3);
+    }
+
+    @Test
+    void sortKeysOfManyIdsAreMergedIntoOnePage() {
+        List<Integer> ids = IntStream.range(0, ApiRepository.ID_CHUNK_SIZE * 2 + 10)
+                .mapToObj(i -> persist(i % 2 == 0 ? "even" : "odd").getId())
+                .toList();
+        List<Integer> odd = IntStream.range(0, ids.size()).filter(i -> i % 2 == 1).mapToObj(ids::get).toList();
+
+        List<ApiSortKey> byName = apiRepository.findSortKeysChunked(ids, ApiSort.NAME, ids.get(ids.size() - 1), "even", Limit.of(3));
+        List<ApiSortKey> byId = apiRepository.findSortKeysChunked(ids, ApiSort.ID, ids.get(700), null, Limit.of(3));
+
+        assertThat(byName).extracting(ApiSortKey::getId).containsExactlyElementsOf(odd.subList(0, 3));
+        assertThat(byId).extracting(ApiSortKey::getId).containsExactlyElementsOf(ids.subList(701, 704));
+    }
+
+    private Api persist(String name) {
+        Api api = entityManager.persistFlushFind(Api.builder()
+                .name(name)
+                .description(name + " description")
+                .version("1.0")
+                .format("OpenAPI")
+                .token(name + " token")
+                .rateLimitPerSecond(10)
+                .rateLimitBurst(20)
+                .maxConcurrentInvocations(5)
+                .build());
+        entityManager.clear();
+        Statements.SQL.clear();
+        return api;
+    }
+
+    private static List<String> selects() {
+        return Statements.SQL.stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("select"))
+                .toList();
+    }
+
+    /**
+     * Records the SQL sent by Hibernate
+     */
+    public static class Statements implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
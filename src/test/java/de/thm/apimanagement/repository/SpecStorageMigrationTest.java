@@ -0,0 +1,90 @@
+package de.thm.apimanagement.repository;
+
+import de.thm.apimanagement.service.SpecBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+// The migration commits every batch on its own, like it does on startup
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpecStorageMigrationTest {
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SpecBlobRepository specBlobRepository;
+    private JdbcTemplate jdbcTemplate;
+    private SpecBlobStore specBlobStore;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        specBlobStore = new SpecBlobStore(specBlobRepository, new SimpleMeterRegistry(), 100);
+        jdbcTemplate.execute("ALTER TABLE api ADD COLUMN spec CLOB");
+        for (int id = 1; id <= 5; id++) {
+            // Two of the APIs share their specification
+            jdbcTemplate.update("INSERT INTO api (id, name, spec) VALUES (?, ?, ?)",
+                    id, "api " + id, "{\"title\":\"api " + Math.min(id, 4) + "\"}");
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM api");
+        jdbcTemplate.execute("ALTER TABLE api DROP COLUMN spec");
+        specBlobRepository.deleteAll();
+    }
+
+    private SpecStorageMigration migration(JdbcTemplate jdbcTemplate) {
+        return new SpecStorageMigration(jdbcTemplate, specBlobStore, new TransactionTemplate(transactionManager),
+                true, 2);
+    }
+
+    @Test
+    void movesSpecificationsIntoTheBlobStore() {
+        migration(jdbcTemplate).afterSingletonsInstantiated();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM api WHERE spec_hash IS NULL OR spec IS NOT NULL",
+                Integer.class)).isZero();
+        assertThat(refCounts()).containsExactly(1, 1, 1, 2);
+        String hash = jdbcTemplate.queryForObject("SELECT spec_hash FROM api WHERE id = 5", String.class);
+        assertThat(specBlobStore.load(hash)).containsEntry("title", "api 4");
+    }
+
+    @Test
+    void failedBatchAddsNoReferencesAndIsMigratedAgain() {
+        JdbcTemplate failing = spy(jdbcTemplate);
+        doThrow(new IllegalStateException("database is gone")).when(failing).batchUpdate(anyString(), anyList());
+
+        assertThatThrownBy(() -> migration(failing).afterSingletonsInstantiated())
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(specBlobRepository.count()).isZero();
+
+        migration(jdbcTemplate).afterSingletonsInstantiated();
+        assertThat(refCounts()).containsExactly(1, 1, 1, 2);
+    }
+
+    private List<Integer> refCounts() {
+        return jdbcTemplate.queryForList("SELECT ref_count FROM spec_blob ORDER BY ref_count", Integer.class);
+    }
+}
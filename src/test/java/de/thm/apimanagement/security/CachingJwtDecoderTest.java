@@ -0,0 +1,71 @@
+package de.thm.apimanagement.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingJwtDecoderTest {
+    private final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    private CachingJwtDecoder decoder(Instant expiresAt) {
+        return new CachingJwtDecoder(token -> {
+            decodes.incrementAndGet();
+            if (token.equals("invalid")) {
+                throw new BadJwtException("invalid");
+            }
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("user")
+                    .issuedAt(now.minusSeconds(60))
+                    .expiresAt(expiresAt)
+                    .build();
+        }, meterRegistry, 100, Duration.ofMinutes(10), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void verifiesEveryTokenOnce() {
+        CachingJwtDecoder decoder = decoder(now.plusSeconds(300));
+
+        Jwt first = decoder.decode("token");
+        Jwt second = decoder.decode("token");
+        decoder.decode("other");
+
+        assertThat(second).isSameAs(first);
+        assertThat(decodes).hasValue(2);
+        assertThat(meterRegistry.get("jwt.verification").tag("outcome", "valid").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("jwt.verification.saved").counter().count()).isPositive();
+    }
+
+    @Test
+    void keepsNoRejectedTokens() {
+        CachingJwtDecoder decoder = decoder(now.plusSeconds(300));
+
+        assertThatThrownBy(() -> decoder.decode("invalid")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("invalid")).isInstanceOf(BadJwtException.class);
+
+        assertThat(decodes).hasValue(2);
+        assertThat(meterRegistry.get("jwt.verification").tag("outcome", "invalid").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsNoExpiredTokens() {
+        CachingJwtDecoder decoder = decoder(now.minusSeconds(1));
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        assertThat(decodes).hasValue(2);
+    }
+}
@@ -0,0 +1,140 @@
+package de.thm.apimanagement.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SecurityConfigTest {
+    private final RSAKey key = rsaKey();
+    private final OAuth2ResourceServerProperties properties = new OAuth2ResourceServerProperties();
+
+    private JwtDecoder decoder() {
+        return new SecurityConfig().jwtDecoder(properties, new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void verifiesTokensWithTheKeyOfThePublicKeyLocation(@TempDir Path directory) throws Exception {
+        Path publicKey = directory.resolve("key.pub");
+        Files.writeString(publicKey, "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder().encodeToString(key.toRSAPublicKey().getEncoded())
+                + "\n-----END PUBLIC KEY-----\n");
+        properties.getJwt().setPublicKeyLocation(new FileSystemResource(publicKey));
+        properties.getJwt().setAudiences(List.of("apimanagement"));
+
+        JwtDecoder decoder = decoder();
+
+        assertThat(decoder.decode(token(null, "apimanagement")).getSubject()).isEqualTo("alice");
+        assertThatThrownBy(() -> decoder.decode(token(null, "other"))).isInstanceOf(JwtValidationException.class);
+    }
+
+    @Test
+    void loadsTheKeysFromTheIssuerOnceTheFirstTokenArrives() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        String issuer = "http://127.0.0.1:" + server.getAddress().getPort() + "/realms/test";
+        server.createContext("/realms/test/.well-known/openid-configuration", exchange -> respond(exchange,
+                "{\"issuer\":\"" + issuer + "\",\"jwks_uri\":\"" + issuer + "/certs\","
+                        + "\"id_token_signing_alg_values_supported\":[\"RS256\"]}"));
+        server.createContext("/realms/test/certs", exchange ->
+                respond(exchange, new JWKSet(key.toPublicJWK()).toString()));
+        properties.getJwt().setIssuerUri(issuer);
+
+        // The issuer is not running yet when the decoder is created
+        JwtDecoder decoder = decoder();
+        server.start();
+        try {
+            assertThat(decoder.decode(token(issuer, null)).getSubject()).isEqualTo("alice");
+            assertThatThrownBy(() -> decoder.decode(token("https://other.example.com", null)))
+                    .isInstanceOf(JwtValidationException.class);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void failsWithoutAnySourceOfKeys() {
+        assertThatThrownBy(this::decoder)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("jwk-set-uri, issuer-uri or public-key-location");
+    }
+
+    @Test
+    void failsWithAMissingPublicKeyLocation(@TempDir Path directory) {
+        properties.getJwt().setPublicKeyLocation(new FileSystemResource(directory.resolve("missing.pub")));
+
+        assertThatThrownBy(this::decoder)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("does not exist");
+    }
+
+    private String token(String issuer, String audience) {
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .subject("alice")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60));
+        if (issuer != null) {
+            claims.issuer(issuer);
+        }
+        if (audience != null) {
+            claims.audience(List.of(audience));
+        }
+        NimbusJwtEncoder encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key)));
+        return encoder.encode(JwtEncoderParameters.from(
+                JwsHeader.with(SignatureAlgorithm.RS256).keyId(key.getKeyID()).build(), claims.build()))
+                .getTokenValue();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static RSAKey rsaKey() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            return new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+                    .privateKey((RSAPrivateKey) keyPair.getPrivate())
+                    .keyID("test")
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.entity.ApiSort;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiCursorTest {
+
+    @Test
+    void decodesWhatHasBeenEncoded() {
+        ApiCursor byId = new ApiCursor(ApiSort.ID, 42, null);
+        ApiCursor byName = new ApiCursor(ApiSort.NAME, 7, "pets\nand more");
+        ApiCursor byEmptyName = new ApiCursor(ApiSort.NAME, 3, "");
+
+        assertThat(ApiCursor.decode(byId.encode(), ApiSort.ID)).isEqualTo(byId);
+        assertThat(ApiCursor.decode(byName.encode(), ApiSort.NAME)).isEqualTo(byName);
+        assertThat(ApiCursor.decode(byEmptyName.encode(), ApiSort.NAME)).isEqualTo(byEmptyName);
+        assertThat(byName.encode()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void startsWithoutCursor() {
+        assertThat(ApiCursor.decode(null, ApiSort.ID)).isNull();
+        assertThat(ApiCursor.decode(" ", ApiSort.NAME)).isNull();
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherOrder() {
+        String cursor = new ApiCursor(ApiSort.NAME, 7, "pets").encode();
+
+        assertThatThrownBy(() -> ApiCursor.decode(cursor, ApiSort.ID))
+                .isInstanceOf(ServiceBadRequest.class)
+                .hasMessageContaining("sort order");
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        for (String cursor : new String[]{"not base64!", encode("ID"), encode("ID\nseven"), encode("SIZE\n7"), encode("\n7"),
+                encode("ID\n7\npets")}) {
+            assertThatThrownBy(() -> ApiCursor.decode(cursor, ApiSort.ID))
+                    .as(cursor)
+                    .isInstanceOf(ServiceBadRequest.class)
+                    .hasMessage("Invalid cursor");
+        }
+        assertThatThrownBy(() -> ApiCursor.decode(encode("NAME\n7"), ApiSort.NAME))
+                .isInstanceOf(ServiceBadRequest.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,230 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.client.McpManagementClient;
+import de.thm.apimanagement.client.Spec2ToolClient;
+import de.thm.apimanagement.client.UserManagementClient;
+import de.thm.apimanagement.client.exceptions.ClientUnavailableException;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiSummary;
+import de.thm.apimanagement.entity.ApiWithActive;
+import de.thm.apimanagement.entity.BatchItemResult;
+import de.thm.apimanagement.entity.ToolDefinition;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+import de.thm.apimanagement.service.exceptions.ServiceError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ApiServiceImplBatchTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    // Fakes of the repository and the subservices, so the net effect of every batch can be checked
+    private final Map<Integer, Api> table = new ConcurrentHashMap<>();
+    private final Set<Integer> assigned = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, ToolDefinition> tools = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ApiRepository apiRepository = repository();
+    private final SpecBlobStore specBlobStore = mock(SpecBlobStore.class);
+    private final InvokeRouteTable invokeRouteTable = mock(InvokeRouteTable.class);
+    private final Spec2ToolClient spec2ToolClient = mock(Spec2ToolClient.class);
+    private final UserManagementClient userManagementClient = mock(UserManagementClient.class);
+    private final McpManagementClient mcpManagementClient = mock(McpManagementClient.class);
+    private ApiServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ApiServiceImpl(apiRepository);
+        ReflectionTestUtils.setField(service, "spec2ToolClient", spec2ToolClient);
+        ReflectionTestUtils.setField(service, "userManagementClient", userManagementClient);
+        ReflectionTestUtils.setField(service, "mcpManagementClient", mcpManagementClient);
+        ReflectionTestUtils.setField(service, "invokeRouteTable", invokeRouteTable);
+        ReflectionTestUtils.setField(service, "specBlobStore", specBlobStore);
+        ReflectionTestUtils.setField(service, "sagaExecutor", executor);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(service, "batchParallelism", 2);
+
+        when(specBlobStore.acquire(any())).thenAnswer(call -> "hash-" + call.getArgument(0));
+        when(spec2ToolClient.convertSpec2Tool(anyString(), any())).thenAnswer(call -> {
+            if (call.getArgument(0).equals("broken")) {
+                throw new ClientUnavailableException("spec2tool is unavailable");
+            }
+            return new ToolDefinition();
+        });
+        when(userManagementClient.getApisOfUser("alice")).thenAnswer(call -> assigned.stream()
+                .map(id -> new ApiWithActive(id, true))
+                .toArray(ApiWithActive[]::new));
+        doAnswer(call -> assigned.add(call.<ApiWithActive>getArgument(1).getApiId()))
+                .when(userManagementClient).addApiToUser(eq("alice"), any());
+        doAnswer(call -> assigned.remove(call.<Integer>getArgument(1)))
+                .when(userManagementClient).deleteApiFromUser(eq("alice"), anyInt());
+        doAnswer(call -> tools.put(call.getArgument(0), call.getArgument(1)))
+                .when(mcpManagementClient).addOrUpdateTool(anyInt(), any());
+        doAnswer(call -> tools.remove(call.<Integer>getArgument(0)))
+                .when(mcpManagementClient).deleteTool(anyInt());
+        when(mcpManagementClient.getToolWithId(anyInt())).thenAnswer(call -> tools.get(call.<Integer>getArgument(0)));
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void saveCompensatesFailedItemsOnly() {
+        List<BatchItemResult> results = service.saveApis(List.of(api("first", "openapi"), api("broken", "broken"),
+                api("third", "openapi")), "alice", null);
+
+        assertThat(results).extracting(BatchItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(200, 503, 200);
+        assertThat(results.get(1).getId()).isNull();
+        assertThat(results.get(1).getError()).isEqualTo("spec2tool is unavailable");
+
+        List<Integer> savedIds = List.of(results.get(0).getId(), results.get(2).getId());
+        assertThat(table.keySet()).containsExactlyInAnyOrderElementsOf(savedIds);
+        assertThat(assigned).containsExactlyInAnyOrderElementsOf(savedIds);
+        assertThat(tools.keySet()).containsExactlyInAnyOrderElementsOf(savedIds);
+        verify(specBlobStore).release("hash-{title=broken}");
+        verify(invokeRouteTable).remove(2);
+    }
+
+    @Test
+    void failedInsertFailsTheWholeBatch() {
+        doThrow(new IllegalStateException("database is gone")).when(apiRepository).saveAll(any());
+
+        assertThatThrownBy(() -> service.saveApis(List.of(api("first", "openapi")), "alice", null))
+                .isInstanceOf(ServiceError.class)
+                .hasMessage("database is gone");
+        verify(specBlobStore).release("hash-{title=first}");
+        verify(userManagementClient, never()).addApiToUser(anyString(), any());
+    }
+
+    @Test
+    void updateReportsEveryItemAndRestoresFailedOnes() {
+        int first = existing("first");
+        int second = existing("second");
+        int foreign = existing("foreign");
+        assigned.remove(foreign);
+        doThrow(new ClientUnavailableException("mcp is unavailable"))
+                .when(mcpManagementClient).addOrUpdateTool(eq(second), any());
+
+        List<BatchItemResult> results = service.updateApis(List.of(update(first, "renamed"), update(second, "renamed"),
+                update(foreign, "renamed"), update(999, "renamed"), update(first, "again")), "alice", null);
+
+        assertThat(results).extracting(BatchItemResult::getId).containsExactly(first, second, foreign, 999, first);
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(200, 503, 404, 404, 400);
+        assertThat(results.get(4).getError()).isEqualTo("Api " + first + " is contained more than once");
+        assertThat(table.get(first).getName()).isEqualTo("renamed");
+        assertThat(table.get(second).getName()).isEqualTo("second");
+        assertThat(table.get(foreign).getName()).isEqualTo("foreign");
+        verify(invokeRouteTable).put(argThat(api -> api.getId() == second && api.getName().equals("second")));
+    }
+
+    @Test
+    void deleteReportsEveryItemAndRestoresFailedOnes() {
+        int first = existing("first");
+        int second = existing("second");
+        tools.put(first, new ToolDefinition());
+        tools.put(second, new ToolDefinition());
+        doThrow(new ClientUnavailableException("user management is unavailable"))
+                .when(userManagementClient).deleteApiFromUser("alice", second);
+
+        List<BatchItemResult> results = service.deleteApisById(List.of(first, second, 999, first), "alice", null);
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(200, 503, 404, 400);
+        assertThat(results).extracting(BatchItemResult::getId).containsExactly(first, second, 999, first);
+        assertThat(table).containsOnlyKeys(second);
+        assertThat(assigned).containsExactly(second);
+        assertThat(tools).containsOnlyKeys(second);
+        verify(invokeRouteTable).remove(first);
+        verify(invokeRouteTable, never()).remove(second);
+    }
+
+    @Test
+    void rejectsBatchesAboveTheLimit() {
+        List<Integer> ids = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+
+        assertThatThrownBy(() -> service.deleteApisById(ids, "alice", null))
+                .isInstanceOf(ServiceBadRequest.class);
+    }
+
+    private static Api api(String name, String format) {
+        return Api.builder().name(name).format(format).spec(Map.of("title", name)).build();
+    }
+
+    private static Api update(int id, String name) {
+        return Api.builder().id(id).name(name).format("openapi").build();
+    }
+
+    private int existing(String name) {
+        int id = nextId.getAndIncrement();
+        table.put(id, Api.builder().id(id).name(name).format("openapi").build());
+        assigned.add(id);
+        return id;
+    }
+
+    private ApiRepository repository() {
+        ApiRepository repository = mock(ApiRepository.class);
+        when(repository.saveAll(any())).thenAnswer(call -> {
+            Iterable<Api> apis = call.getArgument(0);
+            apis.forEach(api -> {
+                api.setId(nextId.getAndIncrement());
+                table.put(api.getId(), new Api(api));
+            });
+            return apis;
+        });
+        when(repository.save(any())).thenAnswer(call -> {
+            Api api = call.getArgument(0);
+            table.put(api.getId(), new Api(api));
+            return api;
+        });
+        doAnswer(call -> table.remove(call.<Api>getArgument(0).getId())).when(repository).delete(any());
+        when(repository.findById(any())).thenAnswer(call ->
+                Optional.ofNullable(table.get(call.<Integer>getArgument(0))).map(Api::new));
+        when(repository.findAllByIdChunked(any())).thenAnswer(call -> call.<Collection<Integer>>getArgument(0).stream()
+                .distinct()
+                .map(table::get)
+                .filter(Objects::nonNull)
+                .map(Api::new)
+                .toList());
+        when(repository.findSummariesByIdChunked(any())).thenAnswer(call -> call.<Collection<Integer>>getArgument(0).stream()
+                .distinct()
+                .filter(table::containsKey)
+                .map(ApiServiceImplBatchTest::summary)
+                .toList());
+        return repository;
+    }
+
+    private static ApiSummary summary(int id) {
+        ApiSummary summary = mock(ApiSummary.class);
+        when(summary.getId()).thenReturn(id);
+        return summary;
+    }
+}
@@ -0,0 +1,197 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.client.ExternalApiClient;
+import de.thm.apimanagement.client.UserManagementClient;
+import de.thm.apimanagement.entity.ApiWithActive;
+import de.thm.apimanagement.entity.BatchInvokeItem;
+import de.thm.apimanagement.entity.BatchInvokeResult;
+import de.thm.apimanagement.entity.InvokeQuery;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ApiServiceImplInvokeBatchTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final InvokeRouteTable invokeRouteTable = mock(InvokeRouteTable.class);
+    private final UserManagementClient userManagementClient = mock(UserManagementClient.class);
+    private final ExternalApiClient externalApiClient = mock(ExternalApiClient.class);
+    private final List<BatchInvokeResult> results = new CopyOnWriteArrayList<>();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private ApiServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ApiServiceImpl(mock(ApiRepository.class));
+        ReflectionTestUtils.setField(service, "userManagementClient", userManagementClient);
+        ReflectionTestUtils.setField(service, "externalApiClient", externalApiClient);
+        ReflectionTestUtils.setField(service, "invokeRouteTable", invokeRouteTable);
+        ReflectionTestUtils.setField(service, "invokeLimiter",
+                new InvokeLimiter(new SimpleMeterRegistry(), 0, 0, 0, 0, 0, 0));
+        ReflectionTestUtils.setField(service, "invokeJobExecutor", new TaskExecutorAdapter(executor));
+        ReflectionTestUtils.setField(service, "maxInvokeBatchSize", 10);
+        ReflectionTestUtils.setField(service, "invokeBatchParallelism", 2);
+        ReflectionTestUtils.setField(service, "invokeBatchDeadline", Duration.ofSeconds(10));
+
+        when(userManagementClient.getApisOfUser("alice")).thenReturn(IntStream.rangeClosed(1, 5)
+                .mapToObj(id -> new ApiWithActive(id, true))
+                .toArray(ApiWithActive[]::new));
+        when(invokeRouteTable.get(anyInt())).thenAnswer(call ->
+                new InvokeRouteTable.InvokeRoute(call.getArgument(0), "token", null));
+        when(externalApiClient.invoke(anyInt(), eq("token"), any())).thenAnswer(call ->
+                new InvokeResult(200, Map.of(), "api " + call.getArgument(0)));
+    }
+
+    @AfterEach
+    void shutdown() {
+        unblock.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void reportsEveryItemOnceWithItsOwnStatus() {
+        service.invokeBatch(items(1, 2, 6, 3), "alice", null, results::add);
+
+        assertThat(results).extracting(BatchInvokeResult::getIndex).containsExactlyInAnyOrder(0, 1, 2, 3);
+        BatchInvokeResult forbidden = result(2);
+        assertThat(forbidden.getStatus()).isEqualTo(404);
+        assertThat(forbidden.getResult()).isNull();
+        assertThat(result(3).getStatus()).isEqualTo(200);
+        assertThat(result(3).getResult().getBody()).isEqualTo("api 3");
+    }
+
+    @Test
+    void runsAtMostTheConfiguredNumberOfInvocationsAtOnce() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(externalApiClient.invoke(anyInt(), eq("token"), any())).thenAnswer(call -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return new InvokeResult(200, Map.of(), "ok");
+        });
+
+        service.invokeBatch(items(1, 2, 3, 4, 5, 1, 2, 3), "alice", null, results::add);
+
+        assertThat(results).hasSize(8);
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test
+    void itemsNotReportedByTheDeadlineAreAnsweredWith504() {
+        ReflectionTestUtils.setField(service, "invokeBatchDeadline", Duration.ofMillis(300));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(externalApiClient.invoke(eq(2), eq("token"), any())).thenAnswer(call -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return new InvokeResult(200, Map.of(), "late");
+        });
+
+        long started = System.nanoTime();
+        service.invokeBatch(items(1, 2, 3), "alice", null, results::add);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+        assertThat(results).extracting(BatchInvokeResult::getIndex).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(result(0).getStatus()).isEqualTo(200);
+        assertThat(result(1).getStatus()).isEqualTo(504);
+        assertThat(result(1).getApiId()).isEqualTo(2);
+        assertThat(result(1).getError()).isEqualTo("Deadline of the batch has been exceeded");
+        assertThat(result(2).getStatus()).isEqualTo(200);
+        // The worker still waiting for its invocation is cancelled
+        assertThat(awaitQuietly(interrupted)).isTrue();
+    }
+
+    @Test
+    void workerOverrunningTheDeadlineReportsNothingOnceTheBatchHasEnded() throws Exception {
+        ReflectionTestUtils.setField(service, "invokeBatchDeadline", Duration.ofMillis(300));
+        ReflectionTestUtils.setField(service, "invokeBatchParallelism", 1);
+        CountDownLatch returned = new CountDownLatch(1);
+        when(externalApiClient.invoke(eq(1), eq("token"), any())).thenAnswer(call -> {
+            // Ignores the cancellation, like a request which can not be aborted
+            boolean waiting = true;
+            while (waiting) {
+                try {
+                    unblock.await();
+                    waiting = false;
+                } catch (InterruptedException e) {
+                    // Keeps waiting
+                }
+            }
+            returned.countDown();
+            return new InvokeResult(200, Map.of(), "late");
+        });
+        List<BatchInvokeResult> afterTheBatch = new CopyOnWriteArrayList<>();
+        boolean[] ended = new boolean[1];
+
+        service.invokeBatch(items(1, 2), "alice", null, result -> {
+            results.add(result);
+            if (ended[0]) {
+                afterTheBatch.add(result);
+            }
+        });
+        ended[0] = true;
+        unblock.countDown();
+
+        assertThat(returned.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(results).extracting(BatchInvokeResult::getStatus).containsExactly(504, 504);
+        assertThat(afterTheBatch).isEmpty();
+        // The remaining item is not taken once the batch has ended
+        verify(externalApiClient, never()).invoke(eq(2), any(), any());
+    }
+
+    @Test
+    void rejectsBatchesAboveTheMaxSize() {
+        assertThatThrownBy(() -> service.invokeBatch(items(1, 2, 3, 4, 5, 1, 2, 3, 4, 5, 1), "alice", null,
+                results::add)).isInstanceOf(ServiceBadRequest.class);
+        assertThat(results).isEmpty();
+    }
+
+    private BatchInvokeResult result(int index) {
+        return results.stream().filter(result -> result.getIndex() == index).findFirst().orElseThrow();
+    }
+
+    private static List<BatchInvokeItem> items(int... apiIds) {
+        return IntStream.of(apiIds).mapToObj(id -> new BatchInvokeItem(id, new InvokeQuery())).toList();
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
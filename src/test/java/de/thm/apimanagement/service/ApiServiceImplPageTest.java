@@ -0,0 +1,159 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.client.UserManagementClient;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiPage;
+import de.thm.apimanagement.entity.ApiPageRequest;
+import de.thm.apimanagement.entity.ApiWithActive;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.repository.SpecBlobRepository;
+import de.thm.apimanagement.service.exceptions.ServiceBadRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ApiServiceImplPageTest {
+    private final UserManagementClient userManagementClient = mock(UserManagementClient.class);
+    private final List<Integer> entitledIds = new ArrayList<>();
+    @Autowired
+    private ApiRepository apiRepository;
+    @Autowired
+    private SpecBlobRepository specBlobRepository;
+    private SpecBlobStore specBlobStore;
+    private ApiServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        specBlobStore = new SpecBlobStore(specBlobRepository, new SimpleMeterRegistry(), 100);
+        service = new ApiServiceImpl(apiRepository);
+        ReflectionTestUtils.setField(service, "userManagementClient", userManagementClient);
+        ReflectionTestUtils.setField(service, "specBlobStore", specBlobStore);
+        ReflectionTestUtils.setField(service, "maxPageSize", 1000);
+        ReflectionTestUtils.setField(service, "listChunkSize", 100);
+        when(userManagementClient.getApisOfUser("alice")).thenAnswer(call -> entitledIds.stream()
+                .map(id -> new ApiWithActive(id, true))
+                .toArray(ApiWithActive[]::new));
+    }
+
+    @Test
+    void pagesByIdSkipOtherAndDeletedApis() {
+        int first = save("first", true);
+        save("hidden", false);
+        int second = save("second", true);
+        int third = save("third", true);
+        entitledIds.add(third + 1000);
+
+        List<ApiPage> pages = allPages(2, null);
+
+        assertThat(pages).extracting(page -> ids(page)).containsExactly(List.of(first, second), List.of(third));
+        assertThat(pages.get(1).nextCursor()).isNull();
+    }
+
+    @Test
+    void pagesByNameBreakTiesById() {
+        int unnamed = save(null, true);
+        int firstB = save("b", true);
+        int firstA = save("a", true);
+        int secondB = save("b", true);
+        int secondA = save("a", true);
+        save("a", false);
+
+        List<Integer> ids = allPages(2, "name").stream().flatMap(page -> ids(page).stream()).toList();
+
+        assertThat(ids).containsExactly(unnamed, firstA, secondA, firstB, secondB);
+    }
+
+    @Test
+    void withoutLimitEverythingIsOnOnePage() {
+        int first = save("first", true);
+        int second = save("second", true);
+
+        ApiPage page = service.fetchApiPage("alice", null, new ApiPageRequest(null, null, null, null));
+
+        assertThat(ids(page)).containsExactly(first, second);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void laterChunksAreLoadedWhileThePageIsIterated() {
+        ReflectionTestUtils.setField(service, "listChunkSize", 2);
+        int first = save("first", true);
+        int second = save("second", true);
+        int third = save("third", true);
+        int fourth = save("fourth", true);
+        int fifth = save("fifth", true);
+
+        ApiPage page = service.fetchApiPage("alice", null, new ApiPageRequest(null, null, null, null));
+        apiRepository.deleteById(first);
+        apiRepository.deleteById(fourth);
+
+        // The first chunk was loaded with the page, the fourth API was deleted before its chunk was loaded
+        assertThat(ids(page)).containsExactly(first, second, third, fifth);
+    }
+
+    @Test
+    void summaryFieldsReadNeitherTokensNorSpecifications() {
+        save("pets", true);
+
+        Api summary = service.fetchApiPage("alice", null, new ApiPageRequest(null, null, null, "summary")).apis().iterator().next();
+        Api withSpec = service.fetchApiPage("alice", null, new ApiPageRequest(null, null, null, "name,spec")).apis().iterator().next();
+        Api whole = service.fetchApiPage("alice", null, new ApiPageRequest(null, null, null, null)).apis().iterator().next();
+
+        assertThat(summary.getName()).isEqualTo("pets");
+        assertThat(summary.getToken()).isNull();
+        assertThat(summary.getSpec()).isNull();
+        assertThat(withSpec.getSpec()).containsEntry("title", "pets");
+        assertThat(whole.getToken()).isEqualTo("pets token");
+        assertThat(whole.getSpec()).containsEntry("title", "pets");
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndSortOrders() {
+        assertThatThrownBy(() -> service.fetchApiPage("alice", null, new ApiPageRequest(null, null, null, "name,secret")))
+                .isInstanceOf(ServiceBadRequest.class);
+        assertThatThrownBy(() -> service.fetchApiPage("alice", null, new ApiPageRequest(null, null, "size", null)))
+                .isInstanceOf(ServiceBadRequest.class);
+    }
+
+    private List<ApiPage> allPages(int limit, String sort) {
+        List<ApiPage> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            ApiPage page = service.fetchApiPage("alice", null, new ApiPageRequest(limit, cursor, sort, null));
+            assertThat(page.apis()).hasSizeLessThanOrEqualTo(limit);
+            pages.add(page);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private static List<Integer> ids(ApiPage page) {
+        return StreamSupport.stream(page.apis().spliterator(), false).map(Api::getId).toList();
+    }
+
+    private int save(String name, boolean entitled) {
+        Api api = apiRepository.save(Api.builder()
+                .name(name)
+                .token(name + " token")
+                .specHash(specBlobStore.acquire(Map.of("title", String.valueOf(name))))
+                .build());
+        if (entitled) {
+            entitledIds.add(api.getId());
+        }
+        return api.getId();
+    }
+}
@@ -0,0 +1,208 @@
+package de.thm.apimanagement.service;
+
+import com.sun.net.httpserver.HttpServer;
+import de.thm.apimanagement.client.RequestCancellation;
+import de.thm.apimanagement.entity.InvokeJob;
+import de.thm.apimanagement.entity.InvokeResult;
+import de.thm.apimanagement.service.exceptions.ServiceNotFound;
+import de.thm.apimanagement.service.exceptions.ServiceRateLimited;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvokeJobStoreTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final InvokeJobStore store = new InvokeJobStore(
+            executor, new SimpleMeterRegistry(), Duration.ofMinutes(1), 100);
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        unblock.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void finishedJobCanBeFetchedByItsOwnerOnly() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        InvokeJob job = store.submit(1, "alice", null,
+                () -> new InvokeResult(200, Map.of(), "ok"), released::countDown);
+
+        InvokeJob finished = store.await(job.id(), "alice", null).get(5, TimeUnit.SECONDS);
+        assertThat(finished.status()).isEqualTo(InvokeJob.Status.SUCCEEDED);
+        assertThat(finished.result().getBody()).isEqualTo("ok");
+        assertThat(store.get(job.id(), "alice", null)).isEqualTo(finished);
+        assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> store.get(job.id(), "bob", null)).isInstanceOf(ServiceNotFound.class);
+        assertThatThrownBy(() -> store.get(job.id(), "alice", "group")).isInstanceOf(ServiceNotFound.class);
+    }
+
+    @Test
+    void failureKeepsItsStatus() throws Exception {
+        InvokeJob job = store.submit(1, "alice", null, () -> {
+            throw new ServiceRateLimited("limited", 1);
+        }, () -> {});
+
+        InvokeJob finished = store.await(job.id(), "alice", null).get(5, TimeUnit.SECONDS);
+        assertThat(finished.status()).isEqualTo(InvokeJob.Status.FAILED);
+        assertThat(finished.errorStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void cancellingInterruptsTheInvocationAndReleasesIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        InvokeJob job = store.submit(1, "alice", null, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return new InvokeResult(200, Map.of(), "late");
+        }, released::countDown);
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(store.cancel(job.id(), "alice", null).status()).isEqualTo(InvokeJob.Status.CANCELLED);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(store.get(job.id(), "alice", null).status()).isEqualTo(InvokeJob.Status.CANCELLED);
+    }
+
+    @Test
+    void cancellingAbortsARequestWaitingForItsResponse() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow", exchange -> {
+            // Never answers while the test runs
+            await(unblock);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        CountDownLatch returned = new CountDownLatch(1);
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            RestClient client = RestClient.builder()
+                    .requestFactory(RequestCancellation.requestFactory(httpClient))
+                    .build();
+            InvokeJob job = store.submit(1, "alice", null, () -> {
+                try {
+                    client.get().uri("http://127.0.0.1:" + server.getAddress().getPort() + "/slow")
+                            .retrieve().toBodilessEntity();
+                    return new InvokeResult(200, Map.of(), "late");
+                } finally {
+                    returned.countDown();
+                }
+            }, () -> {});
+
+            // The request has been sent once it is waiting for its response
+            Thread.sleep(200);
+            store.cancel(job.id(), "alice", null);
+
+            assertThat(returned.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            unblock.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void cancellingReleasesAnInvocationWhichDoesNotReturn() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger releases = new AtomicInteger();
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        InvokeJob job = store.submit(1, "alice", null, () -> {
+            started.countDown();
+            awaitUninterruptibly(unblock);
+            returned.countDown();
+            return new InvokeResult(200, Map.of(), "late");
+        }, () -> {
+            releases.incrementAndGet();
+            released.countDown();
+        });
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        store.cancel(job.id(), "alice", null);
+        assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+
+        unblock.countDown();
+        assertThat(returned.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(releases).hasValue(1);
+        assertThat(store.get(job.id(), "alice", null).status()).isEqualTo(InvokeJob.Status.CANCELLED);
+    }
+
+    @Test
+    void awaitingStagesRunWithoutHoldingTheJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        InvokeJob job = store.submit(1, "alice", null, () -> {
+            started.countDown();
+            await(unblock);
+            return new InvokeResult(200, Map.of(), "ok");
+        }, () -> {});
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The stage runs on the thread finishing the job and cancels it from yet another thread
+        AtomicReference<InvokeJob> cancelledByOther = new AtomicReference<>();
+        CompletableFuture<InvokeJob> awaited = store.await(job.id(), "alice", null).thenApply(finished -> {
+            Thread other = new Thread(() -> cancelledByOther.set(store.cancel(job.id(), "alice", null)));
+            other.start();
+            try {
+                other.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return finished;
+        });
+        unblock.countDown();
+
+        assertThat(awaited.get(10, TimeUnit.SECONDS).status()).isEqualTo(InvokeJob.Status.SUCCEEDED);
+        assertThat(cancelledByOther.get()).isNotNull();
+        assertThat(cancelledByOther.get().status()).isEqualTo(InvokeJob.Status.SUCCEEDED);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
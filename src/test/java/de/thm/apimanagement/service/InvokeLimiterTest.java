@@ -0,0 +1,56 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.service.exceptions.ServiceRateLimited;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvokeLimiterTest {
+    private static final InvokeLimiter.Limits UNLIMITED = new InvokeLimiter.Limits(0, 0, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void refundsTheApiTokenWhenTheCallerIsRejected() {
+        InvokeLimiter limiter = new InvokeLimiter(meterRegistry, new InvokeLimiter.Limits(0, 0, 1), UNLIMITED,
+                Duration.ofMinutes(10), 100);
+        InvokeLimiter.Limits apiLimits = new InvokeLimiter.Limits(1, 2, 0);
+
+        InvokeLimiter.Permit alice = limiter.acquire(1, apiLimits, "alice", null);
+        assertThatThrownBy(() -> limiter.acquire(1, apiLimits, "alice", null))
+                .isInstanceOf(ServiceRateLimited.class)
+                .hasMessageContaining("user alice");
+        // The second token of the burst is still there
+        limiter.acquire(1, apiLimits, "bob", null).close();
+        alice.close();
+
+        assertThat(count("api", "allowed")).isEqualTo(2);
+        assertThat(count("user", "allowed")).isEqualTo(2);
+        assertThat(count("user", "rejected")).isEqualTo(1);
+        assertThatThrownBy(() -> limiter.acquire(1, apiLimits, "carol", null))
+                .hasMessageContaining("api 1");
+    }
+
+    @Test
+    void keepsTheConcurrencyCapOfDroppedLimitersWithInvocationsInFlight() throws Exception {
+        InvokeLimiter limiter = new InvokeLimiter(meterRegistry, UNLIMITED, UNLIMITED, Duration.ofNanos(1), 100);
+        InvokeLimiter.Limits apiLimits = new InvokeLimiter.Limits(0, 0, 1);
+
+        InvokeLimiter.Permit first = limiter.acquire(1, apiLimits, "alice", null);
+        // The limiter has been idle for longer than the timeout by now
+        Thread.sleep(5);
+        assertThatThrownBy(() -> limiter.acquire(1, apiLimits, "bob", null))
+                .isInstanceOf(ServiceRateLimited.class);
+
+        first.close();
+        limiter.acquire(1, apiLimits, "bob", null).close();
+    }
+
+    private double count(String scope, String result) {
+        return meterRegistry.get("invoke.limiter").tag("scope", scope).tag("result", result).counter().count();
+    }
+}
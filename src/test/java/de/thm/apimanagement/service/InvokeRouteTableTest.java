@@ -0,0 +1,133 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.commands.DeleteApiFromRepositoryCommand;
+import de.thm.apimanagement.commands.SaveApiToRepositoryCommand;
+import de.thm.apimanagement.commands.UpdateApiInRepositoryCommand;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ApiRoute;
+import de.thm.apimanagement.repository.ApiRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InvokeRouteTableTest {
+    private final Map<Integer, Api> table = new HashMap<>();
+    private final ApiRepository apiRepository = repository(table);
+    private final SpecBlobStore specBlobStore = mock(SpecBlobStore.class);
+    private final InvokeRouteTable routeTable =
+            new InvokeRouteTable(apiRepository, new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+
+    @Test
+    void loadsUnknownRoutesOnce() {
+        table.put(1, api(1, "token", 10));
+
+        assertThat(routeTable.get(1).token()).isEqualTo("token");
+        assertThat(routeTable.get(1).limits().requestsPerSecond()).isEqualTo(10);
+        assertThat(routeTable.get(2)).isNull();
+        verify(apiRepository, times(1)).findRouteById(1);
+    }
+
+    @Test
+    void savedApisAreRoutedWithoutLoading() {
+        new SaveApiToRepositoryCommand(apiRepository, specBlobStore, routeTable, api(1, "token", 10)).execute();
+
+        assertThat(routeTable.get(1).token()).isEqualTo("token");
+        verify(apiRepository, times(0)).findRouteById(anyInt());
+    }
+
+    @Test
+    void updatesReplaceTheRouteAndUndoRestoresIt() {
+        table.put(1, api(1, "old", 10));
+        routeTable.get(1);
+
+        UpdateApiInRepositoryCommand update = new UpdateApiInRepositoryCommand(
+                apiRepository, specBlobStore, routeTable, 1, Api.builder().token("new").rateLimitPerSecond(20).build());
+        update.execute();
+        InvokeRouteTable.InvokeRoute updated = routeTable.get(1);
+        update.undo();
+        InvokeRouteTable.InvokeRoute restored = routeTable.get(1);
+
+        assertThat(updated.token()).isEqualTo("new");
+        assertThat(updated.limits().requestsPerSecond()).isEqualTo(20);
+        assertThat(restored.token()).isEqualTo("old");
+        assertThat(restored.limits().requestsPerSecond()).isEqualTo(10);
+        verify(apiRepository, times(1)).findRouteById(1);
+    }
+
+    @Test
+    void deletedApisAreNotRoutedAnymore() {
+        Api api = api(1, "token", 10);
+        table.put(1, api);
+        routeTable.get(1);
+
+        DeleteApiFromRepositoryCommand delete =
+                new DeleteApiFromRepositoryCommand(apiRepository, specBlobStore, routeTable, api);
+        delete.execute();
+        assertThat(routeTable.get(1)).isNull();
+
+        delete.undo();
+        assertThat(routeTable.get(1).token()).isEqualTo("token");
+    }
+
+    private static Api api(int id, String token, int ratePerSecond) {
+        return Api.builder().id(id).name("api-" + id).token(token).rateLimitPerSecond(ratePerSecond).build();
+    }
+
+    private static ApiRepository repository(Map<Integer, Api> table) {
+        ApiRepository repository = mock(ApiRepository.class);
+        when(repository.findById(any())).thenAnswer(call ->
+                Optional.ofNullable(table.get(call.<Integer>getArgument(0))).map(Api::new));
+        when(repository.findRouteById(anyInt())).thenAnswer(call ->
+                Optional.ofNullable(table.get(call.<Integer>getArgument(0))).map(InvokeRouteTableTest::route));
+        when(repository.save(any())).thenAnswer(call -> {
+            Api api = call.getArgument(0);
+            table.put(api.getId(), new Api(api));
+            return api;
+        });
+        doAnswer(call -> table.remove(call.<Api>getArgument(0).getId()))
+                .when(repository).delete(any());
+        return repository;
+    }
+
+    private static ApiRoute route(Api api) {
+        return new ApiRoute() {
+            @Override
+            public int getId() {
+                return api.getId();
+            }
+
+            @Override
+            public String getToken() {
+                return api.getToken();
+            }
+
+            @Override
+            public Integer getRateLimitPerSecond() {
+                return api.getRateLimitPerSecond();
+            }
+
+            @Override
+            public Integer getRateLimitBurst() {
+                return api.getRateLimitBurst();
+            }
+
+            @Override
+            public Integer getMaxConcurrentInvocations() {
+                return api.getMaxConcurrentInvocations();
+            }
+        };
+    }
+}
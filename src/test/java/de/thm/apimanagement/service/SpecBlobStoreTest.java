@@ -0,0 +1,142 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.entity.SpecBlob;
+import de.thm.apimanagement.repository.SpecBlobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Every repository call commits on its own, so concurrent callers see each other's changes
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpecBlobStoreTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    @Autowired
+    private SpecBlobRepository specBlobRepository;
+
+    @AfterEach
+    void cleanUp() {
+        executor.shutdownNow();
+        specBlobRepository.deleteAll();
+    }
+
+    private SpecBlobStore store() {
+        return new SpecBlobStore(specBlobRepository, new SimpleMeterRegistry(), 100);
+    }
+
+    @Test
+    void storesEqualSpecificationsOnce() {
+        SpecBlobStore store = store();
+
+        String first = store.acquire(Map.of("title", "pets"));
+        String second = store.acquire(Map.of("title", "pets"));
+        String other = store.acquire(Map.of("title", "cars"));
+
+        assertThat(second).isEqualTo(first).isNotEqualTo(other);
+        assertThat(specBlobRepository.count()).isEqualTo(2);
+        assertThat(refCount(first)).isEqualTo(2);
+        assertThat(refCount(other)).isEqualTo(1);
+    }
+
+    @Test
+    void deletesSpecificationsWithTheirLastReference() {
+        SpecBlobStore store = store();
+        String hash = store.acquire(Map.of("title", "pets"));
+        store.acquire(Map.of("title", "pets"));
+
+        store.release(hash);
+        assertThat(refCount(hash)).isEqualTo(1);
+        assertThat(store.load(hash)).containsEntry("title", "pets");
+
+        store.release(hash);
+        store.release(null);
+        assertThat(specBlobRepository.existsById(hash)).isFalse();
+        assertThat(store.load(hash)).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void handsOutUnmodifiableCopies() {
+        Map<String, Object> info = new HashMap<>(Map.of("title", "pets"));
+        Map<String, Object> spec = new HashMap<>(Map.of("info", info, "tags", new ArrayList<>(List.of("a"))));
+        String hash = store().acquire(spec);
+        info.put("title", "changed");
+
+        for (SpecBlobStore store : List.of(store(), store())) {
+            Map<String, Object> loaded = store.load(hash);
+            assertThat(loaded).containsEntry("info", Map.of("title", "pets"));
+            assertThatThrownBy(() -> loaded.put("openapi", "3.0.0")).isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> ((Map<String, Object>) loaded.get("info")).clear())
+                    .isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> ((List<Object>) loaded.get("tags")).add("b"))
+                    .isInstanceOf(UnsupportedOperationException.class);
+        }
+    }
+
+    @Test
+    void concurrentAcquiresOfANewSpecificationAreAllCounted() throws Exception {
+        SpecBlobStore store = store();
+        CyclicBarrier barrier = new CyclicBarrier(4);
+
+        List<Future<String>> hashes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            hashes.add(executor.submit(() -> {
+                barrier.await();
+                return store.acquire(Map.of("title", "pets"));
+            }));
+        }
+
+        String hash = hashes.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<String> other : hashes) {
+            assertThat(other.get(10, TimeUnit.SECONDS)).isEqualTo(hash);
+        }
+        assertThat(refCount(hash)).isEqualTo(4);
+    }
+
+    @Test
+    void acquireRacingTheLastReleaseKeepsTheSpecification() throws Exception {
+        SpecBlobStore store = store();
+        String hash = store.acquire(Map.of("title", "pets"));
+
+        // Every round releases the only reference while it is acquired again,
+        // so exactly one reference has to be left no matter how both calls interleave
+        for (int round = 0; round < 50; round++) {
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            Future<?> release = executor.submit(() -> {
+                barrier.await();
+                store.release(hash);
+                return null;
+            });
+            Future<?> acquire = executor.submit(() -> {
+                barrier.await();
+                return store.acquire(Map.of("title", "pets"));
+            });
+            release.get(10, TimeUnit.SECONDS);
+            acquire.get(10, TimeUnit.SECONDS);
+
+            assertThat(refCount(hash)).isEqualTo(1);
+        }
+        assertThat(store().load(hash)).containsEntry("title", "pets");
+    }
+
+    private int refCount(String hash) {
+        return specBlobRepository.findById(hash).map(SpecBlob::getRefCount).orElse(0);
+    }
+}
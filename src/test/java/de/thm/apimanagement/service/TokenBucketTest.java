@@ -0,0 +1,55 @@
+package de.thm.apimanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void allowsBurstThenRejectsWithWaitTime() {
+        TokenBucket bucket = new TokenBucket(2, 3, now::get);
+
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isEqualTo(SECOND / 2);
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(2, 1, now::get);
+
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+
+        now.addAndGet(SECOND / 2);
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+    }
+
+    @Test
+    void idleTimeDoesNotExceedBurst() {
+        TokenBucket bucket = new TokenBucket(1, 2, now::get);
+
+        now.addAndGet(60 * SECOND);
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+    }
+
+    @Test
+    void refundedTokenCanBeTakenAgain() {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+
+        assertThat(bucket.tryAcquire()).isZero();
+        bucket.refund();
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+    }
+}
@@ -0,0 +1,294 @@
+package de.thm.apimanagement.service;
+
+import de.thm.apimanagement.client.McpManagementClient;
+import de.thm.apimanagement.client.Spec2ToolClient;
+import de.thm.apimanagement.client.UserManagementClient;
+import de.thm.apimanagement.client.exceptions.ClientUnavailableException;
+import de.thm.apimanagement.entity.AccessTokenConverter;
+import de.thm.apimanagement.entity.Api;
+import de.thm.apimanagement.entity.ToolDefinition;
+import de.thm.apimanagement.entity.ToolRegistration;
+import de.thm.apimanagement.repository.ApiRepository;
+import de.thm.apimanagement.repository.SpecBlobRepository;
+import de.thm.apimanagement.repository.ToolRegistrationRepository;
+import de.thm.apimanagement.security.TokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Every repository call commits on its own, like it does while the dispatcher runs
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "tool-registration.token-key=4FaDIFvEAK/BKLHCwZQjXQiBPPjE58MuDaEf3tMx9Gc="
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ToolRegistrationDispatcherTest {
+    private static final Duration LEASE = Duration.ofMinutes(2);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final Spec2ToolClient spec2ToolClient = mock(Spec2ToolClient.class);
+    private final UserManagementClient userManagementClient = mock(UserManagementClient.class);
+    private final McpManagementClient mcpManagementClient = mock(McpManagementClient.class);
+    private final List<String> tokensSeen = new ArrayList<>();
+    @Autowired
+    private ToolRegistrationRepository toolRegistrationRepository;
+    @Autowired
+    private ApiRepository apiRepository;
+    @Autowired
+    private SpecBlobRepository specBlobRepository;
+    @Autowired
+    private DataSource dataSource;
+    private SpecBlobStore specBlobStore;
+
+    @BeforeEach
+    void setUp() {
+        specBlobStore = new SpecBlobStore(specBlobRepository, new SimpleMeterRegistry(), 100);
+        when(spec2ToolClient.convertSpec2Tool(anyString(), any())).thenReturn(new ToolDefinition());
+        doAnswer(call -> tokensSeen.add(new TokenProvider().getToken()))
+                .when(mcpManagementClient).addOrUpdateTool(anyInt(), any());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        toolRegistrationRepository.deleteAll();
+        apiRepository.deleteAll();
+        specBlobRepository.deleteAll();
+    }
+
+    private ToolRegistrationDispatcher dispatcher(int maxAttempts) {
+        return new ToolRegistrationDispatcher(toolRegistrationRepository, apiRepository, specBlobStore,
+                mock(InvokeRouteTable.class), spec2ToolClient, userManagementClient, mcpManagementClient, Runnable::run,
+                new SimpleMeterRegistry(), 20, LEASE, maxAttempts, Duration.ofSeconds(1), Duration.ofSeconds(3),
+                Duration.ofDays(7), clock);
+    }
+
+    @Test
+    void registersTheToolOnBehalfOfTheStoredToken() throws Exception {
+        ToolRegistration registration = pending(ToolRegistration.Operation.CREATE);
+
+        dispatcher(3).dispatchDue();
+
+        ToolRegistration done = reload(registration);
+        assertThat(done.getStatus()).isEqualTo(ToolRegistration.Status.DONE);
+        assertThat(done.isAssigned()).isTrue();
+        assertThat(done.getAccessToken()).isNull();
+        assertThat(tokensSeen).containsExactly("secret-token");
+        verify(userManagementClient).addApiToUser(eq("alice"), any());
+    }
+
+    @Test
+    void storesTheTokenEncrypted() throws Exception {
+        ToolRegistration registration = pending(ToolRegistration.Operation.CREATE);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet stored = statement.executeQuery("SELECT access_token FROM tool_registration")) {
+            assertThat(stored.next()).isTrue();
+            assertThat(stored.getString(1)).isNotBlank().doesNotContain("secret-token");
+        }
+        assertThat(reload(registration).getAccessToken()).isEqualTo("secret-token");
+    }
+
+    @Test
+    void claimedRegistrationsAreNotDispatchedTwice() {
+        ToolRegistration registration = pending(ToolRegistration.Operation.CREATE);
+        ToolRegistrationDispatcher other = dispatcher(3);
+        // The other instance runs while the registration is dispatched, after it has been assigned and saved
+        doAnswer(call -> {
+            other.dispatchDue();
+            tokensSeen.add("registered");
+            return null;
+        }).when(mcpManagementClient).addOrUpdateTool(anyInt(), any());
+
+        dispatcher(3).dispatchDue();
+
+        assertThat(tokensSeen).containsExactly("registered");
+        verify(userManagementClient, times(1)).addApiToUser(eq("alice"), any());
+        assertThat(reload(registration).getStatus()).isEqualTo(ToolRegistration.Status.DONE);
+    }
+
+    @Test
+    void registrationsOfStoppedInstancesAreDueAfterTheLease() {
+        ToolRegistration registration = pending(ToolRegistration.Operation.UPDATE);
+        // Claimed by an instance which stops before it has finished
+        toolRegistrationRepository.claim(registration.getId(), ToolRegistration.Status.PENDING,
+                clock.instant(), clock.instant().plus(LEASE));
+
+        clock.advance(LEASE.minusSeconds(1));
+        dispatcher(3).dispatchDue();
+        assertThat(reload(registration).getStatus()).isEqualTo(ToolRegistration.Status.PENDING);
+
+        clock.advance(Duration.ofSeconds(1));
+        dispatcher(3).dispatchDue();
+        assertThat(reload(registration).getStatus()).isEqualTo(ToolRegistration.Status.DONE);
+    }
+
+    @Test
+    void retriesWithExponentialBackoff() {
+        ToolRegistration registration = pending(ToolRegistration.Operation.UPDATE);
+        doThrow(new ClientUnavailableException("mcp is unavailable"))
+                .when(mcpManagementClient).addOrUpdateTool(anyInt(), any());
+        ToolRegistrationDispatcher dispatcher = dispatcher(10);
+
+        List<Duration> delays = new ArrayList<>();
+        for (int attempt = 0; attempt < 4; attempt++) {
+            Instant now = clock.instant();
+            dispatcher.dispatchDue();
+            ToolRegistration retried = reload(registration);
+            delays.add(Duration.between(now, retried.getNextAttemptAt()));
+
+            // Not due before the delay has passed
+            clock.set(retried.getNextAttemptAt().minusMillis(1));
+            dispatcher.dispatchDue();
+            clock.advance(Duration.ofMillis(1));
+        }
+
+        ToolRegistration retried = reload(registration);
+        assertThat(delays).containsExactly(Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(3),
+                Duration.ofSeconds(3));
+        assertThat(retried.getAttempts()).isEqualTo(4);
+        assertThat(retried.getStatus()).isEqualTo(ToolRegistration.Status.PENDING);
+        assertThat(retried.getLastError()).isEqualTo("mcp is unavailable");
+        assertThat(retried.getAccessToken()).isEqualTo("secret-token");
+    }
+
+    @Test
+    void failedRegistrationsOfNewApisDeleteTheApi() {
+        ToolRegistration registration = pending(ToolRegistration.Operation.CREATE);
+        doThrow(new ClientUnavailableException("mcp is unavailable"))
+                .when(mcpManagementClient).addOrUpdateTool(anyInt(), any());
+        ToolRegistrationDispatcher dispatcher = dispatcher(2);
+
+        dispatcher.dispatchDue();
+        clock.advance(Duration.ofSeconds(1));
+        dispatcher.dispatchDue();
+
+        ToolRegistration failed = reload(registration);
+        assertThat(failed.getStatus()).isEqualTo(ToolRegistration.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(2);
+        assertThat(failed.getAccessToken()).isNull();
+        assertThat(failed.getLastError()).isEqualTo("mcp is unavailable The api has been deleted.");
+        assertThat(failed.isAssigned()).isFalse();
+        assertThat(apiRepository.existsById(registration.getApiId())).isFalse();
+        assertThat(specBlobRepository.count()).isZero();
+        verify(userManagementClient).deleteApiFromUser("alice", registration.getApiId());
+    }
+
+    @Test
+    void failedUpdatesKeepTheApi() {
+        ToolRegistration registration = pending(ToolRegistration.Operation.UPDATE);
+        apiRepository.deleteById(registration.getApiId());
+        ToolRegistration other = pending(ToolRegistration.Operation.UPDATE);
+        doThrow(new ClientUnavailableException("mcp is unavailable"))
+                .when(mcpManagementClient).addOrUpdateTool(anyInt(), any());
+
+        dispatcher(1).dispatchDue();
+
+        // A missing API fails at once, every other failure once the attempts are used up
+        assertThat(reload(registration).getStatus()).isEqualTo(ToolRegistration.Status.FAILED);
+        assertThat(reload(registration).getLastError()).isEqualTo("Api does not exist!");
+        assertThat(reload(other).getStatus()).isEqualTo(ToolRegistration.Status.FAILED);
+        assertThat(apiRepository.existsById(other.getApiId())).isTrue();
+    }
+
+    @Test
+    void registrationsWithUnreadableTokensFailAndKeepTheApi() throws Exception {
+        ToolRegistration registration = pending(ToolRegistration.Operation.CREATE);
+        // Encrypted with the key of another instance
+        String foreignToken = new AccessTokenConverter(Base64.getEncoder().encodeToString(new byte[32]))
+                .convertToDatabaseColumn("secret-token");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("UPDATE tool_registration SET access_token = ?")) {
+            statement.setString(1, foreignToken);
+            statement.executeUpdate();
+        }
+
+        dispatcher(3).dispatchDue();
+
+        ToolRegistration failed = reload(registration);
+        assertThat(failed.getStatus()).isEqualTo(ToolRegistration.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError())
+                .isEqualTo("The access token of the registration is not available anymore The api has been kept.");
+        assertThat(apiRepository.existsById(registration.getApiId())).isTrue();
+        verifyNoInteractions(userManagementClient, mcpManagementClient);
+    }
+
+    private ToolRegistration pending(ToolRegistration.Operation operation) {
+        Api api = apiRepository.save(Api.builder()
+                .name("pets")
+                .format("openapi")
+                .specHash(specBlobStore.acquire(Map.of("title", "pets")))
+                .build());
+        return toolRegistrationRepository.save(new ToolRegistration(
+                api.getId(), operation, "alice", null, "secret-token", clock.instant()));
+    }
+
+    private ToolRegistration reload(ToolRegistration registration) {
+        return toolRegistrationRepository.findById(registration.getId()).orElseThrow();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}